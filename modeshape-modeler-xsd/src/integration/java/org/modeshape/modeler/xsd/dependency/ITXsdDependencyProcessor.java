@@ -30,11 +30,16 @@ import static org.junit.Assert.assertThat;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import javax.jcr.Node;
 import javax.jcr.Session;
 
 import org.junit.Test;
+import org.modeshape.modeler.Model;
 import org.modeshape.modeler.ModelType;
 import org.modeshape.modeler.integration.BaseIntegrationTest;
 import org.modeshape.modeler.internal.DependencyProcessor;
@@ -64,6 +69,57 @@ public class ITXsdDependencyProcessor extends BaseIntegrationTest {
         this.modelTypeManager.install( "xsd" );
     }
     
+    @Test
+    public void shouldGenerateModelsInDependencyOrder() throws Exception {
+        final URL moviesUrl = getClass().getClassLoader().getResource( "Movies/Movies.xsd" );
+        final URL datatypesUrl = getClass().getClassLoader().getResource( "Movies/MovieDatatypes.xsd" );
+        final Map< URL, Model > models = this.modeler.generateModels( Arrays.asList( moviesUrl, datatypesUrl ), "movies", xsdModelType() );
+        assertThat( models.keySet().iterator().next(), is( datatypesUrl ) );
+        final ModelImpl model = ( ModelImpl ) models.get( moviesUrl );
+        
+        this.manager.run( new Task< Node >() {
+            
+            @Override
+            public Node run( final Session session ) throws Exception {
+                final Node dependencyNode =
+                    session.getNode( model.absolutePath() ).getNode( ModelerLexicon.DEPENDENCIES_NODE ).getNodes().nextNode();
+                assertThat( dependencyNode.getProperty( ModelerLexicon.PATH_PROPERTY ).getString(), is( "/movies/MovieDatatypes.xsd" ) );
+                assertThat( session.nodeExists( model.absolutePath() + "/MovieDatatypes.xsd" ), is( false ) );
+                return null;
+            }
+        } );
+    }
+    
+    @Test
+    public void shouldGenerateMissingDependenciesOfMoviesXsd() throws Exception {
+        final URL xsdUrl = getClass().getClassLoader().getResource( "Movies/Movies.xsd" );
+        final String path = this.modeler.importFile( new File( xsdUrl.toURI() ), null );
+        final ModelImpl model = ( ModelImpl ) this.modeler.generateModel( path, ARTIFACT_NAME, xsdModelType() );
+        
+        final Model dependency = this.modeler.model( model.absolutePath() + "/MovieDatatypes.xsd" );
+        assertThat( dependency.modelType().name(), is( XsdLexicon.MODEL_ID ) );
+        assertThat( dependency.externalLocation(), is( getClass().getClassLoader().getResource( "Movies/MovieDatatypes.xsd" ) ) );
+    }
+    
+    @Test
+    public void shouldMarkDependentsStaleWhenDependencyRegenerated() throws Exception {
+        final URL moviesUrl = getClass().getClassLoader().getResource( "Movies/Movies.xsd" );
+        final URL datatypesUrl = getClass().getClassLoader().getResource( "Movies/MovieDatatypes.xsd" );
+        final Map< URL, Model > models = this.modeler.generateModels( Arrays.asList( moviesUrl, datatypesUrl ), "movies", xsdModelType() );
+        final String moviesPath = models.get( moviesUrl ).absolutePath();
+        assertThat( this.modeler.dependents( "/movies/MovieDatatypes.xsd" ), is( Collections.singleton( moviesPath ) ) );
+        assertThat( this.modeler.staleModels().isEmpty(), is( true ) );
+        
+        this.modeler.generateModel( datatypesUrl, "movies", xsdModelType() );
+        assertThat( this.modeler.staleModels(), is( Collections.singleton( moviesPath ) ) );
+        
+        final List< Model > rebuilt = this.modeler.rebuildStaleModels().get();
+        assertThat( rebuilt.size(), is( 1 ) );
+        assertThat( rebuilt.get( 0 ).absolutePath(), is( moviesPath ) );
+        assertThat( this.modeler.staleModels().isEmpty(), is( true ) );
+        assertThat( this.modeler.dependents( "/movies/MovieDatatypes.xsd" ), is( Collections.singleton( moviesPath ) ) );
+    }
+    
     @Test
     public void shouldNotFindDependenciesInMusicXsd() throws Exception {
         final URL xsdUrl = getClass().getClassLoader().getResource( "music.xsd" );
@@ -31,8 +31,11 @@ import org.polyglotter.common.I18n;
 @SuppressWarnings( "javadoc" )
 public class XsdModelerI18n {
     
+    public static I18n dependencyLocationUnknown = new I18n( "Unable to determine where to find missing dependency '%s'" );
     public static I18n notAnXsdModel = new I18n( "Model node '%s' is not an XSD model node" );
     public static I18n relativePathNotValid = new I18n( "The relative path of '%s' is not valid for a dependency node of model '%s'" );
     public static I18n schemaNodeNotFound = new I18n( "The sequencer produced XSD schema node under the file node was not found for model node '%s'" );
+    public static I18n unableToResolveDependencies = new I18n( "Unable to resolve the missing dependencies of model '%s'" );
+    public static I18n unableToResolveDependency = new I18n( "Unable to resolve dependency '%s' from '%s'" );
     
 }
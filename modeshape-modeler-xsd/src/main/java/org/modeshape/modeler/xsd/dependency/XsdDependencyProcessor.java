@@ -23,21 +23,36 @@
  */
 package org.modeshape.modeler.xsd.dependency;
 
+import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.List;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.modeler.ModelType;
 import org.modeshape.modeler.Modeler;
 import org.modeshape.modeler.ModelerException;
 import org.modeshape.modeler.internal.DependencyProcessor;
+import org.modeshape.modeler.internal.ModelTypeManagerImpl;
 import org.modeshape.modeler.internal.ModelerLexicon;
+import org.modeshape.modeler.internal.Task;
 import org.modeshape.modeler.xsd.XsdLexicon;
 import org.modeshape.modeler.xsd.XsdModelerI18n;
 import org.polyglotter.common.Logger;
@@ -47,8 +62,24 @@ import org.polyglotter.common.Logger;
  */
 public final class XsdDependencyProcessor implements DependencyProcessor, XsdLexicon {
     
+    /**
+     * The system property that specifies the maximum number of missing dependencies to resolve concurrently. Value is {@value} .
+     */
+    public static final String RESOLVER_THREADS_PROPERTY = "org.modeshape.modeler.xsd.dependencyResolverThreads";
+    
+    /**
+     * The default maximum number of missing dependencies to resolve concurrently. Value is {@value} .
+     */
+    public static final int DEFAULT_RESOLVER_THREADS = 8;
+    
     private static final Logger LOGGER = Logger.getLogger( XsdDependencyProcessor.class );
     
+    private static final String XML_SCHEMA_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
+    
+    private static final String MODEL_BY_EXTERNAL_LOCATION_QUERY = "SELECT [jcr:path] FROM [" + ModelerLexicon.MODEL_MIXIN
+                                                                   + "] WHERE [" + ModelerLexicon.EXTERNAL_LOCATION
+                                                                   + "] = $location";
+    
     /**
      * @param path
      *        the path being normalized (cannot be <code>null</code> or empty)
@@ -75,6 +106,60 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
         return !uri.isAbsolute();
     }
     
+    private final ConcurrentMap< String, Boolean > resolutionsInFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.internal.DependencyProcessor#dependencies(java.net.URL)
+     */
+    @Override
+    public Set< URL > dependencies( final URL artifactUrl ) throws ModelerException {
+        CheckArg.isNotNull( artifactUrl, "artifactUrl" );
+        final Set< URL > dependencies = new LinkedHashSet<>();
+        
+        try ( final InputStream stream = artifactUrl.openStream() ) {
+            final XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+            final XMLStreamReader reader = factory.createXMLStreamReader( stream );
+            
+            try {
+                int depth = 0;
+                
+                // imports, includes, and redefines must precede all other top-level schema components except annotations
+                while ( reader.hasNext() ) {
+                    final int event = reader.next();
+                    
+                    if ( event == XMLStreamConstants.END_ELEMENT ) {
+                        --depth;
+                    } else if ( event == XMLStreamConstants.START_ELEMENT && ++depth == 2 ) {
+                        final String name = reader.getLocalName();
+                        
+                        if ( !XML_SCHEMA_NAMESPACE.equals( reader.getNamespaceURI() ) ) {
+                            break;
+                        }
+                        
+                        if ( "import".equals( name ) || "include".equals( name ) || "redefine".equals( name ) ) {
+                            final String location = reader.getAttributeValue( null, "schemaLocation" );
+                            
+                            if ( location != null && !location.trim().isEmpty() ) {
+                                dependencies.add( new URL( artifactUrl, location.trim() ) );
+                            }
+                        } else if ( !"annotation".equals( name ) ) {
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch ( final Exception e ) {
+            throw new ModelerException( e );
+        }
+        
+        return dependencies;
+    }
+    
     private boolean dependencyNode( final Node node ) throws Exception {
         assert ( node != null );
         
@@ -82,6 +167,48 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
         return ( IMPORT.equals( primaryType ) || INCLUDE.equals( primaryType ) || REDEFINE.equals( primaryType ) );
     }
     
+    private URL dependencyUrl( final Node modelNode,
+                               final String location ) throws Exception {
+        try {
+            if ( !pathIsRelative( location ) ) return new URL( location );
+            // relative locations are relative to the schema the model was generated from
+            if ( !modelNode.hasProperty( ModelerLexicon.EXTERNAL_LOCATION ) ) return null;
+            return new URL( new URL( modelNode.getProperty( ModelerLexicon.EXTERNAL_LOCATION ).getString() ), location );
+        } catch ( final MalformedURLException e ) {
+            LOGGER.debug( e, "Dependency location '%s' is not a URL", location );
+            return null;
+        }
+    }
+    
+    private String modelPath( final Node modelNode,
+                              final URL url ) throws Exception {
+        final Session session = modelNode.getSession();
+        final Query query =
+            session.getWorkspace().getQueryManager().createQuery( MODEL_BY_EXTERNAL_LOCATION_QUERY, Query.JCR_SQL2 );
+        query.bindValue( "location", session.getValueFactory().createValue( url.toString() ) );
+        final NodeIterator itr = query.execute().getNodes();
+        
+        while ( itr.hasNext() ) {
+            final Node node = itr.nextNode();
+            
+            if ( !node.isSame( modelNode ) ) {
+                return node.getPath();
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.internal.DependencyProcessor#modelTypeNames()
+     */
+    @Override
+    public Set< String > modelTypeNames() {
+        return Collections.singleton( MODEL_ID );
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -123,6 +250,11 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
                 throw new ModelerException( XsdModelerI18n.schemaNodeNotFound, modelNode.getName() );
             }
             
+            // replace any dependencies recorded when the model was previously processed
+            if ( modelNode.hasNode( ModelerLexicon.DEPENDENCIES_NODE ) ) {
+                modelNode.getNode( ModelerLexicon.DEPENDENCIES_NODE ).remove();
+            }
+            
             // iterate over schema node's children to find dependencies
             final NodeIterator itr = schemaNode.getNodes();
             
@@ -131,7 +263,7 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
             }
             
             Node dependenciesNode = null;
-            final List< String > pathsToMissingDependencies = new ArrayList< String >( ( int ) itr.getSize() );
+            final Map< String, URL > missingDependencies = new LinkedHashMap<>();
             
             // find the dependency nodes
             while ( itr.hasNext() ) {
@@ -195,11 +327,24 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
                 exists = rootNode( node ).hasNode( path.substring( 1 ) );
                 LOGGER.debug( "Path '%s' exists '%s'", path, exists );
                 
+                URL url = null;
+                
+                if ( !exists ) {
+                    // use a model already generated from the dependency elsewhere, e.g., by Modeler.generateModels
+                    url = dependencyUrl( modelNode, location );
+                    final String modelPath = ( url == null ? null : modelPath( modelNode, url ) );
+                    
+                    if ( modelPath != null ) {
+                        path = modelPath;
+                        exists = true;
+                    }
+                }
+                
                 dependencyNode.setProperty( ModelerLexicon.PATH_PROPERTY, path );
                 LOGGER.debug( "Setting dependency path property to '%s'", path );
                 
                 if ( !exists ) {
-                    pathsToMissingDependencies.add( path );
+                    missingDependencies.put( path, url );
                 }
             }
             
@@ -209,8 +354,8 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
             }
             
             // process any missing dependencies
-            if ( !pathsToMissingDependencies.isEmpty() ) {
-                uploadMissingDependencies( pathsToMissingDependencies, modeler, modelType );
+            if ( !missingDependencies.isEmpty() ) {
+                uploadMissingDependencies( missingDependencies, modelNode, modeler, modelType );
             }
             
             return dependenciesNode.getPath();
@@ -239,21 +384,50 @@ public final class XsdDependencyProcessor implements DependencyProcessor, XsdLex
         return ( Node ) node.getAncestor( 0 );
     }
     
-    private void uploadMissingDependencies( final List< String > paths,
+    /**
+     * Imports and generates models for the supplied missing dependencies, along with any of their dependencies that are also
+     * missing. When called while generating a dependency, the dependencies are instead resolved with the next level of
+     * dependencies by the resolver generating it. Otherwise, the dependencies are resolved once the transaction generating the
+     * model commits, so they can be generated concurrently within their own sessions, beneath the model if necessary, without
+     * committing the model early. Dependencies that can't be resolved are logged.
+     * 
+     * @param dependencies
+     *        the source URLs, or <code>null</code> if unknown, of the missing dependencies by their workspace paths
+     * @param modelNode
+     *        the model node whose dependencies are missing
+     * @param modeler
+     *        the modeler used to import and generate the dependencies
+     * @param modelType
+     *        the model type of the dependencies
+     * @throws Exception
+     *         if an error occurs
+     */
+    private void uploadMissingDependencies( final Map< String, URL > dependencies,
+                                            final Node modelNode,
                                             final Modeler modeler,
-                                            final ModelType modelType ) {
-        assert ( paths != null );
+                                            final ModelType modelType ) throws Exception {
+        assert ( dependencies != null );
         assert ( modeler != null );
-        // TODO implement uploadMissingDependencies
-        //
-        // for ( final String path : paths ) {
-        // try {
-        // modeler.importArtifact( name, new URL( path ).openStream(), path );
-        // modeler.createModel( path, modelType );
-        // } catch ( final Exception e ) {
-        // LOGGER.error( e, message, params );
-        // }
-        // }
+        final XsdDependencyResolver resolver = XsdDependencyResolver.current();
+        if ( resolver != null ) {
+            resolver.enqueue( dependencies );
+            return;
+        }
+        final int threads = Math.max( Integer.getInteger( RESOLVER_THREADS_PROPERTY, DEFAULT_RESOLVER_THREADS ), 1 );
+        final String modelPath = modelNode.getPath();
+        // Resolve the dependencies once the model's transaction commits, so they can't cause it to be committed early
+        ( ( ModelTypeManagerImpl ) modeler.modelTypeManager() ).manager.afterCommit( modelNode.getSession(), new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) {
+                try {
+                    new XsdDependencyResolver( modeler, modelType, resolutionsInFlight, threads ).resolve( session, dependencies );
+                } catch ( final Exception e ) {
+                    LOGGER.error( e, XsdModelerI18n.unableToResolveDependencies, modelPath );
+                }
+                return null;
+            }
+        } );
     }
     
 }
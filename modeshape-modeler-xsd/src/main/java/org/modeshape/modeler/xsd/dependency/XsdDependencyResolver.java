@@ -0,0 +1,206 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.xsd.dependency;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.jcr.Session;
+
+import org.modeshape.jcr.api.JcrTools;
+import org.modeshape.modeler.ModelType;
+import org.modeshape.modeler.Modeler;
+import org.modeshape.modeler.ModelerException;
+import org.modeshape.modeler.ModelerTransaction;
+import org.modeshape.modeler.internal.ModelerLexicon;
+import org.modeshape.modeler.xsd.XsdModelerI18n;
+import org.polyglotter.common.Logger;
+
+/**
+ * Resolves the missing dependencies of an XSD model by importing each dependency's schema and generating a model for it, each
+ * within its own transaction and concurrently with the others. The missing dependencies of those dependencies are resolved the
+ * same way, a level at a time, until none remain.
+ */
+final class XsdDependencyResolver {
+    
+    private static final Logger LOGGER = Logger.getLogger( XsdDependencyResolver.class );
+    
+    // The resolver whose dependency is being generated by the current thread, if any
+    private static final ThreadLocal< XsdDependencyResolver > CURRENT = new ThreadLocal<>();
+    
+    /**
+     * @return the resolver generating a dependency within the current thread, or <code>null</code> if there is none
+     */
+    static XsdDependencyResolver current() {
+        return CURRENT.get();
+    }
+    
+    private final Modeler modeler;
+    private final ModelType modelType;
+    private final ConcurrentMap< String, Boolean > resolutionsInFlight;
+    private final int threads;
+    private final Set< String > scheduledPaths = new HashSet<>();
+    private Map< String, URL > pendingDependencies = new LinkedHashMap<>();
+    
+    /**
+     * @param modeler
+     *        the modeler used to import and generate dependencies
+     * @param modelType
+     *        the model type of the generated dependencies
+     * @param resolutionsInFlight
+     *        the paths of the dependencies currently being resolved by any resolver
+     * @param threads
+     *        the maximum number of dependencies to resolve concurrently
+     */
+    XsdDependencyResolver( final Modeler modeler,
+                           final ModelType modelType,
+                           final ConcurrentMap< String, Boolean > resolutionsInFlight,
+                           final int threads ) {
+        this.modeler = modeler;
+        this.modelType = modelType;
+        this.resolutionsInFlight = resolutionsInFlight;
+        this.threads = threads;
+    }
+    
+    private void createFolders( final Session session,
+                                final Set< String > paths ) throws Exception {
+        final JcrTools tools = new JcrTools();
+        // Concurrent transactions would otherwise each create their own copy of any new folder they share
+        tools.findOrCreateNode( session, '/' + ModelerLexicon.TEMP_FOLDER, "nt:folder" );
+        for ( final String path : paths ) {
+            final String folder = path.substring( 0, path.lastIndexOf( '/' ) );
+            if ( !folder.isEmpty() ) tools.findOrCreateNode( session, folder );
+        }
+        session.save();
+    }
+    
+    /**
+     * Schedules the supplied dependencies to be resolved with the next level of dependencies, ignoring any already scheduled by
+     * this resolver.
+     * 
+     * @param dependencies
+     *        the source URLs, or <code>null</code> if unknown, of missing dependencies by their workspace paths
+     */
+    synchronized void enqueue( final Map< String, URL > dependencies ) {
+        for ( final Entry< String, URL > dependency : dependencies.entrySet() ) {
+            if ( dependency.getValue() == null ) LOGGER.warn( XsdModelerI18n.dependencyLocationUnknown, dependency.getKey() );
+            else if ( scheduledPaths.add( dependency.getKey() ) )
+                pendingDependencies.put( dependency.getKey(), dependency.getValue() );
+        }
+    }
+    
+    private void generate( final String path,
+                           final URL url ) {
+        CURRENT.set( this );
+        try {
+            modeler.batch( new ModelerTransaction.Work< Void >() {
+                
+                @Override
+                public Void run( final ModelerTransaction transaction ) throws Exception {
+                    final String folder = ModelerLexicon.TEMP_FOLDER + '/' + UUID.randomUUID();
+                    transaction.generateModel( transaction.importArtifact( url, folder, null ), path, modelType );
+                    transaction.remove( folder );
+                    return null;
+                }
+            } );
+            LOGGER.debug( "Generated dependency '%s' from '%s'", path, url );
+        } catch ( final ModelerException | RuntimeException e ) {
+            LOGGER.error( e, XsdModelerI18n.unableToResolveDependency, path, url );
+        } finally {
+            CURRENT.remove();
+        }
+    }
+    
+    private synchronized Map< String, URL > nextLevel() {
+        final Map< String, URL > level = new LinkedHashMap<>();
+        for ( final Entry< String, URL > dependency : pendingDependencies.entrySet() ) {
+            if ( resolutionsInFlight.putIfAbsent( dependency.getKey(), Boolean.TRUE ) == null )
+                level.put( dependency.getKey(), dependency.getValue() );
+            else LOGGER.debug( "Dependency '%s' is already being resolved", dependency.getKey() );
+        }
+        pendingDependencies = new LinkedHashMap<>();
+        return level;
+    }
+    
+    /**
+     * Resolves the supplied dependencies, then breadth-first, any of their dependencies that are also missing. Dependencies that
+     * can't be resolved are logged and skipped.
+     * 
+     * @param session
+     *        a session, not used by any other transaction, used only to create the folders that will contain dependencies before
+     *        they're generated
+     * @param dependencies
+     *        the source URLs, or <code>null</code> if unknown, of missing dependencies by their workspace paths
+     * @throws Exception
+     *         if the folders to contain the dependencies can't be created, or if interrupted while waiting for them
+     */
+    void resolve( final Session session,
+                  final Map< String, URL > dependencies ) throws Exception {
+        enqueue( dependencies );
+        for ( Map< String, URL > level = nextLevel(); !level.isEmpty(); level = nextLevel() ) {
+            try {
+                createFolders( session, level.keySet() );
+                resolveLevel( level );
+            } finally {
+                for ( final String path : level.keySet() )
+                    resolutionsInFlight.remove( path );
+            }
+        }
+    }
+    
+    private void resolveLevel( final Map< String, URL > level ) throws Exception {
+        if ( level.size() == 1 ) {
+            final Entry< String, URL > dependency = level.entrySet().iterator().next();
+            generate( dependency.getKey(), dependency.getValue() );
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool( Math.min( level.size(), threads ) );
+        try {
+            final List< Future< ? > > futures = new ArrayList<>();
+            for ( final Entry< String, URL > dependency : level.entrySet() )
+                futures.add( executor.submit( new Runnable() {
+                    
+                    @Override
+                    public void run() {
+                        generate( dependency.getKey(), dependency.getValue() );
+                    }
+                } ) );
+            for ( final Future< ? > future : futures )
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
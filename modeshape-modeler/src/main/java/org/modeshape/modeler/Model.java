@@ -24,12 +24,21 @@
 package org.modeshape.modeler;
 
 import java.net.URL;
+import java.util.Set;
 
 /**
  * 
  */
 public interface Model extends ModelObject {
     
+    /**
+     * @return the workspace paths of the models and artifacts upon which this model directly or indirectly depends, including this
+     *         model's own path if it depends upon itself through a cycle of dependencies; never <code>null</code>.
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    Set< String > dependencyClosure() throws ModelerException;
+    
     /**
      * @return the (last) external location, e.g., on the file system, known to contain a materialized representation of this model.
      * @throws ModelerException
@@ -43,4 +52,18 @@ public interface Model extends ModelObject {
      *         if any error occurs
      */
     ModelType modelType() throws ModelerException;
+    
+    /**
+     * Visits this model and its descendants within a single session, streaming through the model rather than loading it into
+     * memory.
+     * 
+     * @param visitor
+     *        the visitor of each model object; must not be <code>null</code>.
+     * @param options
+     *        the order, maximum depth, and property prefetching of the walk; must not be <code>null</code>.
+     * @throws ModelerException
+     *         if any error occurs, including any thrown by the visitor
+     */
+    void walk( ModelVisitor visitor,
+               TraversalOptions options ) throws ModelerException;
 }
@@ -23,6 +23,10 @@
  */
 package org.modeshape.modeler;
 
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Map;
+
 /**
  * 
  */
@@ -33,6 +37,16 @@ public interface ModelObject {
      */
     String absolutePath();
     
+    /**
+     * @param propertyName
+     *        the name of one of this model object's properties
+     * @return the boolean values of the supplied property, converted directly from the repository's values without boxing, or
+     *         <code>null</code> if the property doesn't exist
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    boolean[] booleanArray( String propertyName ) throws ModelerException;
+    
     /**
      * @param propertyName
      *        the name of one of this model object's single-valued properties
@@ -85,6 +99,36 @@ public interface ModelObject {
      */
     ModelObject[] children( String childName ) throws ModelerException;
     
+    /**
+     * @param propertyName
+     *        the name of one of this model object's properties
+     * @return the date values of the supplied property, converted directly from the repository's values without boxing, or
+     *         <code>null</code> if the property doesn't exist
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    Calendar[] dateArray( String propertyName ) throws ModelerException;
+    
+    /**
+     * @param propertyName
+     *        the name of one of this model object's properties
+     * @return the decimal values of the supplied property, converted directly from the repository's values without boxing, or
+     *         <code>null</code> if the property doesn't exist
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    BigDecimal[] decimalArray( String propertyName ) throws ModelerException;
+    
+    /**
+     * @param propertyName
+     *        the name of one of this model object's properties
+     * @return the double values of the supplied property, converted directly from the repository's values without boxing, or
+     *         <code>null</code> if the property doesn't exist
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    double[] doubleArray( String propertyName ) throws ModelerException;
+    
     /**
      * @param childName
      *        the name of one of this model object's children
@@ -122,6 +166,16 @@ public interface ModelObject {
      */
     int index();
     
+    /**
+     * @param propertyName
+     *        the name of one of this model object's properties
+     * @return the long values of the supplied property, converted directly from the repository's values without boxing, or
+     *         <code>null</code> if the property doesn't exist
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    long[] longArray( String propertyName ) throws ModelerException;
+    
     /**
      * @param propertyName
      *        the name of one of this model object's single-valued properties
@@ -175,6 +229,27 @@ public interface ModelObject {
      */
     String primaryType() throws ModelerException;
     
+    /**
+     * @return an immutable map of this model object's property values by property name, retrieved in a single repository round
+     *         trip and excluding the same JCR and Modeler properties as {@link #propertyNames()}; never <code>null</code>. Each
+     *         single-valued property maps to a {@link String}, {@link Long}, {@link Double}, {@link java.math.BigDecimal},
+     *         {@link Boolean}, or {@link java.util.Calendar}, depending upon the property's type, and each multi-valued property maps
+     *         to an <code>Object[]</code> of such values.
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    Map< String, Object > properties() throws ModelerException;
+    
+    /**
+     * @param propertyNames
+     *        the names of the properties to retrieve, which may include JCR and Modeler properties; must not be <code>null</code>.
+     * @return an immutable map of the values of the named properties that exist, by property name, retrieved in a single
+     *         repository round trip and typed as described for {@link #properties()}; never <code>null</code>.
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    Map< String, Object > properties( String... propertyNames ) throws ModelerException;
+    
     /**
      * @param propertyName
      *        the name of one of this model object's properties
@@ -191,6 +266,17 @@ public interface ModelObject {
      */
     String[] propertyNames() throws ModelerException;
     
+    /**
+     * @param depth
+     *        the number of levels of descendants to load along with this model object. Zero loads only this model object, and a
+     *        negative depth loads all of its descendants.
+     * @return an immutable, in-memory snapshot of this model object and its descendants down to the supplied depth; never
+     *         <code>null</code>
+     * @throws ModelerException
+     *         if any error occurs
+     */
+    ModelObjectSnapshot snapshot( int depth ) throws ModelerException;
+    
     /**
      * @param propertyName
      *        the name of one of this model object's single-valued properties
@@ -0,0 +1,37 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler;
+
+/**
+ * An immutable, thread-safe, in-memory copy of a {@link ModelObject model object} and its descendants, loaded from the repository
+ * within a single session. Reading a snapshot does not access the repository, except for the children of objects beyond the depth
+ * that was {@link ModelObject#snapshot(int) requested}. Paths reported by a snapshot are those at the time it was taken.
+ */
+public interface ModelObjectSnapshot extends ModelObject {
+    
+    /**
+     * @return the approximate number of bytes of heap occupied by this snapshot, including all of its loaded descendants
+     */
+    long estimatedSize();
+}
@@ -43,6 +43,12 @@ public interface ModelTypeManager {
      */
     String MAVEN_MODEL_TYPE_REPOSITORY = "http://repo1.maven.org/maven2";
     
+    /**
+     * @return the number of milliseconds to wait for a connection to a {@link #modelTypeRepositories() model type repository}
+     *         before treating the repository as unreachable, or zero to wait indefinitely
+     */
+    int connectTimeout();
+    
     /**
      * @param artifactPath
      *        the repository path to an artifact
@@ -52,6 +58,13 @@ public interface ModelTypeManager {
      */
     ModelType defaultModelType( final String artifactPath ) throws ModelerException;
     
+    /**
+     * @return the number of milliseconds to wait for a {@link #modelTypeRepositories() model type repository} to respond when
+     *         {@link #install(String) installing} a model type category before also requesting the category from the next fastest
+     *         repository
+     */
+    long hedgeDelay();
+    
     /**
      * @param category
      *        the name of an {@link #installableModelTypeCategories() installable model type category} from an on-line <a
@@ -90,6 +103,12 @@ public interface ModelTypeManager {
      */
     List< URL > modelTypeRepositories();
     
+    /**
+     * @return the statistics measured for each {@link #modelTypeRepositories() model type repository}, ordered by how they will
+     *         be tried when {@link #install(String) installing} model type categories; never <code>null</code>.
+     */
+    List< ModelTypeRepositoryStatistics > modelTypeRepositoryStatistics();
+    
     /**
      * @return the available model types
      */
@@ -111,6 +130,12 @@ public interface ModelTypeManager {
      */
     Set< ModelType > modelTypesForCategory( String category );
     
+    /**
+     * @return <code>true</code> if only local model type repositories and previously cached information are used, without
+     *         contacting any remote {@link #modelTypeRepositories() model type repository}
+     */
+    boolean offline();
+    
     /**
      * @param repositoryUrl
      *        a URL to an on-line <a href="http://maven.apache.org">Maven</a> {@link #modelTypeRepositories() model type repository}
@@ -133,6 +158,12 @@ public interface ModelTypeManager {
      */
     List< URL > moveModelTypeRepositoryUp( final URL repositoryUrl ) throws ModelerException;
     
+    /**
+     * @return the number of milliseconds to wait for data from a {@link #modelTypeRepositories() model type repository} before
+     *         treating the repository as unreachable, or zero to wait indefinitely
+     */
+    int readTimeout();
+    
     /**
      * @param repositoryUrl
      *        a URL to an on-line <a href="http://maven.apache.org">Maven</a> {@link #modelTypeRepositories() model type repository}
@@ -144,6 +175,35 @@ public interface ModelTypeManager {
      */
     List< URL > registerModelTypeRepository( final URL repositoryUrl ) throws ModelerException;
     
+    /**
+     * @param connectTimeout
+     *        the number of milliseconds to wait for a connection to a {@link #modelTypeRepositories() model type repository}
+     *        before treating the repository as unreachable, or zero to wait indefinitely
+     */
+    void setConnectTimeout( final int connectTimeout );
+    
+    /**
+     * @param hedgeDelay
+     *        the number of milliseconds to wait for a {@link #modelTypeRepositories() model type repository} to respond when
+     *        {@link #install(String) installing} a model type category before also requesting the category from the next fastest
+     *        repository
+     */
+    void setHedgeDelay( final long hedgeDelay );
+    
+    /**
+     * @param offline
+     *        <code>true</code> if only local model type repositories and previously cached information should be used, without
+     *        contacting any remote {@link #modelTypeRepositories() model type repository}
+     */
+    void setOffline( final boolean offline );
+    
+    /**
+     * @param readTimeout
+     *        the number of milliseconds to wait for data from a {@link #modelTypeRepositories() model type repository} before
+     *        treating the repository as unreachable, or zero to wait indefinitely
+     */
+    void setReadTimeout( final int readTimeout );
+    
     /**
      * @param category
      *        the name of an {@link #installableModelTypeCategories() installed model type category}
@@ -0,0 +1,104 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler;
+
+import java.net.URL;
+
+/**
+ * Statistics measured while retrieving category listings and archives from a {@link ModelTypeManager#modelTypeRepositories()
+ * model type repository}, used to decide the order in which repositories are tried.
+ */
+public final class ModelTypeRepositoryStatistics {
+    
+    private final URL url;
+    private final long requests;
+    private final long failures;
+    private final long averageLatency;
+    
+    /**
+     * @param url
+     *        the model type repository's URL; must not be <code>null</code>.
+     * @param requests
+     *        the number of requests made to the repository
+     * @param failures
+     *        the number of requests that failed because the repository couldn't be reached or returned an error
+     * @param averageLatency
+     *        the weighted average number of milliseconds the repository took to respond, or -1 if it never has
+     */
+    public ModelTypeRepositoryStatistics( final URL url,
+                                          final long requests,
+                                          final long failures,
+                                          final long averageLatency ) {
+        this.url = url;
+        this.requests = requests;
+        this.failures = failures;
+        this.averageLatency = averageLatency;
+    }
+    
+    /**
+     * @return the weighted average number of milliseconds the repository took to respond, favoring recent requests, or -1 if the
+     *         repository has never responded
+     */
+    public long averageLatency() {
+        return averageLatency;
+    }
+    
+    /**
+     * @return the fraction of requests that failed, from 0 to 1
+     */
+    public double failureRate() {
+        return requests == 0 ? 0 : ( double ) failures / requests;
+    }
+    
+    /**
+     * @return the number of requests that failed because the repository couldn't be reached or returned an error
+     */
+    public long failures() {
+        return failures;
+    }
+    
+    /**
+     * @return the number of requests made to the repository
+     */
+    public long requests() {
+        return requests;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return url + " (requests: " + requests + ", failures: " + failures + ", average latency: " + averageLatency + "ms)";
+    }
+    
+    /**
+     * @return the model type repository's URL; never <code>null</code>.
+     */
+    public URL url() {
+        return url;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler;
+
+/**
+ * Visits the objects of a model during a {@link Model#walk(ModelVisitor, TraversalOptions) walk}.
+ */
+public interface ModelVisitor {
+    
+    /**
+     * @param modelObject
+     *        the model object being visited. Unless properties are {@link TraversalOptions#prefetchProperties() prefetched}, reading
+     *        from it within this method accesses the repository in a separate session.
+     * @param depth
+     *        the depth of the model object relative to the model being walked, which has a depth of zero
+     * @return <code>false</code> if the descendants of the model object should not be visited
+     * @throws Exception
+     *         if any problem occurs, which ends the walk
+     */
+    boolean visit( ModelObject modelObject,
+                   int depth ) throws Exception;
+}
@@ -25,21 +25,43 @@ package org.modeshape.modeler;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.query.Query;
 
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.jcr.api.JcrTools;
 import org.modeshape.jcr.api.ValueFactory;
 import org.modeshape.jcr.api.sequencer.Sequencer;
+import org.modeshape.modeler.internal.DependencyGraph;
 import org.modeshape.modeler.internal.DependencyProcessor;
 import org.modeshape.modeler.internal.Manager;
 import org.modeshape.modeler.internal.ModelImpl;
@@ -58,7 +80,11 @@ public final class Modeler implements AutoCloseable {
      */
     public static final String DEFAULT_MODESHAPE_CONFIGURATION_PATH = "jcr/modeShapeConfig.json";
     
+    private static final String STALE_MODELS_QUERY = "SELECT [jcr:path] FROM [" + ModelerLexicon.MODEL_MIXIN + "] WHERE ["
+                                                     + ModelerLexicon.STALE + "] IS NOT NULL";
+    
     final Manager manager;
+    private ExecutorService rebuildExecutor;
     
     /**
      * Uses a default ModeShape configuration.
@@ -99,6 +125,34 @@ public final class Modeler implements AutoCloseable {
         return path.endsWith( "/" ) ? path + name : path + '/' + name;
     }
     
+    /**
+     * Runs the supplied unit of work within a single session, committing all of the changes it makes with a single save once it
+     * completes. If the unit of work fails, none of its changes are committed.
+     * 
+     * @param work
+     *        the unit of work to be run; must not be <code>null</code>.
+     * @return the return value of the supplied unit of work
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    public < T > T batch( final ModelerTransaction.Work< T > work ) throws ModelerException {
+        CheckArg.isNotNull( work, "work" );
+        return manager.run( new Task< T >() {
+            
+            @Override
+            public T run( final Session session ) throws Exception {
+                final Transaction transaction = new Transaction( session );
+                try {
+                    final T result = work.run( transaction );
+                    session.save();
+                    return result;
+                } finally {
+                    transaction.session = null;
+                }
+            }
+        } );
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -108,9 +162,25 @@ public final class Modeler implements AutoCloseable {
      */
     @Override
     public void close() throws ModelerException {
+        synchronized ( this ) {
+            if ( rebuildExecutor != null ) rebuildExecutor.shutdownNow();
+        }
         manager.close();
     }
     
+    /**
+     * @param path
+     *        the workspace path of a model or artifact; must not be empty.
+     * @return the workspace paths of the models that directly depend upon the model or artifact at the supplied path, which need
+     *         not exist; never <code>null</code>
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    public Set< String > dependents( final String path ) throws ModelerException {
+        CheckArg.isNotEmpty( path, "path" );
+        return manager.dependencyIndex.dependents( absolutePath( path ) );
+    }
+    
     /**
      * @param artifactPath
      *        the workspace path to an artifact; must not be empty.
@@ -186,9 +256,24 @@ public final class Modeler implements AutoCloseable {
     public Model generateModel( final InputStream stream,
                                 final String modelPath,
                                 final ModelType modelType ) throws ModelerException {
-        final String artifactPath = importArtifact( stream, ModelerLexicon.TEMP_FOLDER + "/file" );
-        final Model model = generateModel( artifactPath, modelPath, modelType );
-        removeTemporaryArtifact( artifactPath );
+        return manager.run( new Task< Model >() {
+            
+            @Override
+            public Model run( final Session session ) throws Exception {
+                final Model model = generateModel( session, stream, modelPath, modelType );
+                session.save();
+                return model;
+            }
+        } );
+    }
+    
+    Model generateModel( final Session session,
+                         final InputStream stream,
+                         final String modelPath,
+                         final ModelType modelType ) throws Exception {
+        final String artifactPath = importArtifact( session, stream, ModelerLexicon.TEMP_FOLDER + "/file" );
+        final Model model = generateModel( session, artifactPath, modelPath, modelType );
+        removeTemporaryArtifact( session, artifactPath );
         return model;
     }
     
@@ -206,57 +291,75 @@ public final class Modeler implements AutoCloseable {
     public Model generateModel( final String artifactPath,
                                 final String modelPath,
                                 final ModelType modelType ) throws ModelerException {
-        CheckArg.isNotEmpty( artifactPath, "artifactPath" );
-        CheckArg.isNotEmpty( modelPath, "modelPath" );
         return manager.run( new Task< Model >() {
             
             @Override
             public Model run( final Session session ) throws Exception {
-                final Node artifactNode = manager.artifactNode( session, artifactPath );
-                ModelType type = modelType;
-                if ( modelType == null ) {
-                    // If no model type supplied, use default model type if one exists
-                    type = manager.modelTypeManager.defaultModelType( artifactNode,
-                                                                      manager.modelTypeManager.modelTypes( artifactNode ) );
-                    if ( type == null )
-                        throw new IllegalArgumentException( ModelerI18n.unableToDetermineDefaultModelType.text( artifactPath ) );
-                    throw new UnsupportedOperationException( "Not yet implemented" );
-                }
-                // Build the model
-                final ValueFactory valueFactory = ( ValueFactory ) session.getValueFactory();
-                final Calendar cal = Calendar.getInstance();
-                final ModelTypeImpl modelType = ( ModelTypeImpl ) type;
-                final Node modelNode = new JcrTools().findOrCreateNode( session, absolutePath( modelPath ) );
-                modelNode.addMixin( ModelerLexicon.MODEL_MIXIN );
-                if ( artifactNode.hasProperty( ModelerLexicon.EXTERNAL_LOCATION ) )
-                    modelNode.setProperty( ModelerLexicon.EXTERNAL_LOCATION,
-                                           artifactNode.getProperty( ModelerLexicon.EXTERNAL_LOCATION ).getString() );
-                final boolean save = modelType.sequencer().execute( artifactNode.getNode( JcrLexicon.CONTENT.getString() )
-                                                                                .getProperty( JcrLexicon.DATA.getString() ),
-                                                                    modelNode,
-                                                                    new Sequencer.Context() {
-                                                                        
-                                                                        @Override
-                                                                        public Calendar getTimestamp() {
-                                                                            return cal;
-                                                                        }
-                                                                        
-                                                                        @Override
-                                                                        public ValueFactory valueFactory() {
-                                                                            return valueFactory;
-                                                                        }
-                                                                    } );
-                if ( save ) {
-                    modelNode.setProperty( ModelerLexicon.MODEL_TYPE, modelType.name() );
-                    processDependencies( modelNode, modelType );
-                    session.save();
-                    return new ModelImpl( manager, modelNode.getPath() );
-                }
-                throw new ModelerException( ModelerI18n.sessionNotSavedWhenCreatingModel, artifactPath );
+                final Model model = generateModel( session, artifactPath, modelPath, modelType );
+                session.save();
+                return model;
             }
         } );
     }
     
+    Model generateModel( final Session session,
+                         final String artifactPath,
+                         final String modelPath,
+                         final ModelType modelType ) throws Exception {
+        CheckArg.isNotEmpty( artifactPath, "artifactPath" );
+        CheckArg.isNotEmpty( modelPath, "modelPath" );
+        final Node artifactNode = manager.artifactNode( session, artifactPath );
+        ModelType type = modelType;
+        if ( modelType == null ) {
+            // If no model type supplied, use default model type if one exists
+            type = manager.modelTypeManager.defaultModelType( artifactNode, manager.modelTypeManager.modelTypes( artifactNode ) );
+            if ( type == null )
+                throw new IllegalArgumentException( ModelerI18n.unableToDetermineDefaultModelType.text( artifactPath ) );
+            throw new UnsupportedOperationException( "Not yet implemented" );
+        }
+        // Build the model
+        final ValueFactory valueFactory = ( ValueFactory ) session.getValueFactory();
+        final Calendar cal = Calendar.getInstance();
+        final ModelTypeImpl modelTypeImpl = ( ModelTypeImpl ) type;
+        final Node modelNode = new JcrTools().findOrCreateNode( session, absolutePath( modelPath ) );
+        final boolean regenerated = modelNode.hasProperty( ModelerLexicon.MODEL_TYPE );
+        if ( regenerated ) {
+            // Replace the model's generated content, but keep any models, e.g., dependencies, generated beneath it
+            for ( final NodeIterator iter = modelNode.getNodes(); iter.hasNext(); ) {
+                final Node child = iter.nextNode();
+                if ( !child.isNodeType( ModelerLexicon.MODEL_MIXIN ) && !child.getDefinition().isMandatory() ) child.remove();
+            }
+        }
+        modelNode.addMixin( ModelerLexicon.MODEL_MIXIN );
+        if ( artifactNode.hasProperty( ModelerLexicon.EXTERNAL_LOCATION ) )
+            modelNode.setProperty( ModelerLexicon.EXTERNAL_LOCATION,
+                                   artifactNode.getProperty( ModelerLexicon.EXTERNAL_LOCATION ).getString() );
+        final boolean save = modelTypeImpl.sequencer().execute( artifactNode.getNode( JcrLexicon.CONTENT.getString() )
+                                                                            .getProperty( JcrLexicon.DATA.getString() ),
+                                                                modelNode,
+                                                                new Sequencer.Context() {
+                                                                    
+                                                                    @Override
+                                                                    public Calendar getTimestamp() {
+                                                                        return cal;
+                                                                    }
+                                                                    
+                                                                    @Override
+                                                                    public ValueFactory valueFactory() {
+                                                                        return valueFactory;
+                                                                    }
+                                                                } );
+        if ( save ) {
+            modelNode.setProperty( ModelerLexicon.MODEL_TYPE, modelTypeImpl.name() );
+            if ( modelNode.hasProperty( ModelerLexicon.STALE ) ) modelNode.getProperty( ModelerLexicon.STALE ).remove();
+            processDependencies( modelNode, modelTypeImpl );
+            // Models generated from this model's previous content may no longer be consistent with it
+            if ( regenerated ) markStale( session, manager.dependencyIndex.transitiveDependents( modelNode.getPath() ) );
+            return new ModelImpl( manager, modelNode.getIdentifier(), modelNode.getPath() );
+        }
+        throw new ModelerException( ModelerI18n.sessionNotSavedWhenCreatingModel, artifactPath );
+    }
+    
     /**
      * @param artifactUrl
      *        the URL of an artifact; must not be <code>null</code>.
@@ -291,12 +394,114 @@ public final class Modeler implements AutoCloseable {
                                 final String modelFolder,
                                 final String modelName,
                                 final ModelType modelType ) throws ModelerException {
-        final String artifactPath = importArtifact( artifactUrl, ModelerLexicon.TEMP_FOLDER );
-        final Model model = generateModel( artifactPath, absolutePath( modelFolder, name( modelName, artifactUrl ) ), modelType );
-        removeTemporaryArtifact( artifactPath );
+        return manager.run( new Task< Model >() {
+            
+            @Override
+            public Model run( final Session session ) throws Exception {
+                final Model model = generateModel( session, artifactUrl, modelFolder, modelName, modelType );
+                session.save();
+                return model;
+            }
+        } );
+    }
+    
+    Model generateModel( final Session session,
+                         final URL artifactUrl,
+                         final String modelFolder,
+                         final String modelName,
+                         final ModelType modelType ) throws Exception {
+        final String artifactPath = importArtifact( session, artifactUrl, ModelerLexicon.TEMP_FOLDER, null );
+        final Model model =
+            generateModel( session, artifactPath, absolutePath( modelFolder, name( modelName, artifactUrl ) ), modelType );
+        removeTemporaryArtifact( session, artifactPath );
         return model;
     }
     
+    /**
+     * Generates models for a set of interdependent artifacts, such as a folder of schemas that import each other, in dependency
+     * order. The artifacts are first scanned for their dependencies upon each other by the model type's dependency processor, then
+     * generated a level at a time, with the models in each level, which depend only upon models in earlier levels, generated
+     * concurrently. Each model is created within the supplied folder, named after the last segment of its artifact's URL.
+     * 
+     * @param artifactUrls
+     *        the URLs of the artifacts; must not be empty, and the last segment of each URL must be unique.
+     * @param modelFolder
+     *        the parent path where the models should be created
+     * @param modelType
+     *        the type of models to be created for the supplied artifacts; must not be <code>null</code>.
+     * @return the new models by their artifacts' URLs, in the order they were generated; never <code>null</code>
+     * @throws ModelerException
+     *         if any problem occurs, including if any of the artifacts depend upon each other cyclically, in which case no models
+     *         are generated
+     */
+    public Map< URL, Model > generateModels( final Collection< URL > artifactUrls,
+                                             final String modelFolder,
+                                             final ModelType modelType ) throws ModelerException {
+        CheckArg.isNotEmpty( artifactUrls, "artifactUrls" );
+        CheckArg.isNotNull( modelType, "modelType" );
+        // URLs are keyed by their normalized URIs, since URL equality may resolve host names
+        final Map< URI, URL > urlsByUri = new HashMap<>();
+        final Set< String > names = new HashSet<>();
+        for ( final URL url : artifactUrls ) {
+            CheckArg.isNotNull( url, "artifactUrl" );
+            if ( !names.add( name( null, url ) ) )
+                throw new IllegalArgumentException( ModelerI18n.duplicateArtifactName.text( name( null, url ) ) );
+            urlsByUri.put( uri( url ), url );
+        }
+        final DependencyGraph< URL > graph = new DependencyGraph<>();
+        final DependencyProcessor dependencyProcessor = manager.modelTypeManager.dependencyProcessor( modelType );
+        for ( final URL url : urlsByUri.values() ) {
+            graph.add( url );
+            if ( dependencyProcessor == null ) continue;
+            for ( final URL dependency : dependencyProcessor.dependencies( url ) ) {
+                final URL artifactUrl = urlsByUri.get( uri( dependency ) );
+                // Dependencies outside of the supplied artifacts are left to be resolved by the dependency processor
+                if ( artifactUrl != null ) graph.addDependency( url, artifactUrl );
+            }
+        }
+        final List< List< URL > > levels = graph.levels();
+        manager.run( new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) throws Exception {
+                // Concurrently generated models would otherwise each create their own copy of these folders
+                final JcrTools tools = new JcrTools();
+                tools.findOrCreateNode( session, absolutePath( ModelerLexicon.TEMP_FOLDER ), "nt:folder" );
+                if ( !absolutePath( modelFolder ).equals( "/" ) ) tools.findOrCreateNode( session, absolutePath( modelFolder ) );
+                session.save();
+                return null;
+            }
+        } );
+        final Map< URL, Model > models = new LinkedHashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool( Math.min( urlsByUri.size(), manager.generationThreads ) );
+        try {
+            for ( final List< URL > level : levels ) {
+                final Map< URL, Future< Model > > futures = new LinkedHashMap<>();
+                for ( final URL url : level )
+                    futures.put( url, executor.submit( new Callable< Model >() {
+                        
+                        @Override
+                        public Model call() throws ModelerException {
+                            return generateModel( url, modelFolder, modelType );
+                        }
+                    } ) );
+                for ( final Entry< URL, Future< Model > > future : futures.entrySet() )
+                    models.put( future.getKey(), future.getValue().get() );
+            }
+            return models;
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ModelerException( e );
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof ModelerException ) throw ( ModelerException ) e.getCause();
+            if ( e.getCause() instanceof RuntimeException ) throw ( RuntimeException ) e.getCause();
+            if ( e.getCause() instanceof Error ) throw ( Error ) e.getCause();
+            throw new ModelerException( e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
     /**
      * @param stream
      *        the artifact's content to be imported. Must not be <code>null</code>.
@@ -308,22 +513,29 @@ public final class Modeler implements AutoCloseable {
      */
     public String importArtifact( final InputStream stream,
                                   final String workspacePath ) throws ModelerException {
-        CheckArg.isNotNull( stream, "stream" );
-        CheckArg.isNotEmpty( workspacePath, "workspacePath" );
         return manager.run( new Task< String >() {
             
             @Override
             public String run( final Session session ) throws Exception {
-                // Ensure the path is non-null, absolute, and ends with a slash
-                final Node node = new JcrTools().uploadFile( session, absolutePath( workspacePath ), stream );
-                // Add unstructured mix-in to allow node to contain anything else, like models created later
-                node.addMixin( ModelerLexicon.UNSTRUCTURED_MIXIN );
+                final String path = importArtifact( session, stream, workspacePath );
                 session.save();
-                return node.getPath();
+                return path;
             }
         } );
     }
     
+    String importArtifact( final Session session,
+                           final InputStream stream,
+                           final String workspacePath ) throws Exception {
+        CheckArg.isNotNull( stream, "stream" );
+        CheckArg.isNotEmpty( workspacePath, "workspacePath" );
+        // Ensure the path is non-null, absolute, and ends with a slash
+        final Node node = new JcrTools().uploadFile( session, absolutePath( workspacePath ), stream );
+        // Add unstructured mix-in to allow node to contain anything else, like models created later
+        node.addMixin( ModelerLexicon.UNSTRUCTURED_MIXIN );
+        return node.getPath();
+    }
+    
     /**
      * @param url
      *        the name of the artifact as it should be stored in the workspace. Must not be empty.
@@ -353,15 +565,28 @@ public final class Modeler implements AutoCloseable {
     public String importArtifact( final URL url,
                                   final String workspaceFolder,
                                   final String workspaceName ) throws ModelerException {
+        return manager.run( new Task< String >() {
+            
+            @Override
+            public String run( final Session session ) throws Exception {
+                final String path = importArtifact( session, url, workspaceFolder, workspaceName );
+                session.save();
+                return path;
+            }
+        } );
+    }
+    
+    String importArtifact( final Session session,
+                           final URL url,
+                           final String workspaceFolder,
+                           final String workspaceName ) throws Exception {
         CheckArg.isNotNull( url, "url" );
-        try {
-            final String path = importArtifact( url.openStream(), absolutePath( workspaceFolder, name( workspaceName, url ) ) );
-            saveExternalLocation( path, url.toString() );
+        try ( InputStream stream = url.openStream() ) {
+            final String path = importArtifact( session, stream, absolutePath( workspaceFolder, name( workspaceName, url ) ) );
+            session.getNode( path ).setProperty( ModelerLexicon.EXTERNAL_LOCATION, url.toString() );
             return path;
         } catch ( final FileNotFoundException e ) {
             throw new IllegalArgumentException( e );
-        } catch ( final IOException e ) {
-            throw new ModelerException( e );
         }
     }
     
@@ -401,6 +626,15 @@ public final class Modeler implements AutoCloseable {
         }
     }
     
+    private void markStale( final Session session,
+                            final Set< String > modelPaths ) throws RepositoryException {
+        for ( final String modelPath : modelPaths ) {
+            if ( !session.nodeExists( modelPath ) ) continue;
+            final Node modelNode = session.getNode( modelPath );
+            if ( modelNode.isNodeType( ModelerLexicon.MODEL_MIXIN ) ) modelNode.setProperty( ModelerLexicon.STALE, true );
+        }
+    }
+    
     /**
      * @param path
      *        a workspace path for a model
@@ -419,7 +653,7 @@ public final class Modeler implements AutoCloseable {
                     final Node node = session.getNode( absPath );
                     if ( !node.isNodeType( ModelerLexicon.MODEL_MIXIN ) )
                         throw new IllegalArgumentException( ModelerI18n.notModelPath.text( absPath ) );
-                    return new ModelImpl( manager, absPath );
+                    return new ModelImpl( manager, node.getIdentifier(), node.getPath() );
                 } catch ( final PathNotFoundException e ) {
                     throw new IllegalArgumentException( e );
                 }
@@ -449,6 +683,97 @@ public final class Modeler implements AutoCloseable {
         return workspaceName;
     }
     
+    Model rebuild( final String modelPath ) throws ModelerException {
+        return manager.run( new Task< Model >() {
+            
+            @Override
+            public Model run( final Session session ) throws Exception {
+                final Node modelNode = session.getNode( modelPath );
+                if ( !modelNode.hasProperty( ModelerLexicon.EXTERNAL_LOCATION ) )
+                    throw new IllegalStateException( ModelerI18n.modelNotRebuildable.text( modelPath ) );
+                final URL url = new URL( modelNode.getProperty( ModelerLexicon.EXTERNAL_LOCATION ).getString() );
+                final ModelType modelType =
+                    manager.modelTypeManager.modelType( modelNode.getProperty( ModelerLexicon.MODEL_TYPE ).getString() );
+                if ( modelType == null ) throw new IllegalStateException( ModelerI18n.modelNotRebuildable.text( modelPath ) );
+                final String folder = absolutePath( ModelerLexicon.TEMP_FOLDER, UUID.randomUUID().toString() );
+                final Model model = generateModel( session, importArtifact( session, url, folder, null ), modelPath, modelType );
+                session.getNode( folder ).remove();
+                session.save();
+                return model;
+            }
+        } );
+    }
+    
+    /**
+     * Regenerates, in the background and in dependency order, the {@link #staleModels() stale models} that were generated from an
+     * external location. The models are regenerated a level at a time, with the models in each level, which depend only upon
+     * models in earlier levels, regenerated concurrently. Models that can't be regenerated are logged and remain stale.
+     * 
+     * @return the future result of the rebuild: the regenerated models in the order they were regenerated; never
+     *         <code>null</code>. The rebuild fails if any of the stale models depend upon each other cyclically.
+     */
+    public Future< List< Model > > rebuildStaleModels() {
+        final ExecutorService executor;
+        synchronized ( this ) {
+            if ( rebuildExecutor == null ) rebuildExecutor = Executors.newSingleThreadExecutor( new ThreadFactory() {
+                
+                @Override
+                public Thread newThread( final Runnable runnable ) {
+                    final Thread thread = new Thread( runnable, "modeler-stale-model-rebuild" );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            executor = rebuildExecutor;
+        }
+        return executor.submit( new Callable< List< Model > >() {
+            
+            @Override
+            public List< Model > call() throws ModelerException {
+                final Set< String > staleModels = staleModels();
+                final DependencyGraph< String > graph = new DependencyGraph<>();
+                for ( final String modelPath : staleModels ) {
+                    graph.add( modelPath );
+                    for ( final String dependency : manager.dependencyIndex.dependencies( modelPath ) )
+                        if ( staleModels.contains( dependency ) ) graph.addDependency( modelPath, dependency );
+                }
+                final List< List< String > > levels = graph.levels();
+                final List< Model > models = new ArrayList<>();
+                if ( staleModels.isEmpty() ) return models;
+                final ExecutorService levelExecutor =
+                    Executors.newFixedThreadPool( Math.min( staleModels.size(), manager.generationThreads ) );
+                try {
+                    for ( final List< String > level : levels ) {
+                        // The models in a level depend only upon models in earlier levels, so can be rebuilt concurrently
+                        final Map< String, Future< Model > > futures = new LinkedHashMap<>();
+                        for ( final String modelPath : level )
+                            futures.put( modelPath, levelExecutor.submit( new Callable< Model >() {
+                                
+                                @Override
+                                public Model call() throws ModelerException {
+                                    return rebuild( modelPath );
+                                }
+                            } ) );
+                        for ( final Entry< String, Future< Model > > future : futures.entrySet() ) {
+                            try {
+                                models.add( future.getValue().get() );
+                            } catch ( final ExecutionException e ) {
+                                if ( e.getCause() instanceof Error ) throw ( Error ) e.getCause();
+                                Logger.getLogger( getClass() ).error( e.getCause(), ModelerI18n.unableToRebuildModel, future.getKey() );
+                            }
+                        }
+                    }
+                    return models;
+                } catch ( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new ModelerException( e );
+                } finally {
+                    levelExecutor.shutdownNow();
+                }
+            }
+        } );
+    }
+    
     /**
      * @param modelNode
      *        the model node whose dependency processing is being requested (cannot be <code>null</code>)
@@ -463,32 +788,56 @@ public final class Modeler implements AutoCloseable {
         CheckArg.isNotNull( modelNode, "modelNode" );
         CheckArg.isNotNull( modelType, "modelType" );
         
-        return manager.run( new Task< String >() {
+        final DependencyProcessor dependencyProcessor = manager.modelTypeManager.dependencyProcessor( modelNode );
+        
+        try {
+            String dependenciesPath = null;
             
-            @Override
-            public String run( final Session session ) throws Exception {
-                final DependencyProcessor dependencyProcessor = manager.modelTypeManager.dependencyProcessor( modelNode );
-                
-                if ( dependencyProcessor == null ) {
-                    Logger.getLogger( getClass() ).debug( "No dependency processor found for model '" + modelNode.getName() + '\'' );
-                    return null;
+            if ( dependencyProcessor == null ) {
+                Logger.getLogger( getClass() ).debug( "No dependency processor found for model '" + modelNode.getName() + '\'' );
+            } else {
+                dependenciesPath = dependencyProcessor.process( modelNode, modelType, this );
+            }
+            
+            // replace whatever dependencies the model had when previously generated
+            final List< String > dependencies = new ArrayList<>();
+            
+            if ( dependenciesPath != null ) {
+                for ( final NodeIterator iter = modelNode.getSession().getNode( dependenciesPath ).getNodes(); iter.hasNext(); ) {
+                    final Node dependencyNode = iter.nextNode();
+                    
+                    if ( dependencyNode.hasProperty( ModelerLexicon.PATH_PROPERTY ) ) {
+                        dependencies.add( dependencyNode.getProperty( ModelerLexicon.PATH_PROPERTY ).getString() );
+                    }
                 }
-                
-                return dependencyProcessor.process( modelNode, modelType, Modeler.this );
             }
-        } );
+            
+            manager.dependencyIndex.update( modelNode.getSession(), modelNode.getPath(), dependencies );
+            return dependenciesPath;
+        } catch ( final RepositoryException e ) {
+            throw new ModelerException( e );
+        }
     }
     
-    private void removeTemporaryArtifact( final String artifactPath ) throws ModelerException {
-        manager.run( new Task< Void >() {
-            
-            @Override
-            public Void run( final Session session ) throws Exception {
-                session.getNode( artifactPath ).remove();
-                session.save();
-                return null;
-            }
-        } );
+    void remove( final Session session,
+                 final String path ) throws Exception {
+        CheckArg.isNotEmpty( path, "path" );
+        final Node node;
+        try {
+            node = session.getNode( absolutePath( path ) );
+        } catch ( final PathNotFoundException e ) {
+            throw new IllegalArgumentException( e );
+        }
+        final String removedPath = node.getPath();
+        final Set< String > dependents = manager.dependencyIndex.transitiveDependents( removedPath );
+        node.remove();
+        manager.dependencyIndex.remove( session, removedPath );
+        markStale( session, dependents );
+    }
+    
+    private void removeTemporaryArtifact( final Session session,
+                                          final String artifactPath ) throws Exception {
+        session.getNode( artifactPath ).remove();
     }
     
     /**
@@ -498,16 +847,152 @@ public final class Modeler implements AutoCloseable {
         return System.getProperty( Manager.REPOSITORY_STORE_PARENT_PATH_PROPERTY );
     }
     
-    private void saveExternalLocation( final String path,
-                                       final String location ) throws ModelerException {
-        manager.run( new Task< Void >() {
+    /**
+     * @return the workspace paths of the models marked as stale because a model upon which they directly or indirectly depend has
+     *         been regenerated or removed since they were generated; never <code>null</code>
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    public Set< String > staleModels() throws ModelerException {
+        return manager.run( new Task< Set< String > >() {
             
             @Override
-            public Void run( final Session session ) throws Exception {
-                session.getNode( path ).setProperty( ModelerLexicon.EXTERNAL_LOCATION, location );
-                session.save();
-                return null;
+            public Set< String > run( final Session session ) throws Exception {
+                final Set< String > modelPaths = new LinkedHashSet<>();
+                final Query query = session.getWorkspace().getQueryManager().createQuery( STALE_MODELS_QUERY, Query.JCR_SQL2 );
+                for ( final NodeIterator iter = query.execute().getNodes(); iter.hasNext(); )
+                    modelPaths.add( iter.nextNode().getPath() );
+                return modelPaths;
             }
         } );
     }
+    
+    private URI uri( final URL url ) throws ModelerException {
+        try {
+            return url.toURI().normalize();
+        } catch ( final URISyntaxException e ) {
+            throw new ModelerException( e );
+        }
+    }
+    
+    private class Transaction implements ModelerTransaction {
+        
+        Session session;
+        
+        Transaction( final Session session ) {
+            this.session = session;
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.modeler.ModelerTransaction#generateModel(java.lang.String, java.lang.String,
+         *      org.modeshape.modeler.ModelType)
+         */
+        @Override
+        public Model generateModel( final String artifactPath,
+                                    final String modelPath,
+                                    final ModelType modelType ) throws ModelerException {
+            try {
+                return Modeler.this.generateModel( session(), artifactPath, modelPath, modelType );
+            } catch ( final RuntimeException | ModelerException e ) {
+                throw e;
+            } catch ( final Exception e ) {
+                throw new ModelerException( e );
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.modeler.ModelerTransaction#generateModel(java.net.URL, java.lang.String, java.lang.String,
+         *      org.modeshape.modeler.ModelType)
+         */
+        @Override
+        public Model generateModel( final URL artifactUrl,
+                                    final String modelFolder,
+                                    final String modelName,
+                                    final ModelType modelType ) throws ModelerException {
+            try {
+                return Modeler.this.generateModel( session(), artifactUrl, modelFolder, modelName, modelType );
+            } catch ( final RuntimeException | ModelerException e ) {
+                throw e;
+            } catch ( final Exception e ) {
+                throw new ModelerException( e );
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.modeler.ModelerTransaction#importArtifact(java.io.InputStream, java.lang.String)
+         */
+        @Override
+        public String importArtifact( final InputStream stream,
+                                      final String workspacePath ) throws ModelerException {
+            try {
+                return Modeler.this.importArtifact( session(), stream, workspacePath );
+            } catch ( final RuntimeException | ModelerException e ) {
+                throw e;
+            } catch ( final Exception e ) {
+                throw new ModelerException( e );
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.modeler.ModelerTransaction#importArtifact(java.net.URL, java.lang.String, java.lang.String)
+         */
+        @Override
+        public String importArtifact( final URL url,
+                                      final String workspaceFolder,
+                                      final String workspaceName ) throws ModelerException {
+            try {
+                return Modeler.this.importArtifact( session(), url, workspaceFolder, workspaceName );
+            } catch ( final RuntimeException | ModelerException e ) {
+                throw e;
+            } catch ( final Exception e ) {
+                throw new ModelerException( e );
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.modeler.ModelerTransaction#importFile(java.io.File, java.lang.String, java.lang.String)
+         */
+        @Override
+        public String importFile( final File file,
+                                  final String workspaceFolder,
+                                  final String workspaceName ) throws ModelerException {
+            CheckArg.isNotNull( file, "file" );
+            try {
+                return importArtifact( file.toURI().toURL(), workspaceFolder, workspaceName );
+            } catch ( final MalformedURLException e ) {
+                throw new ModelerException( e );
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see org.modeshape.modeler.ModelerTransaction#remove(java.lang.String)
+         */
+        @Override
+        public void remove( final String path ) throws ModelerException {
+            try {
+                Modeler.this.remove( session(), path );
+            } catch ( final RuntimeException | ModelerException e ) {
+                throw e;
+            } catch ( final Exception e ) {
+                throw new ModelerException( e );
+            }
+        }
+        
+        private Session session() {
+            if ( session == null ) throw new IllegalStateException( ModelerI18n.transactionNotActive.text() );
+            return session;
+        }
+    }
 }
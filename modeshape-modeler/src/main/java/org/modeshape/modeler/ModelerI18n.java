@@ -31,13 +31,21 @@ import org.polyglotter.common.I18n;
 @SuppressWarnings( "javadoc" )
 public final class ModelerI18n {
     
+    public static final I18n dependencyCycle = new I18n( "Artifacts depend upon each other cyclically: %s" );
+    public static final I18n duplicateArtifactName = new I18n( "More than one artifact is named '%s'" );
+    public static final I18n incompatiblePropertyValue = new I18n( "Unable to convert %s value of property '%s' to %s" );
     public static final I18n modelerStarted = new I18n( "ModeShape Modeler started" );
     public static final I18n modelerStopped = new I18n( "ModeShape Modeler stopped" );
+    public static final I18n modelNotRebuildable = new I18n( "Model '%s' has no known external location or installed model type" );
     public static final I18n mustBeModelNode = new I18n( "Node '%s' is not a model node" );
+    public static final I18n propertyHasMultipleValues = new I18n( "Property '%s' has multiple values" );
     public static final I18n sessionNotSavedWhenCreatingModel = new I18n( "The session was not saved when creating model for '%s'" );
     public static final I18n unableToDetermineDefaultModelType = new I18n( "Unable to determine default model type for file %s" );
     public static final I18n unableToFindModelTypeCategory =
         new I18n( "Unable to find model type category \"%s\" in registered model type repositories" );
+    public static final I18n unableToPruneLibraryFolder = new I18n( "Unable to prune stale library folder %s: %s" );
+    public static final I18n unableToRebuildModel = new I18n( "Unable to rebuild stale model '%s'" );
+    public static final I18n transactionNotActive = new I18n( "The transaction is no longer active" );
     public static final I18n urlNotFound = new I18n( "URL not found: %s" );
     public static final I18n notModelPath = new I18n( "Not a path to a model: %s" );
 }
@@ -0,0 +1,146 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * A unit of work within which any number of artifacts may be imported, models generated, and workspace nodes removed, all of which
+ * are committed together when the unit of work {@link Modeler#batch(Work) completes}. If the unit of work fails, none of its
+ * changes are committed.
+ * <p>
+ * A transaction is only valid during the call to {@link Work#run(ModelerTransaction)} it is passed to.
+ */
+public interface ModelerTransaction {
+    
+    /**
+     * @param artifactPath
+     *        the workspace path to an artifact, possibly imported earlier within this transaction; must not be empty.
+     * @param modelPath
+     *        the path where the model should be created
+     * @param modelType
+     *        the type of model to be created for the supplied artifact; may be <code>null</code>.
+     * @return a new model of the supplied type; never <code>null</code>
+     * @throws ModelerException
+     *         if any problem occurs
+     * @see Modeler#generateModel(String, String, ModelType)
+     */
+    Model generateModel( final String artifactPath,
+                         final String modelPath,
+                         final ModelType modelType ) throws ModelerException;
+    
+    /**
+     * @param artifactUrl
+     *        the URL of an artifact; must not be <code>null</code>.
+     * @param modelFolder
+     *        the parent path where the model should be created
+     * @param modelName
+     *        the name of the model. If <code>null</code> or empty, the name of the supplied file will be used.
+     * @param modelType
+     *        the type of model to be created for the supplied artifact; may be <code>null</code>.
+     * @return a new model of the supplied type; never <code>null</code>
+     * @throws ModelerException
+     *         if any problem occurs
+     * @see Modeler#generateModel(URL, String, String, ModelType)
+     */
+    Model generateModel( final URL artifactUrl,
+                         final String modelFolder,
+                         final String modelName,
+                         final ModelType modelType ) throws ModelerException;
+    
+    /**
+     * @param stream
+     *        the artifact's content to be imported. Must not be <code>null</code>.
+     * @param workspacePath
+     *        the path where the artifact should be imported
+     * @return the workspace path the to imported artifact
+     * @throws ModelerException
+     *         if any problem occurs
+     * @see Modeler#importArtifact(InputStream, String)
+     */
+    String importArtifact( final InputStream stream,
+                           final String workspacePath ) throws ModelerException;
+    
+    /**
+     * @param url
+     *        the name of the artifact as it should be stored in the workspace. Must not be empty.
+     * @param workspaceFolder
+     *        the parent path where the artifact should be imported
+     * @param workspaceName
+     *        the name of the artifact in the workspace. If <code>null</code> or empty, the last segment of the supplied URL will be
+     *        used.
+     * @return the workspace path the to imported artifact
+     * @throws ModelerException
+     *         if any problem occurs
+     * @see Modeler#importArtifact(URL, String, String)
+     */
+    String importArtifact( final URL url,
+                           final String workspaceFolder,
+                           final String workspaceName ) throws ModelerException;
+    
+    /**
+     * @param file
+     *        the file to be imported. Must not be <code>null</code>.
+     * @param workspaceFolder
+     *        the parent path where the file should be imported
+     * @param workspaceName
+     *        the name of the file in the workspace. If <code>null</code> or empty, the name of the supplied file will be used.
+     * @return the workspace path the to imported artifact
+     * @throws ModelerException
+     *         if any problem occurs
+     * @see Modeler#importFile(File, String, String)
+     */
+    String importFile( final File file,
+                       final String workspaceFolder,
+                       final String workspaceName ) throws ModelerException;
+    
+    /**
+     * @param path
+     *        the workspace path of an artifact, model, or any other node to be removed, along with everything beneath it; must not
+     *        be empty.
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    void remove( final String path ) throws ModelerException;
+    
+    /**
+     * A unit of work to be {@link Modeler#batch(Work) run} within a single transaction.
+     * 
+     * @param <T>
+     *        the unit of work's return value
+     */
+    interface Work< T > {
+        
+        /**
+         * @param transaction
+         *        the transaction within which all of this unit of work's changes are to be made
+         * @return the unit of work's return value
+         * @throws Exception
+         *         if any problem occurs, in which case none of the unit of work's changes are committed
+         */
+        T run( ModelerTransaction transaction ) throws Exception;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler;
+
+import org.modeshape.common.util.CheckArg;
+
+/**
+ * Options controlling how a model is {@link Model#walk(ModelVisitor, TraversalOptions) walked}.
+ */
+public final class TraversalOptions {
+    
+    /**
+     * The order in which model objects are visited
+     */
+    public enum Order {
+        
+        /**
+         * Visits each model object's descendants before its next sibling. Memory use is proportional to the depth of the model.
+         */
+        DEPTH_FIRST,
+        
+        /**
+         * Visits all model objects at one depth before any at the next. Memory use is proportional to the width of the model.
+         */
+        BREADTH_FIRST
+    }
+    
+    /**
+     * A depth-first walk of all model objects without prefetching properties
+     */
+    public static final TraversalOptions DEFAULT = new TraversalOptions( Order.DEPTH_FIRST, -1, false );
+    
+    private final Order order;
+    private final int maxDepth;
+    private final boolean prefetchProperties;
+    
+    /**
+     * @param order
+     *        the order in which model objects are visited; must not be <code>null</code>.
+     * @param maxDepth
+     *        the depth beyond which model objects are not visited, or a negative number to visit model objects at any depth
+     * @param prefetchProperties
+     *        <code>true</code> if each model object's properties should be loaded before it is visited
+     */
+    public TraversalOptions( final Order order,
+                             final int maxDepth,
+                             final boolean prefetchProperties ) {
+        CheckArg.isNotNull( order, "order" );
+        this.order = order;
+        this.maxDepth = maxDepth;
+        this.prefetchProperties = prefetchProperties;
+    }
+    
+    /**
+     * @return the depth beyond which model objects are not visited, or a negative number if model objects are visited at any depth
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+    
+    /**
+     * @return the order in which model objects are visited; never <code>null</code>.
+     */
+    public Order order() {
+        return order;
+    }
+    
+    /**
+     * @return <code>true</code> if each model object's properties are loaded, within the walk's session, before it is visited. The
+     *         visited model objects are then {@link ModelObjectSnapshot snapshots} of depth zero.
+     */
+    public boolean prefetchProperties() {
+        return prefetchProperties;
+    }
+}
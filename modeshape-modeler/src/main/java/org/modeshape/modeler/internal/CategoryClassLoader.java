@@ -0,0 +1,319 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.polyglotter.common.Logger;
+
+/**
+ * A parallel-capable class loader for the jars of a single model type category. An index from every entry name to the first jar
+ * containing it is built when the loader is created, so classes and resources not contained in the category's jars are rejected
+ * without searching any jar, and those that are found are read directly from the right jar. Classes and resources missing from
+ * the category's jars are looked up in the other installed categories that contain their package, allowing, for instance, a
+ * sequencer in one category to extend a sequencer in another. {@link #close() Closing} the loader releases its jars, after which
+ * the category's classes can be garbage collected once no longer referenced.
+ */
+final class CategoryClassLoader extends ClassLoader implements Closeable {
+    
+    private static final Logger LOGGER = Logger.getLogger( CategoryClassLoader.class );
+    
+    static {
+        registerAsParallelCapable();
+    }
+    
+    private final ModelTypeManagerImpl modelTypeManager;
+    final String category;
+    private final Map< Path, JarFile > jarFilesByPath = new LinkedHashMap<>();
+    private final Map< Path, ProtectionDomain > domainsByPath = new HashMap<>();
+    private final Map< String, Path > jarPathsByEntryName = new HashMap<>();
+    private volatile boolean closed;
+    
+    /**
+     * @param entryName
+     *        the name of a jar entry
+     * @return the name of the package containing the supplied entry
+     */
+    static String packageName( final String entryName ) {
+        final int ndx = entryName.lastIndexOf( '/' );
+        return ndx < 0 ? "" : entryName.substring( 0, ndx ).replace( '/', '.' );
+    }
+    
+    /**
+     * @param jarPath
+     *        the path to a jar
+     * @return the names of the packages containing classes in the supplied jar
+     * @throws IOException
+     *         if the jar cannot be read
+     */
+    static Set< String > packages( final Path jarPath ) throws IOException {
+        final Set< String > packages = new HashSet<>();
+        try ( JarFile jarFile = new JarFile( jarPath.toFile() ) ) {
+            for ( final Enumeration< JarEntry > iter = jarFile.entries(); iter.hasMoreElements(); ) {
+                final String name = iter.nextElement().getName();
+                if ( name.endsWith( ".class" ) ) packages.add( packageName( name ) );
+            }
+        }
+        return packages;
+    }
+    
+    /**
+     * @param modelTypeManager
+     *        the model type manager used to find classes and resources in other categories
+     * @param category
+     *        the category whose jars are to be loaded
+     * @param jarPaths
+     *        the paths to the category's jars, in the order they should be searched
+     * @throws IOException
+     *         if any of the jars cannot be read
+     */
+    CategoryClassLoader( final ModelTypeManagerImpl modelTypeManager,
+                         final String category,
+                         final Collection< Path > jarPaths ) throws IOException {
+        super( CategoryClassLoader.class.getClassLoader() );
+        this.modelTypeManager = modelTypeManager;
+        this.category = category;
+        try {
+            for ( final Path jarPath : jarPaths ) {
+                if ( jarFilesByPath.containsKey( jarPath ) ) continue;
+                final JarFile jarFile = new JarFile( jarPath.toFile() );
+                jarFilesByPath.put( jarPath, jarFile );
+                domainsByPath.put( jarPath, new ProtectionDomain( new CodeSource( jarPath.toUri().toURL(), ( CodeSigner[] ) null ),
+                                                                  null,
+                                                                  this,
+                                                                  null ) );
+                for ( final Enumeration< JarEntry > iter = jarFile.entries(); iter.hasMoreElements(); ) {
+                    final JarEntry entry = iter.nextElement();
+                    if ( !entry.isDirectory() && !jarPathsByEntryName.containsKey( entry.getName() ) )
+                        jarPathsByEntryName.put( entry.getName(), jarPath );
+                }
+            }
+        } catch ( final IOException e ) {
+            close();
+            throw e;
+        }
+        LOGGER.debug( "Indexed %s entries in %s jars for category %s", jarPathsByEntryName.size(), jarFilesByPath.size(), category );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for ( final JarFile jarFile : jarFilesByPath.values() )
+            try {
+                jarFile.close();
+            } catch ( final IOException e ) {
+                LOGGER.debug( e, "Unable to close jar: %s", jarFile.getName() );
+            }
+    }
+    
+    /**
+     * @param entryName
+     *        the name of a class or resource entry
+     * @return <code>true</code> if one of this class loader's jars contains the supplied entry
+     */
+    boolean contains( final String entryName ) {
+        return jarPathsByEntryName.containsKey( entryName );
+    }
+    
+    private void definePackage( final String className,
+                                final JarFile jarFile ) throws IOException {
+        final int ndx = className.lastIndexOf( '.' );
+        if ( ndx < 0 ) return;
+        final String pkg = className.substring( 0, ndx );
+        if ( getPackage( pkg ) != null ) return;
+        final Manifest manifest = jarFile.getManifest();
+        final Attributes attrs = manifest == null ? new Attributes() : manifest.getMainAttributes();
+        try {
+            definePackage( pkg,
+                           attrs.getValue( Attributes.Name.SPECIFICATION_TITLE ),
+                           attrs.getValue( Attributes.Name.SPECIFICATION_VERSION ),
+                           attrs.getValue( Attributes.Name.SPECIFICATION_VENDOR ),
+                           attrs.getValue( Attributes.Name.IMPLEMENTATION_TITLE ),
+                           attrs.getValue( Attributes.Name.IMPLEMENTATION_VERSION ),
+                           attrs.getValue( Attributes.Name.IMPLEMENTATION_VENDOR ),
+                           null );
+        } catch ( final IllegalArgumentException ignored ) {
+            // Package was defined concurrently by another thread
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.ClassLoader#findClass(java.lang.String)
+     */
+    @Override
+    protected Class< ? > findClass( final String name ) throws ClassNotFoundException {
+        final Class< ? > localClass = findLocalClass( name );
+        return localClass == null ? modelTypeManager.dependencyClass( category, name ) : localClass;
+    }
+    
+    private Class< ? > findLocalClass( final String name ) throws ClassNotFoundException {
+        final String entryName = name.replace( '.', '/' ) + ".class";
+        final Path jarPath = jarPathsByEntryName.get( entryName );
+        if ( jarPath == null ) return null;
+        if ( closed ) throw new ClassNotFoundException( name );
+        final JarFile jarFile = jarFilesByPath.get( jarPath );
+        try {
+            final JarEntry entry = jarFile.getJarEntry( entryName );
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream( entry.getSize() > 0 ? ( int ) entry.getSize() : 8192 );
+            try ( InputStream stream = jarFile.getInputStream( entry ) ) {
+                final byte[] buf = new byte[ 8192 ];
+                for ( int len = stream.read( buf ); len >= 0; len = stream.read( buf ) )
+                    bytes.write( buf, 0, len );
+            }
+            definePackage( name, jarFile );
+            return defineClass( name, bytes.toByteArray(), 0, bytes.size(), domainsByPath.get( jarPath ) );
+        } catch ( final IOException | IllegalStateException e ) {
+            // An IllegalStateException is thrown if the jar was closed concurrently
+            throw new ClassNotFoundException( name, e );
+        }
+    }
+    
+    /**
+     * @param name
+     *        the name of a resource
+     * @return the URL to the supplied resource within this class loader's jars, or <code>null</code> if not found there
+     */
+    URL findLocalResource( final String name ) {
+        final Path jarPath = jarPathsByEntryName.get( name );
+        return jarPath == null || closed ? null : url( jarPath, name );
+    }
+    
+    /**
+     * @param name
+     *        the name of a resource
+     * @return the URLs to the supplied resource within each of this class loader's jars that contains it; never
+     *         <code>null</code>
+     */
+    List< URL > findLocalResources( final String name ) {
+        final List< URL > urls = new ArrayList<>();
+        if ( !jarPathsByEntryName.containsKey( name ) || closed ) return urls;
+        for ( final Entry< Path, JarFile > entry : jarFilesByPath.entrySet() )
+            if ( entry.getValue().getEntry( name ) != null ) {
+                final URL url = url( entry.getKey(), name );
+                if ( url != null ) urls.add( url );
+            }
+        return urls;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.ClassLoader#findResource(java.lang.String)
+     */
+    @Override
+    protected URL findResource( final String name ) {
+        final URL url = findLocalResource( name );
+        return url == null ? modelTypeManager.dependencyResource( category, name ) : url;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.ClassLoader#findResources(java.lang.String)
+     */
+    @Override
+    protected Enumeration< URL > findResources( final String name ) {
+        // Fall back to the categories this one depends upon the same way findResource does
+        final List< URL > urls = findLocalResources( name );
+        urls.addAll( modelTypeManager.dependencyResources( category, name ) );
+        return Collections.enumeration( urls );
+    }
+    
+    /**
+     * @return the paths to the jars loaded by this class loader, in search order
+     */
+    Collection< Path > jarPaths() {
+        return Collections.unmodifiableCollection( jarFilesByPath.keySet() );
+    }
+    
+    /**
+     * Loads the supplied class from this class loader's own jars, without delegating to other categories. Used by the class
+     * loaders of categories depending upon this one.
+     * 
+     * @param name
+     *        the name of a class
+     * @return the class
+     * @throws ClassNotFoundException
+     *         if the class is not in this class loader's jars
+     */
+    Class< ? > loadLocalClass( final String name ) throws ClassNotFoundException {
+        synchronized ( getClassLoadingLock( name ) ) {
+            Class< ? > localClass = findLoadedClass( name );
+            if ( localClass == null ) localClass = findLocalClass( name );
+            if ( localClass == null ) throw new ClassNotFoundException( name );
+            return localClass;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '[' + category + ']';
+    }
+    
+    private URL url( final Path jarPath,
+                     final String name ) {
+        try {
+            return new URL( "jar:" + jarPath.toUri() + "!/" + name );
+        } catch ( final MalformedURLException e ) {
+            LOGGER.debug( e, "Unable to create URL for %s in jar: %s", name, jarPath );
+            return null;
+        }
+    }
+}
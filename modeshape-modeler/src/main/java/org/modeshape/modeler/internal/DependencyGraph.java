@@ -0,0 +1,134 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.modeler.ModelerException;
+import org.modeshape.modeler.ModelerI18n;
+
+/**
+ * A directed graph of dependencies between items, which can be ordered into levels such that every item's dependencies are in
+ * earlier levels. Not thread-safe.
+ * 
+ * @param <T>
+ *        the type of item
+ */
+public final class DependencyGraph< T > {
+    
+    private final Map< T, Set< T > > dependenciesByItem = new LinkedHashMap<>();
+    private final Map< T, Set< T > > dependentsByItem = new HashMap<>();
+    
+    /**
+     * @param item
+     *        an item to include in the graph, even if it has no dependencies or dependents; must not be <code>null</code>.
+     */
+    public void add( final T item ) {
+        CheckArg.isNotNull( item, "item" );
+        if ( !dependenciesByItem.containsKey( item ) ) {
+            dependenciesByItem.put( item, new LinkedHashSet< T >() );
+            dependentsByItem.put( item, new LinkedHashSet< T >() );
+        }
+    }
+    
+    /**
+     * @param dependent
+     *        the item that depends upon the supplied dependency; must not be <code>null</code>.
+     * @param dependency
+     *        the item upon which the supplied dependent depends; must not be <code>null</code>.
+     */
+    public void addDependency( final T dependent,
+                               final T dependency ) {
+        add( dependent );
+        add( dependency );
+        dependenciesByItem.get( dependent ).add( dependency );
+        dependentsByItem.get( dependency ).add( dependent );
+    }
+    
+    private List< T > cycle( final Set< T > unorderedItems ) {
+        // Every unordered item has at least one unordered dependency, so following them must eventually revisit an item
+        final List< T > path = new ArrayList<>();
+        T item = unorderedItems.iterator().next();
+        while ( !path.contains( item ) ) {
+            path.add( item );
+            for ( final T dependency : dependenciesByItem.get( item ) ) {
+                if ( unorderedItems.contains( dependency ) ) {
+                    item = dependency;
+                    break;
+                }
+            }
+        }
+        final List< T > cycle = new ArrayList<>( path.subList( path.indexOf( item ), path.size() ) );
+        cycle.add( item );
+        return cycle;
+    }
+    
+    /**
+     * @return the items in this graph, grouped into levels such that the items in each level depend only upon items in earlier
+     *         levels, and so may be processed concurrently once those earlier levels are complete; never <code>null</code>.
+     * @throws ModelerException
+     *         if any items depend upon each other cyclically
+     */
+    public List< List< T > > levels() throws ModelerException {
+        final Map< T, Integer > unorderedDependencyCounts = new HashMap<>();
+        List< T > level = new ArrayList<>();
+        for ( final Entry< T, Set< T > > entry : dependenciesByItem.entrySet() ) {
+            if ( entry.getValue().isEmpty() ) level.add( entry.getKey() );
+            else unorderedDependencyCounts.put( entry.getKey(), entry.getValue().size() );
+        }
+        final List< List< T > > levels = new ArrayList<>();
+        while ( !level.isEmpty() ) {
+            levels.add( Collections.unmodifiableList( level ) );
+            final List< T > nextLevel = new ArrayList<>();
+            for ( final T item : level ) {
+                for ( final T dependent : dependentsByItem.get( item ) ) {
+                    final int count = unorderedDependencyCounts.get( dependent ) - 1;
+                    if ( count == 0 ) {
+                        unorderedDependencyCounts.remove( dependent );
+                        nextLevel.add( dependent );
+                    } else unorderedDependencyCounts.put( dependent, count );
+                }
+            }
+            level = nextLevel;
+        }
+        if ( !unorderedDependencyCounts.isEmpty() ) {
+            final StringBuilder cycle = new StringBuilder();
+            for ( final T item : cycle( unorderedDependencyCounts.keySet() ) ) {
+                if ( cycle.length() > 0 ) cycle.append( " -> " );
+                cycle.append( item );
+            }
+            throw new ModelerException( ModelerI18n.dependencyCycle, cycle.toString() );
+        }
+        return Collections.unmodifiableList( levels );
+    }
+}
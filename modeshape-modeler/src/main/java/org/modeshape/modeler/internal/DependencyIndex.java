@@ -0,0 +1,407 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+
+import org.modeshape.modeler.ModelerException;
+import org.polyglotter.common.Logger;
+
+/**
+ * An in-memory index of the dependencies recorded by the models in the default workspace, maintained incrementally as models'
+ * dependencies are processed and as models are removed, in both directions: from each model to the paths it depends upon, and
+ * from each path to the models that depend upon it. The index is loaded from the workspace the first time it's used. The
+ * transitive closures of models' dependencies are memoized until any model within them has its dependencies replaced or is
+ * removed. Changes made on behalf of a session are held until the session's work is {@link #commit(Session) committed}, so the
+ * index never describes changes that don't reach the workspace.
+ */
+public final class DependencyIndex {
+    
+    private static final Logger LOGGER = Logger.getLogger( DependencyIndex.class );
+    
+    private static final String DEPENDENCIES_QUERY = "SELECT [jcr:path] FROM [" + ModelerLexicon.DEPENDENCY_NODE + "]";
+    
+    private static SortedMap< String, Set< String > > descendants( final TreeMap< String, Set< String > > pathsByPath,
+                                                                  final String path ) {
+        final String folder = path.endsWith( "/" ) ? path : path + '/';
+        // Every path below the folder sorts after the folder and before the folder's path followed by the next character
+        return pathsByPath.subMap( folder, folder.substring( 0, folder.length() - 1 ) + '0' );
+    }
+    
+    private final Manager manager;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Sorted so that the paths within a folder can be found without scanning every path
+    private final TreeMap< String, Set< String > > dependenciesByModel = new TreeMap<>();
+    private final TreeMap< String, Set< String > > dependentsByPath = new TreeMap<>();
+    private final ConcurrentMap< String, Set< String > > closuresByModel = new ConcurrentHashMap<>();
+    private final ConcurrentMap< Session, List< PendingChange > > pendingChangesBySession = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    
+    DependencyIndex( final Manager manager ) {
+        this.manager = manager;
+    }
+    
+    /**
+     * @param modelPath
+     *        the workspace path of a model; must not be <code>null</code>.
+     * @return the workspace paths upon which the model at the supplied path directly or indirectly depends, including the model's
+     *         own path if it depends upon itself through a cycle of dependencies; never <code>null</code>
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    public Set< String > closure( final String modelPath ) throws ModelerException {
+        load();
+        Set< String > closure = closuresByModel.get( modelPath );
+        if ( closure != null ) return closure;
+        // Closures are cached under the read lock so that none can be cached after being invalidated by a concurrent update
+        lock.readLock().lock();
+        try {
+            closure = closuresByModel.get( modelPath );
+            if ( closure != null ) return closure;
+            final Set< String > paths = new LinkedHashSet<>();
+            final Deque< String > unvisitedPaths = new ArrayDeque<>();
+            unvisitedPaths.add( modelPath );
+            for ( String path = unvisitedPaths.poll(); path != null; path = unvisitedPaths.poll() ) {
+                final Set< String > dependencies = dependenciesByModel.get( path );
+                if ( dependencies == null ) continue;
+                // Already visited paths are skipped, so cycles end the walk rather than repeating it
+                for ( final String dependency : dependencies )
+                    if ( paths.add( dependency ) ) unvisitedPaths.add( dependency );
+            }
+            if ( paths.contains( modelPath ) ) LOGGER.debug( "Model '%s' depends upon itself through a cycle of dependencies", modelPath );
+            closure = Collections.unmodifiableSet( paths );
+            closuresByModel.put( modelPath, closure );
+            return closure;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Applies the changes made on behalf of the supplied session, whose work has just been saved.
+     * 
+     * @param session
+     *        a session; must not be <code>null</code>.
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    void commit( final Session session ) throws ModelerException {
+        final List< PendingChange > changes = pendingChangesBySession.remove( session );
+        if ( changes == null ) return;
+        load();
+        lock.writeLock().lock();
+        try {
+            for ( final PendingChange change : changes ) {
+                if ( change.dependencies == null ) unindex( change.path );
+                else index( change.path, change.dependencies );
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * @param modelPath
+     *        the workspace path of a model; must not be <code>null</code>.
+     * @return the workspace paths upon which the model at the supplied path directly depends; never <code>null</code>
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    public Set< String > dependencies( final String modelPath ) throws ModelerException {
+        return paths( dependenciesByModel, modelPath );
+    }
+    
+    /**
+     * @param path
+     *        a workspace path; must not be <code>null</code>.
+     * @return the workspace paths of the models that directly depend upon the supplied path; never <code>null</code>
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    public Set< String > dependents( final String path ) throws ModelerException {
+        return paths( dependentsByPath, path );
+    }
+    
+    /**
+     * Discards any changes made on behalf of the supplied session, whose work has failed or was never saved.
+     * 
+     * @param session
+     *        a session; must not be <code>null</code>.
+     */
+    void discard( final Session session ) {
+        pendingChangesBySession.remove( session );
+    }
+    
+    private void index( final String modelPath,
+                        final Collection< String > dependencies ) {
+        invalidateClosures( modelPath );
+        final Set< String > oldDependencies = dependenciesByModel.remove( modelPath );
+        if ( oldDependencies != null ) unindexDependents( modelPath, oldDependencies );
+        if ( dependencies.isEmpty() ) return;
+        dependenciesByModel.put( modelPath, new HashSet<>( dependencies ) );
+        for ( final String dependency : dependencies ) {
+            Set< String > dependents = dependentsByPath.get( dependency );
+            if ( dependents == null ) {
+                dependents = new HashSet<>();
+                dependentsByPath.put( dependency, dependents );
+            }
+            dependents.add( modelPath );
+        }
+    }
+    
+    private void invalidateClosures( final String modelPath ) {
+        if ( closuresByModel.isEmpty() ) return;
+        // The closures containing the model are exactly those of the models that directly or indirectly depend upon it
+        final Set< String > visitedPaths = new HashSet<>();
+        final Deque< String > unvisitedPaths = new ArrayDeque<>();
+        unvisitedPaths.add( modelPath );
+        for ( String path = unvisitedPaths.poll(); path != null; path = unvisitedPaths.poll() ) {
+            closuresByModel.remove( path );
+            final Set< String > dependents = dependentsByPath.get( path );
+            if ( dependents == null ) continue;
+            for ( final String dependent : dependents )
+                if ( visitedPaths.add( dependent ) ) unvisitedPaths.add( dependent );
+        }
+    }
+    
+    private void load() throws ModelerException {
+        if ( loaded ) return;
+        lock.writeLock().lock();
+        try {
+            if ( loaded ) return;
+            final Map< String, Set< String > > dependenciesByModel = manager.run( new Task< Map< String, Set< String > > >() {
+                
+                @Override
+                public Map< String, Set< String > > run( final Session session ) throws Exception {
+                    final Map< String, Set< String > > dependenciesByModel = new HashMap<>();
+                    final Query query = session.getWorkspace().getQueryManager().createQuery( DEPENDENCIES_QUERY, Query.JCR_SQL2 );
+                    for ( final NodeIterator iter = query.execute().getNodes(); iter.hasNext(); ) {
+                        final Node dependencyNode = iter.nextNode();
+                        if ( !dependencyNode.hasProperty( ModelerLexicon.PATH_PROPERTY ) ) continue;
+                        // Dependency nodes are always within a model's dependencies node
+                        final String modelPath = dependencyNode.getParent().getParent().getPath();
+                        Set< String > dependencies = dependenciesByModel.get( modelPath );
+                        if ( dependencies == null ) {
+                            dependencies = new HashSet<>();
+                            dependenciesByModel.put( modelPath, dependencies );
+                        }
+                        dependencies.add( dependencyNode.getProperty( ModelerLexicon.PATH_PROPERTY ).getString() );
+                    }
+                    return dependenciesByModel;
+                }
+            } );
+            for ( final Entry< String, Set< String > > entry : dependenciesByModel.entrySet() )
+                index( entry.getKey(), entry.getValue() );
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private List< PendingChange > pending( final Session session ) {
+        List< PendingChange > changes = pendingChangesBySession.get( session );
+        if ( changes == null ) {
+            // A session is only used by one thread at a time
+            changes = new ArrayList<>();
+            pendingChangesBySession.put( session, changes );
+        }
+        return changes;
+    }
+    
+    private Set< String > paths( final Map< String, Set< String > > pathsByPath,
+                                 final String path ) throws ModelerException {
+        load();
+        lock.readLock().lock();
+        try {
+            final Set< String > paths = pathsByPath.get( path );
+            return paths == null ? Collections.< String >emptySet() : Collections.unmodifiableSet( new HashSet<>( paths ) );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Immediately removes the dependencies of the models at or below the supplied path, which are being removed from the
+     * workspace, without waiting for any session's work to be committed. The dependents of those models remain indexed, since
+     * they still depend upon the removed paths.
+     * 
+     * @param path
+     *        the workspace path of a removed node; must not be <code>null</code>.
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    void remove( final String path ) throws ModelerException {
+        load();
+        lock.writeLock().lock();
+        try {
+            unindex( path );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Removes the dependencies of the models at or below the supplied path once the supplied session's work is
+     * {@link #commit(Session) committed}.
+     * 
+     * @param session
+     *        the session removing the node; must not be <code>null</code>.
+     * @param path
+     *        the workspace path of a removed node; must not be <code>null</code>.
+     * @see #remove(String)
+     */
+    public void remove( final Session session,
+                        final String path ) {
+        pending( session ).add( new PendingChange( path, null ) );
+    }
+    
+    /**
+     * @param path
+     *        a workspace path; must not be <code>null</code>.
+     * @return the workspace paths of the models that directly or indirectly depend upon the supplied path, or any path below it,
+     *         other than the models at or below the supplied path themselves; never <code>null</code>
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    public Set< String > transitiveDependents( final String path ) throws ModelerException {
+        load();
+        lock.readLock().lock();
+        try {
+            final Set< String > dependents = new LinkedHashSet<>();
+            final Deque< String > unvisitedPaths = new ArrayDeque<>();
+            unvisitedPaths.add( path );
+            unvisitedPaths.addAll( descendants( dependentsByPath, path ).keySet() );
+            for ( String unvisitedPath = unvisitedPaths.poll(); unvisitedPath != null; unvisitedPath = unvisitedPaths.poll() ) {
+                final Set< String > directDependents = dependentsByPath.get( unvisitedPath );
+                if ( directDependents == null ) continue;
+                for ( final String dependent : directDependents )
+                    if ( dependents.add( dependent ) ) unvisitedPaths.add( dependent );
+            }
+            final String folder = path.endsWith( "/" ) ? path : path + '/';
+            for ( final Iterator< String > iter = dependents.iterator(); iter.hasNext(); ) {
+                final String dependent = iter.next();
+                if ( dependent.equals( path ) || dependent.startsWith( folder ) ) iter.remove();
+            }
+            return dependents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void unindex( final String path ) {
+        invalidateClosures( path );
+        final Set< String > oldDependencies = dependenciesByModel.remove( path );
+        if ( oldDependencies != null ) unindexDependents( path, oldDependencies );
+        for ( final Iterator< Entry< String, Set< String > > > iter = descendants( dependenciesByModel, path ).entrySet().iterator(); iter.hasNext(); ) {
+            final Entry< String, Set< String > > entry = iter.next();
+            invalidateClosures( entry.getKey() );
+            iter.remove();
+            unindexDependents( entry.getKey(), entry.getValue() );
+        }
+    }
+    
+    private void unindexDependents( final String modelPath,
+                                    final Set< String > dependencies ) {
+        for ( final String dependency : dependencies ) {
+            final Set< String > dependents = dependentsByPath.get( dependency );
+            if ( dependents != null && dependents.remove( modelPath ) && dependents.isEmpty() ) dependentsByPath.remove( dependency );
+        }
+    }
+    
+    /**
+     * Immediately replaces the indexed dependencies of the model at the supplied path, whose dependencies have just been
+     * processed, without waiting for any session's work to be committed.
+     * 
+     * @param modelPath
+     *        the workspace path of a model; must not be <code>null</code>.
+     * @param dependencies
+     *        the workspace paths upon which the model now depends; must not be <code>null</code>.
+     * @throws ModelerException
+     *         if the index can't be loaded
+     */
+    void update( final String modelPath,
+                 final Collection< String > dependencies ) throws ModelerException {
+        load();
+        lock.writeLock().lock();
+        try {
+            index( modelPath, dependencies );
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Replaces the indexed dependencies of the model at the supplied path once the supplied session's work is
+     * {@link #commit(Session) committed}.
+     * 
+     * @param session
+     *        the session that processed the model's dependencies; must not be <code>null</code>.
+     * @param modelPath
+     *        the workspace path of a model; must not be <code>null</code>.
+     * @param dependencies
+     *        the workspace paths upon which the model now depends; must not be <code>null</code>.
+     * @see #update(String, Collection)
+     */
+    public void update( final Session session,
+                        final String modelPath,
+                        final Collection< String > dependencies ) {
+        pending( session ).add( new PendingChange( modelPath, new ArrayList<>( dependencies ) ) );
+    }
+    
+    private static final class PendingChange {
+        
+        final String path;
+        // null if the node at the path was removed
+        final Collection< String > dependencies;
+        
+        PendingChange( final String path,
+                       final Collection< String > dependencies ) {
+            this.path = path;
+            this.dependencies = dependencies;
+        }
+    }
+}
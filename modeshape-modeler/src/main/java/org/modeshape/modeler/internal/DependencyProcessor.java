@@ -23,6 +23,9 @@
  */
 package org.modeshape.modeler.internal;
 
+import java.net.URL;
+import java.util.Set;
+
 import javax.jcr.Node;
 
 import org.modeshape.modeler.ModelType;
@@ -30,7 +33,9 @@ import org.modeshape.modeler.Modeler;
 import org.modeshape.modeler.ModelerException;
 
 /**
- * Processes dependencies for a specific model type.
+ * Processes dependencies for a specific model type. Implementations are discovered using a {@link java.util.ServiceLoader}, so
+ * must be declared in a <code>META-INF/services/org.modeshape.modeler.internal.DependencyProcessor</code> file and have a public
+ * no-argument constructor.
  */
 public interface DependencyProcessor {
     
@@ -44,6 +49,23 @@ public interface DependencyProcessor {
      */
     String SELF_PATH = ".";
     
+    /**
+     * Finds the dependencies declared by an artifact without importing it, so that a set of interdependent artifacts can be
+     * generated in dependency order.
+     * 
+     * @param artifactUrl
+     *        the URL of an artifact of one of this processor's {@link #modelTypeNames() model types} (cannot be <code>null</code>)
+     * @return the URLs of the artifacts upon which the supplied artifact depends (never <code>null</code>)
+     * @throws ModelerException
+     *         if the artifact can't be read
+     */
+    Set< URL > dependencies( final URL artifactUrl ) throws ModelerException;
+    
+    /**
+     * @return the names of the model types whose dependencies can be processed by this processor (never <code>null</code>)
+     */
+    Set< String > modelTypeNames();
+    
     /**
      * @param modelNode
      *        the model node whose dependencies are being processed (cannot be <code>null</code>)
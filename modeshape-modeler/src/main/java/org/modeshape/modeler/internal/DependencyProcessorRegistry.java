@@ -0,0 +1,89 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import org.polyglotter.common.Logger;
+
+/**
+ * An immutable registry of the {@link DependencyProcessor dependency processors} declared as services by the modeler's modules,
+ * indexed by the names of the model types they support.
+ */
+final class DependencyProcessorRegistry {
+    
+    private static final Logger LOGGER = Logger.getLogger( DependencyProcessorRegistry.class );
+    
+    private final Map< String, DependencyProcessor > processorsByModelTypeName;
+    
+    /**
+     * @param classLoader
+     *        the class loader used to find <code>META-INF/services</code> declarations of dependency processors
+     */
+    DependencyProcessorRegistry( final ClassLoader classLoader ) {
+        final Map< String, DependencyProcessor > processorsByModelTypeName = new HashMap<>();
+        for ( final Iterator< DependencyProcessor > iter = ServiceLoader.load( DependencyProcessor.class, classLoader ).iterator(); iter.hasNext(); ) {
+            final DependencyProcessor processor;
+            try {
+                processor = iter.next();
+            } catch ( final ServiceConfigurationError e ) {
+                LOGGER.debug( e, "Unable to load dependency processor" );
+                continue;
+            }
+            for ( final String modelTypeName : processor.modelTypeNames() ) {
+                final DependencyProcessor existingProcessor = processorsByModelTypeName.get( modelTypeName );
+                if ( existingProcessor == null ) {
+                    processorsByModelTypeName.put( modelTypeName, processor );
+                    LOGGER.debug( "Registered dependency processor %s for model type %s", processor.getClass().getName(), modelTypeName );
+                } else LOGGER.debug( "Ignoring dependency processor %s for model type %s already processed by %s",
+                                     processor.getClass().getName(),
+                                     modelTypeName,
+                                     existingProcessor.getClass().getName() );
+            }
+        }
+        this.processorsByModelTypeName = Collections.unmodifiableMap( processorsByModelTypeName );
+    }
+    
+    /**
+     * @return the names of the model types that have a dependency processor; never <code>null</code>
+     */
+    Set< String > modelTypeNames() {
+        return processorsByModelTypeName.keySet();
+    }
+    
+    /**
+     * @param modelTypeName
+     *        a model type name
+     * @return the dependency processor for the model type with the supplied name, or <code>null</code> if none exists
+     */
+    DependencyProcessor processor( final String modelTypeName ) {
+        return processorsByModelTypeName.get( modelTypeName );
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.polyglotter.common.Logger;
+
+/**
+ * Resolves model type archives from local Maven repositories, such as <code>~/.m2/repository</code> or a file system mirror,
+ * before any remote model type repository is contacted. Local repositories use the same {@link ModelTypeManagerImpl#MODESHAPE_GROUP
+ * layout} as remote ones, and archives are read directly from them through a memory map rather than being copied.
+ */
+final class LocalModelTypeRepositories {
+    
+    private static final String SEQUENCER_PREFIX = "modeshape-sequencer-";
+    
+    private static final Logger LOGGER = Logger.getLogger( LocalModelTypeRepositories.class );
+    
+    /**
+     * @param repositoryUrl
+     *        a model type repository URL
+     * @return the folder containing the supplied repository if it is on the local file system, otherwise <code>null</code>
+     */
+    static Path folder( final URL repositoryUrl ) {
+        if ( !"file".equals( repositoryUrl.getProtocol() ) ) return null;
+        try {
+            return Paths.get( repositoryUrl.toURI() );
+        } catch ( final URISyntaxException | IllegalArgumentException e ) {
+            // Relative file URLs, e.g., file:repository/, aren't hierarchical URIs
+            return Paths.get( repositoryUrl.getPath() );
+        }
+    }
+    
+    /**
+     * @param archive
+     *        a local archive
+     * @return a stream over a read-only memory map of the supplied archive
+     * @throws IOException
+     *         if the archive can't be mapped
+     */
+    static InputStream open( final Path archive ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( archive, StandardOpenOption.READ ) ) {
+            // The mapping remains valid after the channel is closed
+            return new MappedInputStream( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+        }
+    }
+    
+    private final List< Path > folders;
+    
+    /**
+     * @param folders
+     *        the folders of the local repositories to search after any registered <code>file:</code> repositories
+     */
+    LocalModelTypeRepositories( final List< Path > folders ) {
+        this.folders = folders;
+    }
+    
+    /**
+     * @param repositoryUrls
+     *        the registered model type repositories
+     * @param version
+     *        the ModeShape version whose archives are required
+     * @return the model type categories whose archives for the supplied version are available from the local repositories
+     * @throws IOException
+     *         if a local repository can't be read
+     */
+    Set< String > categories( final List< URL > repositoryUrls,
+                              final String version ) throws IOException {
+        final Set< String > categories = new HashSet<>();
+        for ( final Path folder : folders( repositoryUrls ) ) {
+            final Path group = folder.resolve( ModelTypeManagerImpl.MODESHAPE_GROUP );
+            if ( !Files.isDirectory( group ) ) continue;
+            try ( DirectoryStream< Path > artifacts = Files.newDirectoryStream( group, SEQUENCER_PREFIX + '*' ) ) {
+                for ( final Path artifact : artifacts ) {
+                    if ( !Files.isDirectory( artifact ) ) continue;
+                    final String category = artifact.getFileName().toString().substring( SEQUENCER_PREFIX.length() );
+                    // Other versions of a category's archive can't be installed
+                    if ( !categories.contains( category )
+                         && resolve( repositoryUrls, ModelTypeManagerImpl.archivePath( category, version ) ) != null )
+                        categories.add( category );
+                }
+            }
+        }
+        return categories;
+    }
+    
+    private List< Path > folders( final List< URL > repositoryUrls ) {
+        final List< Path > folders = new ArrayList<>();
+        for ( final URL repositoryUrl : repositoryUrls ) {
+            final Path folder = folder( repositoryUrl );
+            if ( folder != null ) folders.add( folder );
+        }
+        folders.addAll( this.folders );
+        return folders;
+    }
+    
+    /**
+     * @param repositoryUrls
+     *        the registered model type repositories
+     * @param archivePath
+     *        the archive's path relative to a repository
+     * @return the archive from the first local repository that contains it, or <code>null</code> if none do
+     */
+    Path resolve( final List< URL > repositoryUrls,
+                  final String archivePath ) {
+        for ( final Path folder : folders( repositoryUrls ) ) {
+            final Path archive = folder.resolve( archivePath );
+            if ( Files.isRegularFile( archive ) ) {
+                LOGGER.debug( "Resolved archive from local repository: %s", archive );
+                return archive;
+            }
+        }
+        return null;
+    }
+    
+    private static final class MappedInputStream extends InputStream {
+        
+        private final ByteBuffer buffer;
+        
+        MappedInputStream( final ByteBuffer buffer ) {
+            this.buffer = buffer;
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see java.io.InputStream#available()
+         */
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read( final byte[] bytes,
+                         final int offset,
+                         final int length ) {
+            if ( length == 0 ) return 0;
+            if ( !buffer.hasRemaining() ) return -1;
+            final int count = Math.min( length, buffer.remaining() );
+            buffer.get( bytes, offset, count );
+            return count;
+        }
+        
+        /**
+         * {@inheritDoc}
+         * 
+         * @see java.io.InputStream#skip(long)
+         */
+        @Override
+        public long skip( final long count ) {
+            final int skipped = ( int ) Math.max( 0, Math.min( count, buffer.remaining() ) );
+            buffer.position( buffer.position() + skipped );
+            return skipped;
+        }
+    }
+}
@@ -23,6 +23,13 @@
  */
 package org.modeshape.modeler.internal;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 
 import javax.jcr.Node;
@@ -52,8 +59,87 @@ public final class Manager {
      */
     public static final String REPOSITORY_STORE_PARENT_PATH_PROPERTY = "org.modeshape.modeler.repositoryStoreParentPath";
     
+    /**
+     * The system property that may be used to override the folder in which installed model types' jars are kept between runs. By
+     * default, the folder is named {@value #DEFAULT_LIBRARY_FOLDER} within the repository store's parent folder. The folder should
+     * not be shared by repositories that install different model type categories, since jars not installed in this repository are
+     * removed from it at startup.
+     */
+    public static final String LIBRARY_PATH_PROPERTY = "org.modeshape.modeler.libraryPath";
+    
+    /**
+     * The name of the default library folder. Value is {@value} .
+     */
+    public static final String DEFAULT_LIBRARY_FOLDER = "modelerLibrary";
+    
+    /**
+     * The system property that may be used to override the {@link #DEFAULT_SESSION_POOL_SIZE maximum number of idle sessions}
+     * kept per workspace. A value of zero disables session pooling.
+     */
+    public static final String SESSION_POOL_SIZE_PROPERTY = "org.modeshape.modeler.sessionPoolSize";
+    
+    /**
+     * The default maximum number of idle sessions kept per workspace. Value is {@value} .
+     */
+    public static final int DEFAULT_SESSION_POOL_SIZE = 8;
+    
+    /**
+     * The system property that may be used to override the {@link #DEFAULT_MODEL_TYPE_CATEGORIES_TTL number of milliseconds} the
+     * model type categories listed by a model type repository are cached before being revalidated with the repository.
+     */
+    public static final String MODEL_TYPE_CATEGORIES_TTL_PROPERTY = "org.modeshape.modeler.modelTypeCategoriesTtl";
+    
+    /**
+     * The default number of milliseconds model type category listings are cached. Value is {@value} .
+     */
+    public static final long DEFAULT_MODEL_TYPE_CATEGORIES_TTL = 60 * 60 * 1000;
+    
+    /**
+     * The system property that, when set to <code>true</code>, keeps the modeler from contacting remote model type repositories, so
+     * only {@link #LOCAL_MODEL_TYPE_REPOSITORIES_PROPERTY local repositories} and previously cached information are used.
+     */
+    public static final String OFFLINE_PROPERTY = "org.modeshape.modeler.offline";
+    
+    /**
+     * The system property that may be used to override the local Maven repositories, separated by the platform's path separator,
+     * from which model type archives are read before any remote model type repository is contacted. By default, this is the
+     * <code>.m2/repository</code> folder within the user's home folder.
+     */
+    public static final String LOCAL_MODEL_TYPE_REPOSITORIES_PROPERTY = "org.modeshape.modeler.localModelTypeRepositories";
+    
+    /**
+     * The system property that may be used to override the {@link #DEFAULT_GENERATION_THREADS maximum number of models}
+     * generated concurrently by {@link org.modeshape.modeler.Modeler#generateModels(java.util.Collection, String, org.modeshape.modeler.ModelType)}.
+     */
+    public static final String GENERATION_THREADS_PROPERTY = "org.modeshape.modeler.generationThreads";
+    
+    /**
+     * The default maximum number of models generated concurrently. Value is {@value} .
+     */
+    public static final int DEFAULT_GENERATION_THREADS = 8;
+    
+    static final String DEFAULT_WORKSPACE = "default";
+    static final String SYSTEM_WORKSPACE = "modeler";
+    
     private final ModeShapeEngine modeShape;
     final JcrRepository repository;
+    private final int sessionPoolSize;
+    final Path library;
+    final long modelTypeCategoriesTtl;
+    final boolean offline;
+    final List< Path > localModelTypeRepositories = new ArrayList<>();
+    private final ConcurrentMap< String, SessionPool > sessionPoolsByWorkspace = new ConcurrentHashMap<>();
+    private final ConcurrentMap< Session, List< Task< ? > > > commitHooksBySession = new ConcurrentHashMap<>();
+    
+    /**
+     * The index of the dependencies between models
+     */
+    public final DependencyIndex dependencyIndex = new DependencyIndex( this );
+    
+    /**
+     * The maximum number of models generated concurrently
+     */
+    public final int generationThreads;
     
     /**
      * 
@@ -79,6 +165,17 @@ public final class Manager {
         CheckArg.isNotEmpty( modeShapeConfigurationPath, "modeShapeConfigurationPath" );
         System.setProperty( REPOSITORY_STORE_PARENT_PATH_PROPERTY, repositoryStoreParentPath );
         this.modeShapeConfigurationPath = modeShapeConfigurationPath;
+        sessionPoolSize = Integer.getInteger( SESSION_POOL_SIZE_PROPERTY, DEFAULT_SESSION_POOL_SIZE );
+        modelTypeCategoriesTtl = Long.getLong( MODEL_TYPE_CATEGORIES_TTL_PROPERTY, DEFAULT_MODEL_TYPE_CATEGORIES_TTL );
+        offline = Boolean.getBoolean( OFFLINE_PROPERTY );
+        generationThreads = Math.max( Integer.getInteger( GENERATION_THREADS_PROPERTY, DEFAULT_GENERATION_THREADS ), 1 );
+        final String localModelTypeRepositories = System.getProperty( LOCAL_MODEL_TYPE_REPOSITORIES_PROPERTY );
+        if ( localModelTypeRepositories == null )
+            this.localModelTypeRepositories.add( Paths.get( System.getProperty( "user.home" ), ".m2", "repository" ) );
+        else for ( final String path : localModelTypeRepositories.split( File.pathSeparator ) )
+            if ( !path.trim().isEmpty() ) this.localModelTypeRepositories.add( Paths.get( path.trim() ) );
+        final String libraryPath = System.getProperty( LIBRARY_PATH_PROPERTY );
+        library = libraryPath == null ? Paths.get( repositoryStoreParentPath, DEFAULT_LIBRARY_FOLDER ) : Paths.get( libraryPath );
         try {
             modeShape = new ModeShapeEngine();
             modeShape.start();
@@ -103,6 +200,29 @@ public final class Manager {
         modelTypeManager = new ModelTypeManagerImpl( this );
     }
     
+    /**
+     * Runs the supplied task, after the task using the supplied session has completed and its changes have been saved, from
+     * the thread that ran that task and with a new session. The supplied task is discarded if that task fails or leaves changes
+     * unsaved.
+     * 
+     * @param session
+     *        the session of a task run by this manager; must not be <code>null</code>.
+     * @param task
+     *        the task to run; must not be <code>null</code>.
+     */
+    public void afterCommit( final Session session,
+                             final Task< ? > task ) {
+        CheckArg.isNotNull( session, "session" );
+        CheckArg.isNotNull( task, "task" );
+        List< Task< ? > > hooks = commitHooksBySession.get( session );
+        if ( hooks == null ) {
+            // A session is only used by one thread at a time
+            hooks = new ArrayList<>();
+            commitHooksBySession.put( session, hooks );
+        }
+        hooks.add( task );
+    }
+    
     /**
      * @param session
      *        a session
@@ -126,6 +246,8 @@ public final class Manager {
      *         if any problem occurs
      */
     public void close() throws ModelerException {
+        for ( final SessionPool pool : sessionPoolsByWorkspace.values() )
+            pool.close();
         try {
             modeShape.shutdown().get();
         } catch ( InterruptedException | ExecutionException e ) {
@@ -146,8 +268,10 @@ public final class Manager {
     public < T > T run( final Object systemObject,
                         final SystemTask< T > task
                     ) throws ModelerException {
+        final SessionPool pool = sessionPool( SYSTEM_WORKSPACE );
+        final Session session = session( pool );
+        boolean reusable = false;
         try {
-            final Session session = repository.login( "modeler" );
             final String path = '/' + systemObject.getClass().getSimpleName();
             final Node node;
             if ( session.nodeExists( path ) )
@@ -156,17 +280,15 @@ public final class Manager {
                 node = session.getRootNode().addNode( path );
                 session.save();
             }
-            try {
-                return task.run( session, node );
-            } catch ( final RuntimeException e ) {
-                throw e;
-            } catch ( final Exception e ) {
-                throw new ModelerException( e );
-            } finally {
-                session.logout();
-            }
-        } catch ( final RepositoryException e ) {
+            final T result = task.run( session, node );
+            reusable = true;
+            return result;
+        } catch ( final RuntimeException e ) {
+            throw e;
+        } catch ( final Exception e ) {
             throw new ModelerException( e );
+        } finally {
+            pool.release( session, reusable );
         }
     }
     
@@ -178,19 +300,77 @@ public final class Manager {
      *         if any problem occurs
      */
     public < T > T run( final Task< T > task ) throws ModelerException {
+        final SessionPool pool = sessionPool( DEFAULT_WORKSPACE );
+        final Session session = session( pool );
+        boolean reusable = false;
+        final T result;
+        List< Task< ? > > hooks = null;
         try {
-            final Session session = repository.login( "default" );
-            try {
-                return task.run( session );
-            } catch ( final RuntimeException e ) {
-                throw e;
-            } catch ( final Exception e ) {
-                throw new ModelerException( e );
-            } finally {
-                session.logout();
+            result = task.run( session );
+            // Only index dependencies, or run work that relies upon the task's changes, once those changes have been saved
+            if ( !session.hasPendingChanges() ) {
+                dependencyIndex.commit( session );
+                hooks = commitHooksBySession.get( session );
             }
+            reusable = true;
+        } catch ( final RuntimeException e ) {
+            throw e;
+        } catch ( final Exception e ) {
+            throw new ModelerException( e );
+        } finally {
+            dependencyIndex.discard( session );
+            commitHooksBySession.remove( session );
+            pool.release( session, reusable );
+        }
+        if ( hooks != null ) {
+            for ( final Task< ? > hook : hooks )
+                run( hook );
+        }
+        return result;
+    }
+    
+    private Session session( final SessionPool pool ) throws ModelerException {
+        try {
+            return pool.acquire();
         } catch ( final RepositoryException e ) {
             throw new ModelerException( e );
         }
     }
+    
+    SessionPool sessionPool( final String workspace ) {
+        SessionPool pool = sessionPoolsByWorkspace.get( workspace );
+        if ( pool == null ) {
+            final SessionPool newPool = new SessionPool( repository, workspace, sessionPoolSize );
+            pool = sessionPoolsByWorkspace.putIfAbsent( workspace, newPool );
+            if ( pool == null ) pool = newPool;
+        }
+        return pool;
+    }
+    
+    /**
+     * @return the number of times a task was run using an idle, pooled session
+     */
+    public long sessionPoolHits() {
+        long hits = 0;
+        for ( final SessionPool pool : sessionPoolsByWorkspace.values() )
+            hits += pool.hits.get();
+        return hits;
+    }
+    
+    /**
+     * @return the number of times a new session had to be created to run a task, because no pooled session was idle
+     */
+    public long sessionPoolMisses() {
+        long misses = 0;
+        for ( final SessionPool pool : sessionPoolsByWorkspace.values() )
+            misses += pool.misses.get();
+        return misses;
+    }
+    
+    /**
+     * @return the maximum number of idle sessions kept per workspace
+     */
+    public int sessionPoolSize() {
+        return sessionPoolSize;
+    }
 }
@@ -24,13 +24,21 @@
 package org.modeshape.modeler.internal;
 
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
 
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.Session;
 
+import org.modeshape.common.util.CheckArg;
 import org.modeshape.modeler.Model;
+import org.modeshape.modeler.ModelObject;
 import org.modeshape.modeler.ModelType;
+import org.modeshape.modeler.ModelVisitor;
 import org.modeshape.modeler.ModelerException;
+import org.modeshape.modeler.TraversalOptions;
 
 /**
  * 
@@ -40,12 +48,25 @@ public class ModelImpl extends ModelObjectImpl implements Model {
     /**
      * @param manager
      *        the Modeler's manager
+     * @param modelId
+     *        the identifier of a model's node
      * @param modelPath
-     *        a path to a model
+     *        the path to the model's node when it was found, or <code>null</code> if not known
      */
     public ModelImpl( final Manager manager,
+                      final String modelId,
                       final String modelPath ) {
-        super( manager, modelPath, -1 );
+        super( manager, modelId, modelPath, -1 );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.Model#dependencyClosure()
+     */
+    @Override
+    public Set< String > dependencyClosure() throws ModelerException {
+        return manager.dependencyIndex.closure( absolutePath() );
     }
     
     /**
@@ -59,7 +80,7 @@ public class ModelImpl extends ModelObjectImpl implements Model {
             
             @Override
             public URL run( final Session session ) throws Exception {
-                final Node model = session.getNode( path );
+                final Node model = node( session );
                 return model.hasProperty( ModelerLexicon.EXTERNAL_LOCATION ) ? new URL( model.getProperty( ModelerLexicon.EXTERNAL_LOCATION ).getString() )
                                                                             : null;
             }
@@ -77,7 +98,68 @@ public class ModelImpl extends ModelObjectImpl implements Model {
             
             @Override
             public ModelType run( final Session session ) throws Exception {
-                return manager.modelTypeManager.modelType( session.getNode( path ).getProperty( ModelerLexicon.MODEL_TYPE ).getString() );
+                return manager.modelTypeManager.modelType( node( session ).getProperty( ModelerLexicon.MODEL_TYPE ).getString() );
+            }
+        } );
+    }
+    
+    ModelObject visited( final Node node,
+                         final String modelPath,
+                         final TraversalOptions options ) throws Exception {
+        if ( options.prefetchProperties() ) return new ModelObjectSnapshotImpl( manager, node, id, modelPath, 0 );
+        if ( node.getIdentifier().equals( id ) ) return this;
+        return new ModelObjectImpl( manager, node.getIdentifier(), node.getPath(), node.getIndex() - 1 );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.Model#walk(org.modeshape.modeler.ModelVisitor, org.modeshape.modeler.TraversalOptions)
+     */
+    @Override
+    public void walk( final ModelVisitor visitor,
+                      final TraversalOptions options ) throws ModelerException {
+        CheckArg.isNotNull( visitor, "visitor" );
+        CheckArg.isNotNull( options, "options" );
+        manager.run( new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) throws Exception {
+                final Node model = node( session );
+                final String modelPath = model.getPath();
+                if ( !visitor.visit( visited( model, modelPath, options ), 0 ) || options.maxDepth() == 0 ) return null;
+                if ( options.order() == TraversalOptions.Order.DEPTH_FIRST ) {
+                    // Only the iterators along the current branch are held, never the objects already visited
+                    final Deque< NodeIterator > iterators = new ArrayDeque<>();
+                    iterators.push( model.getNodes() );
+                    while ( !iterators.isEmpty() ) {
+                        final NodeIterator iterator = iterators.peek();
+                        if ( !iterator.hasNext() ) {
+                            iterators.pop();
+                            continue;
+                        }
+                        final Node node = iterator.nextNode();
+                        final int depth = iterators.size();
+                        if ( visitor.visit( visited( node, modelPath, options ), depth )
+                             && ( options.maxDepth() < 0 || depth < options.maxDepth() ) ) iterators.push( node.getNodes() );
+                    }
+                } else {
+                    // Only the identifiers of the nodes whose children have yet to be visited are held
+                    Deque< String > ids = new ArrayDeque<>();
+                    ids.add( id );
+                    for ( int depth = 1; !ids.isEmpty(); depth++ ) {
+                        final Deque< String > nextIds = new ArrayDeque<>();
+                        for ( String parentId = ids.poll(); parentId != null; parentId = ids.poll() ) {
+                            for ( final NodeIterator iter = session.getNodeByIdentifier( parentId ).getNodes(); iter.hasNext(); ) {
+                                final Node node = iter.nextNode();
+                                if ( visitor.visit( visited( node, modelPath, options ), depth )
+                                     && ( options.maxDepth() < 0 || depth < options.maxDepth() ) ) nextIds.add( node.getIdentifier() );
+                            }
+                        }
+                        ids = nextIds;
+                    }
+                }
+                return null;
             }
         } );
     }
@@ -23,8 +23,13 @@
  */
 package org.modeshape.modeler.internal;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import javax.jcr.Node;
@@ -32,6 +37,7 @@ import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.Property;
 import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
 import javax.jcr.Session;
 import javax.jcr.Value;
 import javax.jcr.ValueFormatException;
@@ -41,6 +47,7 @@ import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.modeler.Model;
 import org.modeshape.modeler.ModelObject;
+import org.modeshape.modeler.ModelObjectSnapshot;
 import org.modeshape.modeler.ModelerException;
 
 /**
@@ -54,19 +61,24 @@ public class ModelObjectImpl implements ModelObject {
     public final Manager manager;
     
     /**
-     * 
+     * The identifier of this model object's node, which, unlike its path, does not change when the node is renamed or moved
      */
-    public final String path;
+    public final String id;
     
     /**
      * 
      */
     public final int index;
     
+    // The node's path when last resolved by its identifier, so moves and renames are picked up by the next access to the node
+    private volatile String path;
+    
     ModelObjectImpl( final Manager manager,
+                     final String id,
                      final String path,
                      final int index ) {
         this.manager = manager;
+        this.id = id;
         this.path = path;
         this.index = index;
     }
@@ -78,7 +90,47 @@ public class ModelObjectImpl implements ModelObject {
      */
     @Override
     public String absolutePath() {
-        return path;
+        final String path = this.path;
+        if ( path != null ) return path;
+        try {
+            return manager.run( new Task< String >() {
+                
+                @Override
+                public String run( final Session session ) throws Exception {
+                    return node( session ).getPath();
+                }
+            } );
+        } catch ( final ModelerException | RuntimeException e ) {
+            // The node may since have been removed, so fall back to its identifier
+            return id;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#booleanArray(java.lang.String)
+     */
+    @Override
+    public boolean[] booleanArray( final String propertyName ) throws ModelerException {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        return manager.run( new Task< boolean[] >() {
+            
+            @Override
+            public boolean[] run( final Session session ) throws Exception {
+                try {
+                    final Value[] vals = values( node( session ).getProperty( propertyName ) );
+                    final boolean[] booleans = new boolean[ vals.length ];
+                    for ( int ndx = 0; ndx < booleans.length; ndx++ )
+                        booleans[ ndx ] = vals[ ndx ].getBoolean();
+                    return booleans;
+                } catch ( final ValueFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                } catch ( final PathNotFoundException e ) {
+                    return null;
+                }
+            }
+        } );
     }
     
     /**
@@ -94,7 +146,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public Boolean run( final Session session ) throws Exception {
                 try {
-                    return session.getNode( path ).getProperty( propertyName ).getBoolean();
+                    return node( session ).getProperty( propertyName ).getBoolean();
                 } catch ( final ValueFormatException e ) {
                     throw new IllegalArgumentException( e );
                 } catch ( final PathNotFoundException e ) {
@@ -117,7 +169,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public Boolean[] run( final Session session ) throws Exception {
                 try {
-                    final Property prop = session.getNode( path ).getProperty( propertyName );
+                    final Property prop = node( session ).getProperty( propertyName );
                     if ( !prop.isMultiple() ) return new Boolean[] { prop.getBoolean() };
                     final Value[] vals = prop.getValues();
                     final Boolean[] booleanVals = new Boolean[ vals.length ];
@@ -146,7 +198,8 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public ModelObject run( final Session session ) throws Exception {
                 try {
-                    return new ModelObjectImpl( manager, session.getNode( path ).getNode( childName ).getPath(), 0 );
+                    final Node child = node( session ).getNode( childName );
+                    return new ModelObjectImpl( manager, child.getIdentifier(), child.getPath(), child.getIndex() - 1 );
                 } catch ( final PathNotFoundException e ) {
                     return null;
                 }
@@ -175,7 +228,7 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public ModelObject[] run( final Session session ) throws Exception {
-                return children( session.getNode( path ).getNodes() );
+                return children( node( session ).getNodes() );
             }
         } );
     }
@@ -184,7 +237,7 @@ public class ModelObjectImpl implements ModelObject {
         final ModelObject[] children = new ModelObject[ ( int ) iterator.getSize() ];
         for ( int ndx = 0; iterator.hasNext(); ndx++ ) {
             final Node child = iterator.nextNode();
-            children[ ndx ] = new ModelObjectImpl( manager, child.getPath(), child.getIndex() - 1 );
+            children[ ndx ] = new ModelObjectImpl( manager, child.getIdentifier(), child.getPath(), child.getIndex() - 1 );
         }
         return children;
     }
@@ -201,7 +254,88 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public ModelObject[] run( final Session session ) throws Exception {
-                return children( session.getNode( path ).getNodes( childName ) );
+                return children( node( session ).getNodes( childName ) );
+            }
+        } );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#dateArray(java.lang.String)
+     */
+    @Override
+    public Calendar[] dateArray( final String propertyName ) throws ModelerException {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        return manager.run( new Task< Calendar[] >() {
+            
+            @Override
+            public Calendar[] run( final Session session ) throws Exception {
+                try {
+                    final Value[] vals = values( node( session ).getProperty( propertyName ) );
+                    final Calendar[] dates = new Calendar[ vals.length ];
+                    for ( int ndx = 0; ndx < dates.length; ndx++ )
+                        dates[ ndx ] = vals[ ndx ].getDate();
+                    return dates;
+                } catch ( final ValueFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                } catch ( final PathNotFoundException e ) {
+                    return null;
+                }
+            }
+        } );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#decimalArray(java.lang.String)
+     */
+    @Override
+    public BigDecimal[] decimalArray( final String propertyName ) throws ModelerException {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        return manager.run( new Task< BigDecimal[] >() {
+            
+            @Override
+            public BigDecimal[] run( final Session session ) throws Exception {
+                try {
+                    final Value[] vals = values( node( session ).getProperty( propertyName ) );
+                    final BigDecimal[] decimals = new BigDecimal[ vals.length ];
+                    for ( int ndx = 0; ndx < decimals.length; ndx++ )
+                        decimals[ ndx ] = vals[ ndx ].getDecimal();
+                    return decimals;
+                } catch ( final ValueFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                } catch ( final PathNotFoundException e ) {
+                    return null;
+                }
+            }
+        } );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#doubleArray(java.lang.String)
+     */
+    @Override
+    public double[] doubleArray( final String propertyName ) throws ModelerException {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        return manager.run( new Task< double[] >() {
+            
+            @Override
+            public double[] run( final Session session ) throws Exception {
+                try {
+                    final Value[] vals = values( node( session ).getProperty( propertyName ) );
+                    final double[] doubles = new double[ vals.length ];
+                    for ( int ndx = 0; ndx < doubles.length; ndx++ )
+                        doubles[ ndx ] = vals[ ndx ].getDouble();
+                    return doubles;
+                } catch ( final ValueFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                } catch ( final PathNotFoundException e ) {
+                    return null;
+                }
             }
         } );
     }
@@ -214,7 +348,7 @@ public class ModelObjectImpl implements ModelObject {
     @Override
     public boolean equals( final Object object ) {
         if ( getClass() != object.getClass() ) return false;
-        return Objects.equals( path, ( ( ModelObjectImpl ) object ).path );
+        return Objects.equals( id, ( ( ModelObjectImpl ) object ).id );
     }
     
     /**
@@ -229,7 +363,7 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public Boolean run( final Session session ) throws Exception {
-                return session.getNode( path ).hasNode( childName );
+                return node( session ).hasNode( childName );
             }
         } );
     }
@@ -245,7 +379,7 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public Boolean run( final Session session ) throws Exception {
-                return session.getNode( path ).hasNodes();
+                return node( session ).hasNodes();
             }
         } );
     }
@@ -257,7 +391,7 @@ public class ModelObjectImpl implements ModelObject {
      */
     @Override
     public int hashCode() {
-        return Objects.hash( path );
+        return Objects.hash( id );
     }
     
     /**
@@ -282,7 +416,7 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public Boolean run( final Session session ) throws Exception {
-                return session.getNode( path ).hasProperty( propertyName );
+                return node( session ).hasProperty( propertyName );
             }
         } );
     }
@@ -297,6 +431,33 @@ public class ModelObjectImpl implements ModelObject {
         return index;
     }
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#longArray(java.lang.String)
+     */
+    @Override
+    public long[] longArray( final String propertyName ) throws ModelerException {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        return manager.run( new Task< long[] >() {
+            
+            @Override
+            public long[] run( final Session session ) throws Exception {
+                try {
+                    final Value[] vals = values( node( session ).getProperty( propertyName ) );
+                    final long[] longs = new long[ vals.length ];
+                    for ( int ndx = 0; ndx < longs.length; ndx++ )
+                        longs[ ndx ] = vals[ ndx ].getLong();
+                    return longs;
+                } catch ( final ValueFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                } catch ( final PathNotFoundException e ) {
+                    return null;
+                }
+            }
+        } );
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -310,7 +471,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public Long run( final Session session ) throws Exception {
                 try {
-                    return session.getNode( path ).getProperty( propertyName ).getLong();
+                    return node( session ).getProperty( propertyName ).getLong();
                 } catch ( final ValueFormatException e ) {
                     throw new IllegalArgumentException( e );
                 } catch ( final PathNotFoundException e ) {
@@ -333,7 +494,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public Long[] run( final Session session ) throws Exception {
                 try {
-                    final Property prop = session.getNode( path ).getProperty( propertyName );
+                    final Property prop = node( session ).getProperty( propertyName );
                     if ( !prop.isMultiple() ) return new Long[] { prop.getLong() };
                     final Value[] vals = prop.getValues();
                     final Long[] longVals = new Long[ vals.length ];
@@ -360,7 +521,7 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public String[] run( final Session session ) throws Exception {
-                final Node node = session.getNode( path );
+                final Node node = node( session );
                 final NodeType[] nodeTypes = node.getMixinNodeTypes();
                 final String[] mixins = new String[ nodeTypes.length ];
                 for ( int ndx = 0; ndx < mixins.length; ndx++ )
@@ -382,13 +543,14 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public Model run( final Session session ) throws Exception {
-                return new ModelImpl( manager, modelNode( session ).getPath() );
+                final Node modelNode = modelNode( session );
+                return new ModelImpl( manager, modelNode.getIdentifier(), modelNode.getPath() );
             }
         } );
     }
     
     Node modelNode( final Session session ) throws Exception {
-        Node node = session.getNode( path );
+        Node node = node( session );
         while ( !node.isNodeType( ModelerLexicon.MODEL_MIXIN ) )
             node = node.getParent();
         return node;
@@ -406,7 +568,7 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public String run( final Session session ) throws Exception {
-                return path.substring( modelNode( session ).getPath().length() + 1 );
+                return node( session ).getPath().substring( modelNode( session ).getPath().length() + 1 );
             }
         } );
     }
@@ -422,11 +584,17 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public String run( final Session session ) throws Exception {
-                return session.getNode( path ).getName();
+                return node( session ).getName();
             }
         } );
     }
     
+    Node node( final Session session ) throws Exception {
+        final Node node = session.getNodeByIdentifier( id );
+        path = node.getPath();
+        return node;
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -438,7 +606,54 @@ public class ModelObjectImpl implements ModelObject {
             
             @Override
             public String run( final Session session ) throws Exception {
-                return session.getNode( path ).getProperty( JcrLexicon.PRIMARY_TYPE.toString() ).getString();
+                return node( session ).getProperty( JcrLexicon.PRIMARY_TYPE.toString() ).getString();
+            }
+        } );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#properties()
+     */
+    @Override
+    public Map< String, Object > properties() throws ModelerException {
+        return manager.run( new Task< Map< String, Object > >() {
+            
+            @Override
+            public Map< String, Object > run( final Session session ) throws Exception {
+                final Map< String, Object > valuesByName = new LinkedHashMap<>();
+                for ( final PropertyIterator iter = node( session ).getProperties(); iter.hasNext(); ) {
+                    final Property prop = iter.nextProperty();
+                    final String name = prop.getName();
+                    if ( !name.startsWith( JcrLexicon.Namespace.PREFIX ) && !name.startsWith( ModelerLexicon.NAMESPACE_PREFIX ) )
+                        valuesByName.put( name, value( prop ) );
+                }
+                return Collections.unmodifiableMap( valuesByName );
+            }
+        } );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#properties(java.lang.String[])
+     */
+    @Override
+    public Map< String, Object > properties( final String... propertyNames ) throws ModelerException {
+        CheckArg.isNotNull( propertyNames, "propertyNames" );
+        for ( final String name : propertyNames )
+            CheckArg.isNotEmpty( name, "propertyName" );
+        return manager.run( new Task< Map< String, Object > >() {
+            
+            @Override
+            public Map< String, Object > run( final Session session ) throws Exception {
+                final Node node = node( session );
+                final Map< String, Object > valuesByName = new LinkedHashMap<>();
+                for ( final String name : propertyNames ) {
+                    if ( node.hasProperty( name ) ) valuesByName.put( name, value( node.getProperty( name ) ) );
+                }
+                return Collections.unmodifiableMap( valuesByName );
             }
         } );
     }
@@ -456,7 +671,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public Boolean run( final Session session ) throws Exception {
                 try {
-                    return session.getNode( path ).getProperty( propertyName ).isMultiple();
+                    return node( session ).getProperty( propertyName ).isMultiple();
                 } catch ( final PathNotFoundException e ) {
                     return false;
                 }
@@ -476,7 +691,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public String[] run( final Session session ) throws Exception {
                 final List< String > names = new ArrayList<>();
-                for ( final PropertyIterator iter = session.getNode( path ).getProperties(); iter.hasNext(); ) {
+                for ( final PropertyIterator iter = node( session ).getProperties(); iter.hasNext(); ) {
                     final String name = iter.nextProperty().getName();
                     if ( !name.startsWith( JcrLexicon.Namespace.PREFIX ) && !name.startsWith( ModelerLexicon.NAMESPACE_PREFIX ) )
                         names.add( name );
@@ -486,6 +701,23 @@ public class ModelObjectImpl implements ModelObject {
         } );
     }
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#snapshot(int)
+     */
+    @Override
+    public ModelObjectSnapshot snapshot( final int depth ) throws ModelerException {
+        return manager.run( new Task< ModelObjectSnapshot >() {
+            
+            @Override
+            public ModelObjectSnapshot run( final Session session ) throws Exception {
+                final Node modelNode = modelNode( session );
+                return new ModelObjectSnapshotImpl( manager, node( session ), modelNode.getIdentifier(), modelNode.getPath(), depth );
+            }
+        } );
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -499,7 +731,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public String run( final Session session ) throws Exception {
                 try {
-                    return session.getNode( path ).getProperty( propertyName ).getString();
+                    return node( session ).getProperty( propertyName ).getString();
                 } catch ( final ValueFormatException e ) {
                     throw new IllegalArgumentException( e );
                 } catch ( final PathNotFoundException e ) {
@@ -522,7 +754,7 @@ public class ModelObjectImpl implements ModelObject {
             @Override
             public String[] run( final Session session ) throws Exception {
                 try {
-                    final Property prop = session.getNode( path ).getProperty( propertyName );
+                    final Property prop = node( session ).getProperty( propertyName );
                     if ( !prop.isMultiple() ) return new String[] { prop.getString() };
                     final Value[] vals = prop.getValues();
                     final String[] stringVals = new String[ vals.length ];
@@ -538,6 +770,36 @@ public class ModelObjectImpl implements ModelObject {
         } );
     }
     
+    Value[] values( final Property property ) throws Exception {
+        return property.isMultiple() ? property.getValues() : new Value[] { property.getValue() };
+    }
+    
+    Object value( final Property property ) throws Exception {
+        if ( !property.isMultiple() ) return value( property.getValue() );
+        final Value[] vals = property.getValues();
+        final Object[] values = new Object[ vals.length ];
+        for ( int ndx = 0; ndx < values.length; ndx++ )
+            values[ ndx ] = value( vals[ ndx ] );
+        return values;
+    }
+    
+    Object value( final Value value ) throws Exception {
+        switch ( value.getType() ) {
+            case PropertyType.BOOLEAN:
+                return value.getBoolean();
+            case PropertyType.DATE:
+                return value.getDate();
+            case PropertyType.DECIMAL:
+                return value.getDecimal();
+            case PropertyType.DOUBLE:
+                return value.getDouble();
+            case PropertyType.LONG:
+                return value.getLong();
+            default:
+                return value.getString();
+        }
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -545,6 +807,8 @@ public class ModelObjectImpl implements ModelObject {
      */
     @Override
     public String toString() {
-        return path;
+        // Never touches the repository, so reports the path as of the last access to the node
+        final String path = this.path;
+        return path == null ? id : path;
     }
 }
@@ -0,0 +1,770 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.nodetype.NodeType;
+
+import org.modeshape.common.util.CheckArg;
+import org.modeshape.jcr.JcrLexicon;
+import org.modeshape.modeler.Model;
+import org.modeshape.modeler.ModelObject;
+import org.modeshape.modeler.ModelObjectSnapshot;
+import org.modeshape.modeler.ModelerException;
+import org.modeshape.modeler.ModelerI18n;
+
+/**
+ * An immutable copy of a model object and its descendants, loaded within a single session. All state is held in final fields
+ * that are never exposed, so instances may be freely shared between threads.
+ */
+public final class ModelObjectSnapshotImpl implements ModelObjectSnapshot {
+    
+    // Rough sizes, in bytes, of the objects held by a snapshot on a 64-bit JVM
+    private static final long OBJECT_SIZE = 16;
+    private static final long REFERENCE_SIZE = 8;
+    private static final long ARRAY_SIZE = 16;
+    private static final long STRING_SIZE = 40;
+    private static final long MAP_ENTRY_SIZE = 32;
+    private static final long CALENDAR_SIZE = 200;
+    
+    // The format of date values converted to strings by JCR
+    private static final String ISO8601_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+    
+    private static final ModelObject[] NO_CHILDREN = new ModelObject[ 0 ];
+    
+    private static long estimatedSize( final String string ) {
+        return STRING_SIZE + 2L * string.length();
+    }
+    
+    private static boolean matches( final String name,
+                                    final String namePattern ) {
+        for ( final String glob : namePattern.split( "\\|" ) ) {
+            final StringBuilder regex = new StringBuilder();
+            for ( final String literal : glob.trim().split( "\\*", -1 ) ) {
+                if ( regex.length() > 0 ) regex.append( ".*" );
+                regex.append( Pattern.quote( literal ) );
+            }
+            if ( name.matches( regex.toString() ) ) return true;
+        }
+        return false;
+    }
+    
+    private final Manager manager;
+    private final String id;
+    private final String path;
+    private final String modelId;
+    private final String modelPath;
+    private final String name;
+    private final int index;
+    private final int depth;
+    private final String primaryType;
+    private final String[] mixinTypes;
+    private final Map< String, SnapshotProperty > propertiesByName;
+    private final ModelObjectSnapshotImpl[] children;
+    private final long estimatedSize;
+    
+    /**
+     * @param manager
+     *        the Modeler's manager
+     * @param node
+     *        the node from which to load the snapshot
+     * @param modelId
+     *        the identifier of the model containing the node
+     * @param modelPath
+     *        the path of the model containing the node
+     * @param depth
+     *        the number of levels of descendants to load, or a negative number to load all descendants
+     * @throws RepositoryException
+     *         if any error occurs
+     */
+    ModelObjectSnapshotImpl( final Manager manager,
+                             final Node node,
+                             final String modelId,
+                             final String modelPath,
+                             final int depth ) throws RepositoryException {
+        this.manager = manager;
+        this.modelId = modelId;
+        this.modelPath = modelPath;
+        this.depth = depth;
+        id = node.getIdentifier();
+        path = node.getPath();
+        name = node.getName();
+        index = node.isNodeType( ModelerLexicon.MODEL_MIXIN ) ? -1 : node.getIndex() - 1;
+        primaryType = node.getPrimaryNodeType().getName();
+        long size = OBJECT_SIZE + 13 * REFERENCE_SIZE + estimatedSize( id ) + estimatedSize( path ) + estimatedSize( name ) + estimatedSize( primaryType );
+        final NodeType[] nodeTypes = node.getMixinNodeTypes();
+        mixinTypes = new String[ nodeTypes.length ];
+        size += ARRAY_SIZE + mixinTypes.length * REFERENCE_SIZE;
+        for ( int ndx = 0; ndx < mixinTypes.length; ndx++ ) {
+            mixinTypes[ ndx ] = nodeTypes[ ndx ].getName();
+            size += estimatedSize( mixinTypes[ ndx ] );
+        }
+        propertiesByName = new LinkedHashMap<>();
+        for ( final PropertyIterator iter = node.getProperties(); iter.hasNext(); ) {
+            final SnapshotProperty property = new SnapshotProperty( iter.nextProperty() );
+            propertiesByName.put( property.name, property );
+            size += MAP_ENTRY_SIZE + property.estimatedSize;
+        }
+        if ( depth == 0 ) children = null;
+        else {
+            final List< ModelObjectSnapshotImpl > children = new ArrayList<>();
+            for ( final NodeIterator iter = node.getNodes(); iter.hasNext(); ) {
+                final ModelObjectSnapshotImpl child = new ModelObjectSnapshotImpl( manager, iter.nextNode(), modelId, modelPath, depth - 1 );
+                children.add( child );
+                size += REFERENCE_SIZE + child.estimatedSize;
+            }
+            this.children = children.toArray( new ModelObjectSnapshotImpl[ children.size() ] );
+            size += ARRAY_SIZE;
+        }
+        estimatedSize = size;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#absolutePath()
+     */
+    @Override
+    public String absolutePath() {
+        return path;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#booleanArray(java.lang.String)
+     */
+    @Override
+    public boolean[] booleanArray( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final boolean[] booleans = new boolean[ property.values.length ];
+        for ( int ndx = 0; ndx < booleans.length; ndx++ )
+            booleans[ ndx ] = property.booleanValue( property.values[ ndx ] );
+        return booleans;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#booleanValue(java.lang.String)
+     */
+    @Override
+    public Boolean booleanValue( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        return property.booleanValue( property.singleValue() );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#booleanValues(java.lang.String)
+     */
+    @Override
+    public Boolean[] booleanValues( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final Boolean[] vals = new Boolean[ property.values.length ];
+        for ( int ndx = 0; ndx < vals.length; ndx++ )
+            vals[ ndx ] = property.booleanValue( property.values[ ndx ] );
+        return vals;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#child(java.lang.String)
+     */
+    @Override
+    public ModelObject child( final String childName ) throws ModelerException {
+        CheckArg.isNotEmpty( childName, "childName" );
+        if ( children == null ) return repositoryObject().child( childName );
+        final int slash = childName.indexOf( '/' );
+        final String segment = slash < 0 ? childName : childName.substring( 0, slash );
+        String segmentName = segment;
+        int segmentIndex = 0;
+        if ( segment.endsWith( "]" ) && segment.indexOf( '[' ) > 0 ) {
+            segmentName = segment.substring( 0, segment.indexOf( '[' ) );
+            try {
+                segmentIndex = Integer.parseInt( segment.substring( segmentName.length() + 1, segment.length() - 1 ) ) - 1;
+            } catch ( final NumberFormatException e ) {
+                throw new IllegalArgumentException( e );
+            }
+        }
+        for ( final ModelObjectSnapshotImpl child : children ) {
+            if ( child.name.equals( segmentName ) && Math.max( child.index, 0 ) == segmentIndex ) {
+                if ( slash < 0 || slash == childName.length() - 1 ) return child;
+                return child.child( childName.substring( slash + 1 ) );
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#childHasSameNameSiblings(java.lang.String)
+     */
+    @Override
+    public boolean childHasSameNameSiblings( final String childName ) throws ModelerException {
+        return children( childName ).length > 1;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#children()
+     */
+    @Override
+    public ModelObject[] children() throws ModelerException {
+        if ( children == null ) return repositoryObject().children();
+        return children.length == 0 ? NO_CHILDREN : children.clone();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#children(java.lang.String)
+     */
+    @Override
+    public ModelObject[] children( final String childName ) throws ModelerException {
+        CheckArg.isNotEmpty( childName, "childName" );
+        if ( children == null ) return repositoryObject().children( childName );
+        final List< ModelObject > matches = new ArrayList<>();
+        for ( final ModelObjectSnapshotImpl child : children )
+            if ( matches( child.name, childName ) ) matches.add( child );
+        return matches.toArray( new ModelObject[ matches.size() ] );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#dateArray(java.lang.String)
+     */
+    @Override
+    public Calendar[] dateArray( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final Calendar[] dates = new Calendar[ property.values.length ];
+        for ( int ndx = 0; ndx < dates.length; ndx++ )
+            dates[ ndx ] = property.dateValue( property.values[ ndx ] );
+        return dates;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#decimalArray(java.lang.String)
+     */
+    @Override
+    public BigDecimal[] decimalArray( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final BigDecimal[] decimals = new BigDecimal[ property.values.length ];
+        for ( int ndx = 0; ndx < decimals.length; ndx++ )
+            decimals[ ndx ] = property.decimalValue( property.values[ ndx ] );
+        return decimals;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#doubleArray(java.lang.String)
+     */
+    @Override
+    public double[] doubleArray( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final double[] doubles = new double[ property.values.length ];
+        for ( int ndx = 0; ndx < doubles.length; ndx++ )
+            doubles[ ndx ] = property.doubleValue( property.values[ ndx ] );
+        return doubles;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals( final Object object ) {
+        if ( object == null || getClass() != object.getClass() ) return false;
+        return Objects.equals( id, ( ( ModelObjectSnapshotImpl ) object ).id );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObjectSnapshot#estimatedSize()
+     */
+    @Override
+    public long estimatedSize() {
+        return estimatedSize;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#hasChild(java.lang.String)
+     */
+    @Override
+    public boolean hasChild( final String childName ) throws ModelerException {
+        return child( childName ) != null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#hasChildren()
+     */
+    @Override
+    public boolean hasChildren() throws ModelerException {
+        if ( children == null ) return repositoryObject().hasChildren();
+        return children.length > 0;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash( id );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#hasProperties()
+     */
+    @Override
+    public boolean hasProperties() {
+        return propertyNames().length > 0;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#hasProperty(java.lang.String)
+     */
+    @Override
+    public boolean hasProperty( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        return propertiesByName.containsKey( propertyName );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#index()
+     */
+    @Override
+    public int index() {
+        return index;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#longArray(java.lang.String)
+     */
+    @Override
+    public long[] longArray( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final long[] longs = new long[ property.values.length ];
+        for ( int ndx = 0; ndx < longs.length; ndx++ )
+            longs[ ndx ] = property.longValue( property.values[ ndx ] );
+        return longs;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#longValue(java.lang.String)
+     */
+    @Override
+    public Long longValue( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        return property.longValue( property.singleValue() );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#longValues(java.lang.String)
+     */
+    @Override
+    public Long[] longValues( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final Long[] vals = new Long[ property.values.length ];
+        for ( int ndx = 0; ndx < vals.length; ndx++ )
+            vals[ ndx ] = property.longValue( property.values[ ndx ] );
+        return vals;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#mixinTypes()
+     */
+    @Override
+    public String[] mixinTypes() {
+        return mixinTypes.clone();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#model()
+     */
+    @Override
+    public Model model() {
+        return new ModelImpl( manager, modelId, modelPath );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#modelRelativePath()
+     */
+    @Override
+    public String modelRelativePath() {
+        return path.equals( modelPath ) ? "" : path.substring( modelPath.length() + 1 );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#name()
+     */
+    @Override
+    public String name() {
+        return name;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#primaryType()
+     */
+    @Override
+    public String primaryType() {
+        return primaryType;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#properties()
+     */
+    @Override
+    public Map< String, Object > properties() {
+        final Map< String, Object > valuesByName = new LinkedHashMap<>();
+        for ( final SnapshotProperty property : propertiesByName.values() ) {
+            if ( !property.name.startsWith( JcrLexicon.Namespace.PREFIX )
+                 && !property.name.startsWith( ModelerLexicon.NAMESPACE_PREFIX ) ) valuesByName.put( property.name, property.value() );
+        }
+        return Collections.unmodifiableMap( valuesByName );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#properties(java.lang.String[])
+     */
+    @Override
+    public Map< String, Object > properties( final String... propertyNames ) {
+        CheckArg.isNotNull( propertyNames, "propertyNames" );
+        final Map< String, Object > valuesByName = new LinkedHashMap<>();
+        for ( final String name : propertyNames ) {
+            CheckArg.isNotEmpty( name, "propertyName" );
+            final SnapshotProperty property = propertiesByName.get( name );
+            if ( property != null ) valuesByName.put( name, property.value() );
+        }
+        return Collections.unmodifiableMap( valuesByName );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#propertyHasMultipleValues(java.lang.String)
+     */
+    @Override
+    public boolean propertyHasMultipleValues( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        return property != null && property.multiple;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#propertyNames()
+     */
+    @Override
+    public String[] propertyNames() {
+        final List< String > names = new ArrayList<>();
+        for ( final String name : propertiesByName.keySet() ) {
+            if ( !name.startsWith( JcrLexicon.Namespace.PREFIX ) && !name.startsWith( ModelerLexicon.NAMESPACE_PREFIX ) )
+                names.add( name );
+        }
+        return names.toArray( new String[ names.size() ] );
+    }
+    
+    private ModelObjectImpl repositoryObject() {
+        return index < 0 ? new ModelImpl( manager, id, path ) : new ModelObjectImpl( manager, id, path, index );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#snapshot(int)
+     */
+    @Override
+    public ModelObjectSnapshot snapshot( final int depth ) throws ModelerException {
+        if ( this.depth < 0 || ( depth >= 0 && depth <= this.depth ) ) return this;
+        return repositoryObject().snapshot( depth );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#stringValue(java.lang.String)
+     */
+    @Override
+    public String stringValue( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        return property.singleValue().toString();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelObject#stringValues(java.lang.String)
+     */
+    @Override
+    public String[] stringValues( final String propertyName ) {
+        CheckArg.isNotEmpty( propertyName, "propertyName" );
+        final SnapshotProperty property = propertiesByName.get( propertyName );
+        if ( property == null ) return null;
+        final String[] vals = new String[ property.values.length ];
+        for ( int ndx = 0; ndx < vals.length; ndx++ )
+            vals[ ndx ] = property.values[ ndx ].toString();
+        return vals;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+    
+    private static final class SnapshotDate {
+        
+        final Calendar calendar;
+        final String text;
+        
+        SnapshotDate( final Value value ) throws RepositoryException {
+            calendar = ( Calendar ) value.getDate().clone();
+            text = value.getString();
+        }
+        
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+    
+    /**
+     * A detached copy of a property's values, which converts between value types following the same rules as JCR
+     */
+    private static final class SnapshotProperty {
+        
+        final String name;
+        final int type;
+        final boolean multiple;
+        final Object[] values;
+        final long estimatedSize;
+        
+        SnapshotProperty( final Property property ) throws RepositoryException {
+            name = property.getName();
+            type = property.getType();
+            multiple = property.isMultiple();
+            final Value[] vals = multiple ? property.getValues() : new Value[] { property.getValue() };
+            values = new Object[ vals.length ];
+            long size = OBJECT_SIZE + 5 * REFERENCE_SIZE + estimatedSize( name ) + ARRAY_SIZE + vals.length * REFERENCE_SIZE;
+            for ( int ndx = 0; ndx < vals.length; ndx++ ) {
+                switch ( type ) {
+                    case PropertyType.BOOLEAN:
+                        values[ ndx ] = vals[ ndx ].getBoolean();
+                        break;
+                    case PropertyType.LONG:
+                        values[ ndx ] = vals[ ndx ].getLong();
+                        size += OBJECT_SIZE;
+                        break;
+                    case PropertyType.DOUBLE:
+                        values[ ndx ] = vals[ ndx ].getDouble();
+                        size += OBJECT_SIZE;
+                        break;
+                    case PropertyType.DECIMAL:
+                        values[ ndx ] = vals[ ndx ].getDecimal();
+                        size += STRING_SIZE;
+                        break;
+                    case PropertyType.DATE:
+                        final SnapshotDate date = new SnapshotDate( vals[ ndx ] );
+                        values[ ndx ] = date;
+                        size += OBJECT_SIZE + 2 * REFERENCE_SIZE + CALENDAR_SIZE + estimatedSize( date.text );
+                        break;
+                    default:
+                        final String text = vals[ ndx ].getString();
+                        values[ ndx ] = text;
+                        size += estimatedSize( text );
+                }
+            }
+            estimatedSize = size;
+        }
+        
+        boolean booleanValue( final Object value ) {
+            if ( value instanceof Boolean ) return ( Boolean ) value;
+            if ( type == PropertyType.STRING || type == PropertyType.BINARY ) return Boolean.parseBoolean( ( String ) value );
+            throw incompatible( "a boolean" );
+        }
+        
+        Calendar dateValue( final Object value ) {
+            if ( value instanceof SnapshotDate ) return ( Calendar ) ( ( SnapshotDate ) value ).calendar.clone();
+            final Calendar calendar = Calendar.getInstance();
+            if ( value instanceof Number && type != PropertyType.BOOLEAN ) calendar.setTimeInMillis( ( ( Number ) value ).longValue() );
+            else if ( type == PropertyType.STRING || type == PropertyType.BINARY ) {
+                try {
+                    calendar.setTime( new SimpleDateFormat( ISO8601_FORMAT ).parse( ( ( String ) value ).trim() ) );
+                } catch ( final ParseException e ) {
+                    throw new IllegalArgumentException( e );
+                }
+            } else throw incompatible( "a date" );
+            return calendar;
+        }
+        
+        BigDecimal decimalValue( final Object value ) {
+            if ( value instanceof BigDecimal ) return ( BigDecimal ) value;
+            if ( value instanceof Long ) return BigDecimal.valueOf( ( Long ) value );
+            if ( value instanceof Double ) return BigDecimal.valueOf( ( Double ) value );
+            if ( value instanceof SnapshotDate ) return BigDecimal.valueOf( ( ( SnapshotDate ) value ).calendar.getTimeInMillis() );
+            if ( type == PropertyType.STRING || type == PropertyType.BINARY ) {
+                try {
+                    return new BigDecimal( ( ( String ) value ).trim() );
+                } catch ( final NumberFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                }
+            }
+            throw incompatible( "a decimal" );
+        }
+        
+        double doubleValue( final Object value ) {
+            if ( value instanceof Number && type != PropertyType.BOOLEAN ) return ( ( Number ) value ).doubleValue();
+            if ( value instanceof SnapshotDate ) return ( ( SnapshotDate ) value ).calendar.getTimeInMillis();
+            if ( type == PropertyType.STRING || type == PropertyType.BINARY ) {
+                try {
+                    return Double.parseDouble( ( ( String ) value ).trim() );
+                } catch ( final NumberFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                }
+            }
+            throw incompatible( "a double" );
+        }
+        
+        IllegalArgumentException incompatible( final String targetType ) {
+            return new IllegalArgumentException( ModelerI18n.incompatiblePropertyValue.text( PropertyType.nameFromValue( type ), name,
+                                                                                             targetType ) );
+        }
+        
+        long longValue( final Object value ) {
+            if ( value instanceof Number ) return ( ( Number ) value ).longValue();
+            if ( value instanceof SnapshotDate ) return ( ( SnapshotDate ) value ).calendar.getTimeInMillis();
+            if ( type == PropertyType.STRING || type == PropertyType.BINARY ) {
+                try {
+                    return Long.parseLong( ( ( String ) value ).trim() );
+                } catch ( final NumberFormatException e ) {
+                    throw new IllegalArgumentException( e );
+                }
+            }
+            throw incompatible( "a long" );
+        }
+        
+        Object singleValue() {
+            if ( multiple ) throw new IllegalArgumentException( ModelerI18n.propertyHasMultipleValues.text( name ) );
+            return values[ 0 ];
+        }
+        
+        Object value() {
+            if ( !multiple ) return value( values[ 0 ] );
+            final Object[] vals = new Object[ values.length ];
+            for ( int ndx = 0; ndx < vals.length; ndx++ )
+                vals[ ndx ] = value( values[ ndx ] );
+            return vals;
+        }
+        
+        Object value( final Object value ) {
+            // Calendars are mutable, so each caller gets its own copy
+            return value instanceof SnapshotDate ? ( ( SnapshotDate ) value ).calendar.clone() : value;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.modeshape.modeler.ModelerException;
+import org.polyglotter.common.Logger;
+
+/**
+ * A cache of the model type categories listed by each model type repository, kept in memory and in the system workspace so
+ * listings survive restarts. Expired listings are revalidated using conditional requests, repositories are fetched in parallel,
+ * and cached listings are served, however stale, when a repository can't be reached or the modeler is offline.
+ */
+final class ModelTypeCategoryCache {
+    
+    static final String CATEGORY_LISTINGS = "categoryListings";
+    private static final String CATEGORIES = "categories";
+    private static final String ETAG = "etag";
+    private static final String FETCHED = "fetched";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String URL = "url";
+    private static final int MAX_FETCHERS = 8;
+    
+    private static final Logger LOGGER = Logger.getLogger( ModelTypeCategoryCache.class );
+    
+    static String nodeName( final String repositoryUrl ) throws UnsupportedEncodingException {
+        // Asterisks are the only JCR-illegal characters left unencoded
+        return URLEncoder.encode( repositoryUrl, "UTF-8" ).replace( "*", "%2A" );
+    }
+    
+    private final ModelTypeManagerImpl modelTypeManager;
+    final ConcurrentMap< String, Listing > listingsByRepository = new ConcurrentHashMap<>();
+    volatile long ttl;
+    
+    ModelTypeCategoryCache( final ModelTypeManagerImpl modelTypeManager ) {
+        this.modelTypeManager = modelTypeManager;
+        ttl = modelTypeManager.manager.modelTypeCategoriesTtl;
+    }
+    
+    /**
+     * @param repositoryUrls
+     *        the model type repository URLs whose listed categories should be returned
+     * @return the model type categories listed by the supplied repositories
+     * @throws ModelerException
+     *         if a repository can't be reached and no listing for it has been cached
+     */
+    Set< String > categories( final List< URL > repositoryUrls ) throws ModelerException {
+        final Set< String > categories = new HashSet<>();
+        final List< URL > expiredRepositoryUrls = new ArrayList<>();
+        for ( final URL repositoryUrl : repositoryUrls ) {
+            final Listing listing = listingsByRepository.get( repositoryUrl.toString() );
+            if ( listing != null && ( modelTypeManager.offline() || !listing.expired( ttl ) ) ) categories.addAll( listing.categories );
+            else expiredRepositoryUrls.add( repositoryUrl );
+        }
+        if ( expiredRepositoryUrls.isEmpty() ) return categories;
+        if ( expiredRepositoryUrls.size() == 1 ) {
+            categories.addAll( listing( expiredRepositoryUrls.get( 0 ) ).categories );
+            return categories;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool( Math.min( expiredRepositoryUrls.size(), MAX_FETCHERS ) );
+        try {
+            final List< Future< Listing > > listings = new ArrayList<>();
+            for ( final URL repositoryUrl : expiredRepositoryUrls )
+                listings.add( executor.submit( new Callable< Listing >() {
+                    
+                    @Override
+                    public Listing call() throws ModelerException {
+                        return listing( repositoryUrl );
+                    }
+                } ) );
+            for ( final Future< Listing > listing : listings )
+                categories.addAll( listing.get().categories );
+            return categories;
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ModelerException( e );
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof ModelerException ) throw ( ModelerException ) e.getCause();
+            if ( e.getCause() instanceof RuntimeException ) throw ( RuntimeException ) e.getCause();
+            if ( e.getCause() instanceof Error ) throw ( Error ) e.getCause();
+            throw new ModelerException( e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private Listing fetch( final URL repositoryUrl,
+                           final Listing cachedListing ) throws IOException {
+        final ModelTypeRepositorySelector selector = modelTypeManager.repositorySelector;
+        final long start = System.nanoTime();
+        final URLConnection connection =
+            selector.connect( new URL( ModelTypeManagerImpl.path( repositoryUrl.toString(), ModelTypeManagerImpl.MODESHAPE_GROUP ) ) );
+        if ( cachedListing != null ) {
+            if ( cachedListing.etag != null ) connection.setRequestProperty( "If-None-Match", cachedListing.etag );
+            if ( cachedListing.lastModified != null ) connection.setRequestProperty( "If-Modified-Since", cachedListing.lastModified );
+        }
+        final InputStream stream;
+        try {
+            if ( cachedListing != null && connection instanceof HttpURLConnection
+                 && ( ( HttpURLConnection ) connection ).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED ) {
+                selector.record( repositoryUrl, start, false );
+                LOGGER.debug( "Model type categories not modified: %s", repositoryUrl );
+                return new Listing( cachedListing.categories, System.currentTimeMillis(), cachedListing.etag, cachedListing.lastModified );
+            }
+            stream = connection.getInputStream();
+            selector.record( repositoryUrl, start, false );
+        } catch ( final IOException e ) {
+            selector.record( repositoryUrl, start, true );
+            throw e;
+        }
+        final Set< String > categories = new HashSet<>();
+        try {
+            final Document doc = Jsoup.parse( stream, null, connection.getURL().toString() );
+            for ( final Element element : doc.getElementsMatchingOwnText( "sequencer-" ) ) {
+                final String href = element.attr( "href" );
+                categories.add( href.substring( href.indexOf( "sequencer-" ) + "sequencer-".length(), href.lastIndexOf( '/' ) ) );
+            }
+        } finally {
+            stream.close();
+        }
+        LOGGER.debug( "Fetched model type categories: %s", repositoryUrl );
+        return new Listing( Collections.unmodifiableSet( categories ),
+                            System.currentTimeMillis(),
+                            connection.getHeaderField( "ETag" ),
+                            connection.getHeaderField( "Last-Modified" ) );
+    }
+    
+    Listing listing( final URL repositoryUrl ) throws ModelerException {
+        final String key = repositoryUrl.toString();
+        Listing cachedListing = listingsByRepository.get( key );
+        if ( cachedListing == null ) {
+            cachedListing = load( key );
+            if ( cachedListing != null ) listingsByRepository.put( key, cachedListing );
+        }
+        if ( cachedListing != null && ( modelTypeManager.offline() || !cachedListing.expired( ttl ) ) ) return cachedListing;
+        if ( modelTypeManager.offline() ) {
+            LOGGER.debug( "Offline with no cached model type categories for repository: %s", repositoryUrl );
+            return Listing.EMPTY;
+        }
+        final Listing listing;
+        try {
+            listing = fetch( repositoryUrl, cachedListing );
+        } catch ( final IOException e ) {
+            if ( cachedListing == null ) throw new ModelerException( e );
+            LOGGER.debug( e, "Using stale model type categories for unreachable repository: %s", repositoryUrl );
+            return cachedListing;
+        }
+        listingsByRepository.put( key, listing );
+        save( key, listing );
+        return listing;
+    }
+    
+    private Listing load( final String repositoryUrl ) throws ModelerException {
+        return modelTypeManager.manager.run( modelTypeManager, new SystemTask< Listing >() {
+            
+            @Override
+            public Listing run( final Session session,
+                                final Node systemNode ) throws Exception {
+                final Node listingsNode = systemNode.getNode( CATEGORY_LISTINGS );
+                final String name = nodeName( repositoryUrl );
+                if ( !listingsNode.hasNode( name ) ) return null;
+                final Node node = listingsNode.getNode( name );
+                return new Listing( Collections.unmodifiableSet( modelTypeManager.strings( node.getProperty( CATEGORIES ) ) ),
+                                    node.getProperty( FETCHED ).getLong(),
+                                    node.hasProperty( ETAG ) ? node.getProperty( ETAG ).getString() : null,
+                                    node.hasProperty( LAST_MODIFIED ) ? node.getProperty( LAST_MODIFIED ).getString() : null );
+            }
+        } );
+    }
+    
+    private synchronized void save( final String repositoryUrl,
+                                    final Listing listing ) throws ModelerException {
+        modelTypeManager.manager.run( modelTypeManager, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                final Node listingsNode = systemNode.getNode( CATEGORY_LISTINGS );
+                final String name = nodeName( repositoryUrl );
+                final Node node = listingsNode.hasNode( name ) ? listingsNode.getNode( name ) : listingsNode.addNode( name );
+                node.setProperty( URL, repositoryUrl );
+                node.setProperty( CATEGORIES, listing.categories.toArray( new String[ listing.categories.size() ] ) );
+                node.setProperty( FETCHED, listing.fetched );
+                node.setProperty( ETAG, listing.etag );
+                node.setProperty( LAST_MODIFIED, listing.lastModified );
+                session.save();
+                return null;
+            }
+        } );
+    }
+    
+    /**
+     * The model type categories listed by a repository, along with the validators needed to revalidate them
+     */
+    static final class Listing {
+        
+        static final Listing EMPTY = new Listing( Collections.< String > emptySet(), 0, null, null );
+        
+        final Set< String > categories;
+        final long fetched;
+        final String etag;
+        final String lastModified;
+        
+        Listing( final Set< String > categories,
+                 final long fetched,
+                 final String etag,
+                 final String lastModified ) {
+            this.categories = categories;
+            this.fetched = fetched;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+        
+        boolean expired( final long ttl ) {
+            return System.currentTimeMillis() - fetched >= ttl;
+        }
+    }
+}
@@ -23,6 +23,7 @@
  */
 package org.modeshape.modeler.internal;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -41,20 +42,37 @@ import org.modeshape.modeler.ModelerException;
  */
 public final class ModelTypeImpl implements ModelType {
     
-    private final Manager manager;
-    final Class< ? > sequencerClass;
+    private final ModelTypeManagerImpl modelTypeManager;
+    final String sequencerClassName;
     private final String category;
     private final String name;
     private final Set< String > sourceFileExtensions = new HashSet<>();
+    private final Object sequencerLock = new Object();
+    volatile Sequencer sequencer;
+    private volatile Set< String > mimeTypes;
     
-    ModelTypeImpl( final Manager manager,
+    /**
+     * @param modelTypeManager
+     *        the model type manager that installed this model type
+     * @param category
+     *        this model type's category
+     * @param name
+     *        this model type's name
+     * @param sequencerClassName
+     *        the name of this model type's sequencer class, which isn't loaded until this model type's sequencer is first needed
+     * @param mimeTypes
+     *        the MIME types accepted by this model type's sequencer, or <code>null</code> if not yet known
+     */
+    ModelTypeImpl( final ModelTypeManagerImpl modelTypeManager,
                    final String category,
                    final String name,
-                   final Class< ? > sequencerClass ) {
-        this.manager = manager;
+                   final String sequencerClassName,
+                   final Set< String > mimeTypes ) {
+        this.modelTypeManager = modelTypeManager;
         this.category = category;
         this.name = name;
-        this.sequencerClass = sequencerClass;
+        this.sequencerClassName = sequencerClassName;
+        this.mimeTypes = mimeTypes == null ? null : Collections.unmodifiableSet( new HashSet<>( mimeTypes ) );
     }
     
     /**
@@ -67,6 +85,26 @@ public final class ModelTypeImpl implements ModelType {
         return category;
     }
     
+    /**
+     * @return the MIME types accepted by this model type's sequencer, or an empty set if it accepts all MIME types, if known without
+     *         creating its sequencer; otherwise <code>null</code>
+     */
+    Set< String > knownMimeTypes() {
+        return mimeTypes;
+    }
+    
+    /**
+     * @return the MIME types accepted by this model type's sequencer, or an empty set if it accepts all MIME types; never
+     *         <code>null</code>. The sequencer is only created if these weren't supplied when this model type was constructed.
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    Set< String > mimeTypes() throws ModelerException {
+        // Creating the sequencer records its MIME types
+        if ( mimeTypes == null ) sequencer();
+        return mimeTypes;
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -78,12 +116,40 @@ public final class ModelTypeImpl implements ModelType {
     }
     
     /**
+     * Discards this model type's cached sequencer, e.g., when the model type is uninstalled.
+     */
+    void clearSequencer() {
+        synchronized ( sequencerLock ) {
+            sequencer = null;
+        }
+    }
+    
+    /**
+     * ModeShape requires sequencers to be thread-safe, since it uses a single instance of each to sequence all applicable content,
+     * so the sequencer is created and initialized once, then shared by all callers until {@link #clearSequencer() cleared}.
+     * 
      * @return this model type's sequencer
      * @throws ModelerException
      *         if any problem occurs
      */
     public Sequencer sequencer() throws ModelerException {
-        return manager.run( new Task< Sequencer >() {
+        final Sequencer sequencer = this.sequencer;
+        if ( sequencer != null ) return sequencer;
+        final Sequencer newSequencer;
+        synchronized ( sequencerLock ) {
+            if ( this.sequencer != null ) return this.sequencer;
+            newSequencer = newSequencer();
+            this.sequencer = newSequencer;
+            if ( mimeTypes != null ) return newSequencer;
+            mimeTypes = Collections.unmodifiableSet( new HashSet<>( newSequencer.getAcceptedMimeTypes() ) );
+        }
+        modelTypeManager.mimeTypesResolved( this );
+        return newSequencer;
+    }
+    
+    private Sequencer newSequencer() throws ModelerException {
+        final Class< ? > sequencerClass = sequencerClass();
+        return modelTypeManager.manager.run( new Task< Sequencer >() {
             
             @Override
             public Sequencer run( final Session session ) throws Exception {
@@ -100,6 +166,15 @@ public final class ModelTypeImpl implements ModelType {
         } );
     }
     
+    /**
+     * @return this model type's sequencer class, loaded along with the rest of this model type's category upon first use
+     * @throws ModelerException
+     *         if the class cannot be loaded
+     */
+    Class< ? > sequencerClass() throws ModelerException {
+        return modelTypeManager.sequencerClass( this );
+    }
+    
     /**
      * {@inheritDoc}
      * 
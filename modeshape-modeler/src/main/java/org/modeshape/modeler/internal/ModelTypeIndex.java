@@ -0,0 +1,143 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.modeshape.modeler.ModelType;
+
+/**
+ * An immutable index of installed model types, rebuilt whenever model types are installed or uninstalled, or a model type's
+ * MIME types first become known, so that finding the model types applicable to an artifact, or finding model types by name or
+ * category, is a hash lookup rather than a scan over every installed type.
+ */
+final class ModelTypeIndex {
+    
+    static final ModelTypeIndex EMPTY = new ModelTypeIndex();
+    
+    private static void add( final Map< String, Set< ModelType > > modelTypesByKey,
+                             final String key,
+                             final ModelType type ) {
+        Set< ModelType > types = modelTypesByKey.get( key );
+        if ( types == null ) {
+            types = new HashSet<>();
+            modelTypesByKey.put( key, types );
+        }
+        types.add( type );
+    }
+    
+    private final Set< ModelType > modelTypes;
+    private final Map< String, ModelType > modelTypesByName;
+    private final Map< String, Set< ModelType > > modelTypesByCategory;
+    private final Map< String, Set< ModelType > > modelTypesByMimeType;
+    private final Set< ModelType > modelTypesForAnyMimeType;
+    
+    private ModelTypeIndex() {
+        modelTypes = Collections.emptySet();
+        modelTypesByName = Collections.emptyMap();
+        modelTypesByCategory = Collections.emptyMap();
+        modelTypesByMimeType = Collections.emptyMap();
+        modelTypesForAnyMimeType = Collections.emptySet();
+    }
+    
+    /**
+     * @param modelTypes
+     *        the installed model types
+     */
+    ModelTypeIndex( final Collection< ModelType > modelTypes ) {
+        this.modelTypes = Collections.unmodifiableSet( new HashSet<>( modelTypes ) );
+        final Map< String, ModelType > modelTypesByName = new HashMap<>();
+        final Map< String, Set< ModelType > > modelTypesByCategory = new HashMap<>();
+        final Map< String, Set< ModelType > > modelTypesByMimeType = new HashMap<>();
+        final Set< ModelType > modelTypesForAnyMimeType = new HashSet<>();
+        for ( final ModelType type : modelTypes ) {
+            modelTypesByName.put( type.name(), type );
+            add( modelTypesByCategory, type.category(), type );
+            // A sequencer that declares no MIME types accepts them all. Types whose MIME types aren't known until their sequencers are
+            // created are treated the same way, rather than creating their sequencers just to index them.
+            final Set< String > mimeTypes = ( ( ModelTypeImpl ) type ).knownMimeTypes();
+            if ( mimeTypes == null || mimeTypes.isEmpty() ) modelTypesForAnyMimeType.add( type );
+            else for ( final String mimeType : mimeTypes )
+                add( modelTypesByMimeType, mimeType, type );
+        }
+        this.modelTypesByName = modelTypesByName;
+        for ( final Entry< String, Set< ModelType > > entry : modelTypesByCategory.entrySet() )
+            entry.setValue( Collections.unmodifiableSet( entry.getValue() ) );
+        this.modelTypesByCategory = modelTypesByCategory;
+        this.modelTypesByMimeType = modelTypesByMimeType;
+        this.modelTypesForAnyMimeType = modelTypesForAnyMimeType;
+    }
+    
+    /**
+     * @return the categories of the indexed model types; never <code>null</code>
+     */
+    Set< String > categories() {
+        return Collections.unmodifiableSet( modelTypesByCategory.keySet() );
+    }
+    
+    /**
+     * @param name
+     *        a model type name
+     * @return the model type with the supplied name, or <code>null</code> if none is indexed
+     */
+    ModelType modelType( final String name ) {
+        return modelTypesByName.get( name );
+    }
+    
+    /**
+     * @return the indexed model types; never <code>null</code>
+     */
+    Set< ModelType > modelTypes() {
+        return modelTypes;
+    }
+    
+    /**
+     * @param category
+     *        a model type category
+     * @return the model types in the supplied category; never <code>null</code>
+     */
+    Set< ModelType > modelTypesForCategory( final String category ) {
+        final Set< ModelType > types = modelTypesByCategory.get( category );
+        return types == null ? Collections.< ModelType > emptySet() : types;
+    }
+    
+    /**
+     * @param mimeType
+     *        a MIME type, or <code>null</code> if unknown
+     * @return a new set of the model types whose sequencers accept the supplied MIME type; never <code>null</code>
+     */
+    Set< ModelType > modelTypesForMimeType( final String mimeType ) {
+        if ( mimeType == null ) return new HashSet<>( modelTypes );
+        final Set< ModelType > types = new HashSet<>( modelTypesForAnyMimeType );
+        final Set< ModelType > typesForMimeType = modelTypesByMimeType.get( mimeType.trim() );
+        if ( typesForMimeType != null ) types.addAll( typesForMimeType );
+        return types;
+    }
+}
@@ -23,26 +23,42 @@
  */
 package org.modeshape.modeler.internal;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Modifier;
+import java.io.OutputStream;
 import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
@@ -51,18 +67,15 @@ import javax.jcr.PropertyIterator;
 import javax.jcr.Repository;
 import javax.jcr.Session;
 import javax.jcr.Value;
-import javax.jcr.nodetype.NodeType;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.modeshape.common.util.CheckArg;
 import org.modeshape.jcr.JcrLexicon;
+import org.modeshape.jcr.api.Binary;
 import org.modeshape.jcr.api.JcrTools;
 import org.modeshape.jcr.api.sequencer.Sequencer;
 import org.modeshape.modeler.ModelType;
 import org.modeshape.modeler.ModelTypeManager;
+import org.modeshape.modeler.ModelTypeRepositoryStatistics;
 import org.modeshape.modeler.Modeler;
 import org.modeshape.modeler.ModelerException;
 import org.modeshape.modeler.ModelerI18n;
@@ -76,10 +89,16 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     private static final String MODEL_TYPE_REPOSITORIES = "modelTypeRepositories";
     static final String ZIPS = "zips";
     static final String JARS = "jars";
-    private static final String MODEL_TYPES = "modelTypes";
+    static final String MODEL_TYPES = "modelTypes";
     private static final String CATEGORY = "category";
+    private static final String CATEGORIES = "categories";
+    static final String MIME_TYPES = "mimeTypes";
+    private static final String PACKAGES = "packages";
+    static final String SHA256 = "sha256";
     private static final String SEQUENCER_CLASS = "sequencerClass";
     private static final String POTENTIAL_SEQUENCER_CLASS_NAMES = "potentialSequencerClassNamesByCategory";
+    // Library folders are named by their jar's SHA-1 hash
+    private static final Pattern SHA1_PATTERN = Pattern.compile( "[0-9a-f]{40}" );
     
     static final Logger LOGGER = Logger.getLogger( ModelTypeManagerImpl.class );
     
@@ -87,26 +106,43 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
      * 
      */
     public static final String MODESHAPE_GROUP = "org/modeshape";
-    static final URL[] EMPTY_URLS = new URL[ 0 ];
     
-    final Manager manager;
+    /**
+     * The manager of the modeler to which this model type manager belongs
+     */
+    public final Manager manager;
     
-    final LinkedList< URL > modelTypeRepositories = new LinkedList<>();
+    // Copied on write so installs can iterate the repositories while others are registered; changes synchronize on the list
+    final List< URL > modelTypeRepositories = new CopyOnWriteArrayList<>();
     
-    final Set< ModelType > modelTypes = new HashSet<>();
-    final LibraryClassLoader libraryClassLoader = new LibraryClassLoader();
-    final Map< String, String > potentialSequencerClassNamesByCategory = new HashMap<>();
+    final Map< String, String > potentialSequencerCategoriesByClassName = new HashMap<>();
     final Path library;
-    final Map< String, DependencyProcessor > dependencyProcessorsByModelTypeName = new HashMap< String, DependencyProcessor >();
+    volatile DependencyProcessorRegistry dependencyProcessors;
+    volatile ModelTypeIndex modelTypeIndex = ModelTypeIndex.EMPTY;
+    private final Object modelTypeIndexLock = new Object();
+    // The install or uninstall in progress for each category
+    final ConcurrentMap< String, FutureTask< Collection< String > > > installsByCategory = new ConcurrentHashMap<>();
+    private final ConcurrentMap< String, Object > jarLocks = new ConcurrentHashMap<>();
+    private final ReadWriteLock libraryLock = new ReentrantReadWriteLock();
+    final Map< String, CategoryClassLoader > classLoadersByCategory = new ConcurrentHashMap<>();
+    private boolean libraryPruned;
+    private volatile Map< String, Set< String > > categoriesByPackage;
+    final ModelTypeCategoryCache categoryCache;
+    final ModelTypeRepositorySelector repositorySelector = new ModelTypeRepositorySelector();
+    final LocalModelTypeRepositories localRepositories;
+    private volatile boolean offline;
     
     ModelTypeManagerImpl( final Manager manager ) throws ModelerException {
         this.manager = manager;
+        library = manager.library;
+        categoryCache = new ModelTypeCategoryCache( this );
+        localRepositories = new LocalModelTypeRepositories( manager.localModelTypeRepositories );
+        offline = manager.offline;
         try {
-            library = Files.createTempDirectory( null );
+            Files.createDirectories( library );
         } catch ( final IOException e ) {
             throw new ModelerException( e );
         }
-        library.toFile().deleteOnExit();
         manager.run( this, new SystemTask< Void >() {
             
             @Override
@@ -122,34 +158,28 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
                 }
                 for ( final Value val : systemNode.getProperty( MODEL_TYPE_REPOSITORIES ).getValues() )
                     modelTypeRepositories.add( new URL( val.getString() ) );
-                // Load jars
+                // Jars are only copied to the library and loaded when a model type in their category is first used
                 if ( !systemNode.hasNode( JARS ) ) {
                     systemNode.addNode( JARS );
                     session.save();
                 }
-                for ( final NodeIterator iter = systemNode.getNode( JARS ).getNodes(); iter.hasNext(); ) {
-                    final Node node = iter.nextNode();
-                    final Path jarPath = library.resolve( node.getName() );
-                    try ( InputStream stream =
-                        node.getNode( JcrLexicon.CONTENT.getString() ).getProperty( JcrLexicon.DATA.getString() ).getBinary()
-                            .getStream() ) {
-                        Files.copy( stream, jarPath );
-                    }
-                    jarPath.toFile().deleteOnExit();
-                    libraryClassLoader.addURL( jarPath.toUri().toURL() );
-                    LOGGER.debug( "Installed jar: %s", jarPath );
+                if ( !systemNode.hasNode( ModelTypeCategoryCache.CATEGORY_LISTINGS ) ) {
+                    systemNode.addNode( ModelTypeCategoryCache.CATEGORY_LISTINGS );
+                    session.save();
                 }
-                // Load model types
+                // Load model types without loading their sequencer classes
+                final List< ModelType > modelTypes = new ArrayList<>();
                 if ( !systemNode.hasNode( MODEL_TYPES ) ) {
                     systemNode.addNode( MODEL_TYPES );
                     session.save();
                 }
                 for ( final NodeIterator iter = systemNode.getNode( MODEL_TYPES ).getNodes(); iter.hasNext(); ) {
                     final Node node = iter.nextNode();
-                    modelTypes.add( new ModelTypeImpl( manager,
+                    modelTypes.add( new ModelTypeImpl( ModelTypeManagerImpl.this,
                                                        node.getProperty( CATEGORY ).getString(),
                                                        node.getName(),
-                                                       libraryClassLoader.loadClass( node.getProperty( SEQUENCER_CLASS ).getString() ) ) );
+                                                       node.getProperty( SEQUENCER_CLASS ).getString(),
+                                                       node.hasProperty( MIME_TYPES ) ? strings( node.getProperty( MIME_TYPES ) ) : null ) );
                 }
                 // Load potential sequencer class names
                 if ( !systemNode.hasNode( POTENTIAL_SEQUENCER_CLASS_NAMES ) ) {
@@ -158,15 +188,115 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
                 }
                 for ( final PropertyIterator iter = systemNode.getNode( POTENTIAL_SEQUENCER_CLASS_NAMES ).getProperties(); iter.hasNext(); ) {
                     final Property prop = iter.nextProperty();
-                    if ( prop.getName().indexOf( ':' ) < 0 ) potentialSequencerClassNamesByCategory.put( prop.getString(), prop.getName() );
+                    if ( prop.getName().indexOf( ':' ) < 0 ) potentialSequencerCategoriesByClassName.put( prop.getName(), prop.getString() );
                 }
+                modelTypeIndex = new ModelTypeIndex( modelTypes );
                 return null;
             }
         } );
     }
     
+    static String archiveName( final String category,
+                               final String version ) {
+        return "modeshape-sequencer-" + category + "-" + version + "-module-with-dependencies.zip";
+    }
+    
     String archiveName( final String category ) {
-        return "modeshape-sequencer-" + category + "-" + version() + "-module-with-dependencies.zip";
+        return archiveName( category, version() );
+    }
+    
+    static String archivePath( final String category,
+                               final String version ) {
+        return MODESHAPE_GROUP + "/modeshape-sequencer-" + category + '/' + version + '/' + archiveName( category, version );
+    }
+    
+    private static void await( final Future< ? > task ) throws ModelerException {
+        try {
+            task.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ModelerException( e );
+        } catch ( final ExecutionException e ) {
+            // The task's own caller reports its failure
+            LOGGER.debug( e.getCause(), "Awaited task failed" );
+        }
+    }
+    
+    Binary binary( final Node jarNode ) throws Exception {
+        return ( Binary ) jarNode.getNode( JcrLexicon.CONTENT.getString() ).getProperty( JcrLexicon.DATA.getString() ).getBinary();
+    }
+    
+    /**
+     * @param jarNode
+     *        a node containing an installed jar
+     * @return the categories using the supplied jar. Jars installed before categories were recorded only have the category that
+     *         first installed them.
+     * @throws Exception
+     *         if any problem occurs
+     */
+    Set< String > categories( final Node jarNode ) throws Exception {
+        if ( !jarNode.hasProperty( CATEGORIES ) )
+            return new HashSet<>( Collections.singleton( jarNode.getProperty( CATEGORY ).getString() ) );
+        return new HashSet<>( strings( jarNode.getProperty( CATEGORIES ) ) );
+    }
+    
+    private Map< String, Set< String > > categoriesByPackage() throws ModelerException {
+        Map< String, Set< String > > categoriesByPackage = this.categoriesByPackage;
+        if ( categoriesByPackage != null ) return categoriesByPackage;
+        categoriesByPackage = manager.run( this, new SystemTask< Map< String, Set< String > > >() {
+            
+            @Override
+            public Map< String, Set< String > > run( final Session session,
+                                                     final Node systemNode ) throws Exception {
+                final Map< String, Set< String > > categoriesByPackage = new HashMap<>();
+                for ( final NodeIterator iter = systemNode.getNode( JARS ).getNodes(); iter.hasNext(); ) {
+                    final Node node = iter.nextNode();
+                    if ( !node.hasProperty( PACKAGES ) ) continue;
+                    final Set< String > categories = categories( node );
+                    for ( final String pkg : strings( node.getProperty( PACKAGES ) ) ) {
+                        Set< String > pkgCategories = categoriesByPackage.get( pkg );
+                        if ( pkgCategories == null ) {
+                            pkgCategories = new HashSet<>();
+                            categoriesByPackage.put( pkg, pkgCategories );
+                        }
+                        pkgCategories.addAll( categories );
+                    }
+                }
+                return categoriesByPackage;
+            }
+        } );
+        this.categoriesByPackage = categoriesByPackage;
+        return categoriesByPackage;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#connectTimeout()
+     */
+    @Override
+    public int connectTimeout() {
+        return repositorySelector.connectTimeout;
+    }
+    
+    private static void delete( final Path folder ) throws IOException {
+        Files.walkFileTree( folder, new SimpleFileVisitor< Path >() {
+            
+            @Override
+            public FileVisitResult postVisitDirectory( final Path directory,
+                                                       final IOException e ) throws IOException {
+                if ( e != null ) throw e;
+                Files.delete( directory );
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFile( final Path file,
+                                              final BasicFileAttributes attributes ) throws IOException {
+                Files.delete( file );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
     }
     
     /**
@@ -205,6 +335,82 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
         } );
     }
     
+    /**
+     * @param category
+     *        the category of the class loader unable to find the supplied class in its own jars
+     * @param className
+     *        the name of a class
+     * @return the supplied class, loaded from another installed category containing the class's package
+     * @throws ClassNotFoundException
+     *         if no other installed category contains the class
+     */
+    Class< ? > dependencyClass( final String category,
+                                final String className ) throws ClassNotFoundException {
+        final List< CategoryClassLoader > classLoaders = dependencyClassLoaders( category, className.replace( '.', '/' ) + ".class" );
+        if ( classLoaders.isEmpty() ) throw new ClassNotFoundException( className );
+        return classLoaders.get( 0 ).loadLocalClass( className );
+    }
+    
+    private List< CategoryClassLoader > dependencyClassLoaders( final String category,
+                                                                final String entryName ) {
+        final List< CategoryClassLoader > classLoaders = new ArrayList<>();
+        try {
+            final Set< String > categories = categoriesByPackage().get( CategoryClassLoader.packageName( entryName ) );
+            if ( categories == null ) return classLoaders;
+            for ( final String dependencyCategory : categories ) {
+                if ( dependencyCategory.equals( category ) ) continue;
+                final CategoryClassLoader classLoader = loadCategory( dependencyCategory );
+                if ( classLoader.contains( entryName ) ) classLoaders.add( classLoader );
+            }
+        } catch ( final ModelerException e ) {
+            LOGGER.debug( e, "Unable to find %s in categories other than %s", entryName, category );
+        }
+        return classLoaders;
+    }
+    
+    /**
+     * @param category
+     *        the category of the class loader unable to find the supplied resource in its own jars
+     * @param name
+     *        the name of a resource
+     * @return the URL to the supplied resource in another installed category containing the resource's package, or
+     *         <code>null</code> if not found
+     */
+    URL dependencyResource( final String category,
+                            final String name ) {
+        for ( final CategoryClassLoader classLoader : dependencyClassLoaders( category, name ) ) {
+            final URL url = classLoader.findLocalResource( name );
+            if ( url != null ) return url;
+        }
+        return null;
+    }
+    
+    /**
+     * @param category
+     *        the category of the class loader whose own jars have already been searched for the supplied resource
+     * @param name
+     *        the name of a resource
+     * @return the URLs to the supplied resource in every other installed category containing the resource's package; never
+     *         <code>null</code>
+     */
+    List< URL > dependencyResources( final String category,
+                                     final String name ) {
+        final List< URL > urls = new ArrayList<>();
+        for ( final CategoryClassLoader classLoader : dependencyClassLoaders( category, name ) )
+            urls.addAll( classLoader.findLocalResources( name ) );
+        return urls;
+    }
+    
+    /**
+     * @param modelType
+     *        the model type whose dependency processor is being requested (cannot be <code>null</code>)
+     * @return the dependency processor or <code>null</code> if not found
+     */
+    public DependencyProcessor dependencyProcessor( final ModelType modelType ) {
+        CheckArg.isNotNull( modelType, "modelType" );
+        return dependencyProcessors().processor( modelType.name() );
+    }
+    
     /**
      * @param modelNode
      *        the model node whose dependency processor is being requested (cannot be <code>null</code>)
@@ -216,25 +422,46 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
         CheckArg.isNotNull( modelNode, "modelNode" );
         
         try {
-            boolean foundMixin = false;
-            
-            for ( final NodeType mixin : modelNode.getMixinNodeTypes() ) {
-                if ( ModelerLexicon.MODEL_MIXIN.equals( mixin.getName() ) ) {
-                    foundMixin = true;
-                    break;
-                }
-            }
-            
-            if ( !foundMixin ) {
+            if ( !modelNode.isNodeType( ModelerLexicon.MODEL_MIXIN ) ) {
                 throw new ModelerException( ModelerI18n.mustBeModelNode, modelNode.getName() );
             }
             
-            return dependencyProcessorsByModelTypeName.get( modelNode.getPath() );
+            if ( !modelNode.hasProperty( ModelerLexicon.MODEL_TYPE ) ) return null;
+            return dependencyProcessors().processor( modelNode.getProperty( ModelerLexicon.MODEL_TYPE ).getString() );
         } catch ( final Exception e ) {
             throw new ModelerException( e );
         }
     }
     
+    /**
+     * Discovers the dependency processors declared as services on this class's class path the first time it is called.
+     * 
+     * @return the registry of dependency processors by model type name; never <code>null</code>
+     */
+    DependencyProcessorRegistry dependencyProcessors() {
+        DependencyProcessorRegistry dependencyProcessors = this.dependencyProcessors;
+        if ( dependencyProcessors == null ) {
+            synchronized ( this ) {
+                dependencyProcessors = this.dependencyProcessors;
+                if ( dependencyProcessors == null ) {
+                    dependencyProcessors = new DependencyProcessorRegistry( ModelTypeManagerImpl.class.getClassLoader() );
+                    this.dependencyProcessors = dependencyProcessors;
+                }
+            }
+        }
+        return dependencyProcessors;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#hedgeDelay()
+     */
+    @Override
+    public long hedgeDelay() {
+        return repositorySelector.hedgeDelay;
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -243,6 +470,37 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public Collection< String > install( final String category ) throws ModelerException {
         CheckArg.isNotEmpty( category, "category" );
+        // Concurrent installs of the same category share a single install, while different categories install in parallel
+        final FutureTask< Collection< String > > install = new FutureTask<>( new Callable< Collection< String > >() {
+            
+            @Override
+            public Collection< String > call() throws ModelerException {
+                return installCategory( category );
+            }
+        } );
+        while ( true ) {
+            final FutureTask< Collection< String > > existingTask = installsByCategory.putIfAbsent( category, install );
+            if ( existingTask == null ) {
+                try {
+                    install.run();
+                } finally {
+                    installsByCategory.remove( category, install );
+                }
+                return result( install );
+            }
+            if ( !( existingTask instanceof Uninstall ) ) {
+                LOGGER.debug( "Waiting for concurrent install of category %s", category );
+                return result( existingTask );
+            }
+            // Install the category afresh once it has been completely uninstalled
+            LOGGER.debug( "Waiting for concurrent uninstall of category %s", category );
+            await( existingTask );
+            // The finished task's place can be freed without waiting for its own thread to do so
+            installsByCategory.remove( category, existingTask );
+        }
+    }
+    
+    Collection< String > installCategory( final String category ) throws ModelerException {
         LOGGER.debug( "Installing model types from category %s", category );
         try {
             final String archiveName = archiveName( category );
@@ -260,138 +518,122 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
                             }
                     return false;
                 }
-            } ) ) return Collections.unmodifiableCollection( potentialSequencerClassNamesByCategory.values() );
-            final Path archivePath = library.resolve( archiveName );
-            final String sequencerArchivePath =
-                MODESHAPE_GROUP + "/modeshape-sequencer-" + category + '/' + version() + '/' + archiveName;
-            for ( final URL repositoryUrl : modelTypeRepositories ) {
-                final URL url = new URL( path( repositoryUrl.toString(), sequencerArchivePath ) );
-                InputStream urlStream = null;
-                IOException err = null;
-                try {
+            } ) ) return potentialSequencerClassNames();
+            final String sequencerArchivePath = archivePath( category, version() );
+            // Read the archive in place from a local repository if possible, otherwise from whichever remote repository responds
+            // first, hedging slow repositories with the next fastest
+            final List< URL > repositoryUrls = new ArrayList<>( modelTypeRepositories );
+            final Path localArchive = localRepositories.resolve( repositoryUrls, sequencerArchivePath );
+            final InputStream urlStream;
+            if ( localArchive != null ) urlStream = LocalModelTypeRepositories.open( localArchive );
+            else if ( offline ) urlStream = null;
+            else urlStream = repositorySelector.open( remoteModelTypeRepositories( repositoryUrls ), sequencerArchivePath );
+            if ( urlStream == null ) throw new IllegalArgumentException( ModelerI18n.unableToFindModelTypeCategory.text( category ) );
+            final List< Path > jarPaths = new ArrayList<>();
+            final List< Path > newJarPaths = new ArrayList<>();
+            // Read the archive once, as it's downloaded, streaming each jar into the repository and the library together
+            try ( final ZipInputStream archive = new ZipInputStream( urlStream ) ) {
+                for ( ZipEntry archiveEntry = archive.getNextEntry(); archiveEntry != null; archiveEntry = archive.getNextEntry() ) {
+                    if ( archiveEntry.isDirectory() ) continue;
+                    final String name = archiveEntry.getName().toLowerCase();
+                    if ( name.contains( "test" ) || name.contains( "source" ) || !name.endsWith( ".jar" ) ) continue;
+                    final String jarName = archiveEntry.getName().substring( archiveEntry.getName().lastIndexOf( '/' ) + 1 );
+                    final Path jarPath;
+                    // Categories sharing a jar may be installed concurrently, but only one may add or update the jar's node
+                    libraryLock.readLock().lock();
                     try {
-                        urlStream = url.openStream();
-                    } catch ( final IOException e ) {
-                        continue;
+                        synchronized ( jarLock( jarName ) ) {
+                            jarPath = manager.run( this, new SystemTask< Path >() {
+                                
+                                @Override
+                                public Path run( final Session session,
+                                                 final Node systemNode ) throws Exception {
+                                    final Node jarsNode = systemNode.getNode( JARS );
+                                    if ( jarsNode.hasNode( jarName ) ) {
+                                        // Record that this category also uses the jar, so it's loaded along with this category
+                                        final Node node = jarsNode.getNode( jarName );
+                                        final Set< String > categories = categories( node );
+                                        categories.add( category );
+                                        node.setProperty( CATEGORIES, categories.toArray( new String[ categories.size() ] ) );
+                                        session.save();
+                                        jarPaths.add( libraryJar( node ) );
+                                        return null;
+                                    }
+                                    return uploadJar( session, jarsNode, jarName, category, archive );
+                                }
+                            } );
+                        }
+                    } finally {
+                        libraryLock.readLock().unlock();
                     }
-                    Files.copy( urlStream, archivePath );
-                } catch ( final IOException e ) {
-                    err = e;
-                } finally {
-                    if ( urlStream != null ) try {
-                        urlStream.close();
-                    } catch ( final IOException e ) {
-                        if ( err == null ) throw e;
-                        err.addSuppressed( e );
-                        throw err;
+                    if ( jarPath == null ) {
+                        LOGGER.debug( "Jar already installed: %s", jarName );
+                        continue;
                     }
+                    jarPaths.add( jarPath );
+                    newJarPaths.add( jarPath );
+                    LOGGER.debug( "Installed jar: %s", jarPath );
                 }
-                try ( final ZipFile archive = new ZipFile( archivePath.toFile() ) ) {
-                    for ( final Enumeration< ? extends ZipEntry > archiveIter = archive.entries(); archiveIter.hasMoreElements(); ) {
-                        final ZipEntry archiveEntry = archiveIter.nextElement();
-                        if ( archiveEntry.isDirectory() ) continue;
-                        String name = archiveEntry.getName().toLowerCase();
-                        if ( name.contains( "test" ) || name.contains( "source" ) || !name.endsWith( ".jar" ) ) continue;
-                        final Path jarPath =
-                            library.resolve( archiveEntry.getName().substring( archiveEntry.getName().lastIndexOf( '/' ) + 1 ) );
-                        if ( jarPath.toFile().exists() ) {
-                            LOGGER.debug( "Jar already installed: %s", jarPath );
+                // The new jars' packages may satisfy the dependencies of other categories
+                categoriesByPackage = null;
+                final CategoryClassLoader classLoader = newClassLoader( category, jarPaths );
+                // Potential sequencers are shared by all categories, so they're only tested by one install at a time
+                synchronized ( potentialSequencerCategoriesByClassName ) {
+                    for ( final String className : new SequencerDiscovery( classLoader ).candidates( newJarPaths ) ) {
+                        potentialSequencerCategoriesByClassName.put( className, category );
+                        LOGGER.debug( "Potential sequencer: %s", className );
+                    }
+                    // Test this category's potential sequencers along with any left over from categories that may depend upon it
+                    for ( final Iterator< Entry< String, String > > iter =
+                        potentialSequencerCategoriesByClassName.entrySet().iterator(); iter.hasNext(); ) {
+                        final Entry< String, String > entry = iter.next();
+                        final CategoryClassLoader potentialClassLoader = loadCategory( entry.getValue() );
+                        final Boolean sequencer = new SequencerDiscovery( potentialClassLoader ).isSequencer( entry.getKey() );
+                        // Leave class for re-testing after later installs if its superclass can't be found yet
+                        if ( sequencer == null ) continue;
+                        if ( sequencer ) try {
+                            installModelType( entry.getValue(), potentialClassLoader.loadClass( entry.getKey() ) );
+                        } catch ( final NoClassDefFoundError | ClassNotFoundException e ) {
+                            LOGGER.debug( "Unable to load potential sequencer %s: %s", entry.getKey(), e );
                             continue;
                         }
-                        manager.run( this, new SystemTask< Void >() {
-                            
-                            @Override
-                            public Void run( final Session session,
-                                             final Node systemNode ) throws Exception {
-                                try ( InputStream stream = archive.getInputStream( archiveEntry ) ) {
-                                    final Node node =
-                                        new JcrTools().uploadFile( session,
-                                                                   systemNode.getPath() + '/' + JARS + '/'
-                                                                                   + jarPath.getFileName().toString(),
-                                                                   stream );
-                                    node.addMixin( ModelerLexicon.UNSTRUCTURED_MIXIN );
-                                    node.setProperty( CATEGORY, category );
-                                    session.save();
-                                }
-                                return null;
-                            }
-                        } );
-                        try ( InputStream stream = archive.getInputStream( archiveEntry ) ) {
-                            Files.copy( stream, jarPath );
-                        }
-                        jarPath.toFile().deleteOnExit();
-                        libraryClassLoader.addURL( jarPath.toUri().toURL() );
-                        LOGGER.debug( "Installed jar: %s", jarPath );
-                        try ( final ZipFile jar = new ZipFile( jarPath.toFile() ) ) {
-                            for ( final Enumeration< ? extends ZipEntry > jarIter = jar.entries(); jarIter.hasMoreElements(); ) {
-                                final ZipEntry jarEntry = jarIter.nextElement();
-                                if ( jarEntry.isDirectory() ) continue;
-                                name = jarEntry.getName();
-                                if ( jarPath.getFileName().toString().contains( "sequencer" ) && name.endsWith( "Sequencer.class" ) ) {
-                                    potentialSequencerClassNamesByCategory.put( category, name.replace( '/', '.' )
-                                                                                              .substring( 0,
-                                                                                                          name.length() - ".class".length() ) );
-                                    LOGGER.debug( "Potential sequencer: %s", name );
-                                }
-                            }
-                        }
+                        iter.remove();
                     }
-                    for ( final Iterator< String > iter = potentialSequencerClassNamesByCategory.values().iterator(); iter.hasNext(); )
-                        try {
-                            final Class< ? > sequencerClass = libraryClassLoader.loadClass( iter.next() );
-                            if ( Sequencer.class.isAssignableFrom( sequencerClass )
-                                 && !Modifier.isAbstract( sequencerClass.getModifiers() ) ) {
-                                String name =
-                                    Modeler.class.getPackage().getName() + '.' + category + '.' + sequencerClass.getSimpleName();
-                                name =
-                                    name.endsWith( "Sequencer" ) ? name.substring( 0, name.length() - "Sequencer".length() ) : name;
-                                final ModelTypeImpl type = new ModelTypeImpl( manager, category, name, sequencerClass );
-                                modelTypes.add( type );
-                                manager.run( this, new SystemTask< Void >() {
-                                    
-                                    @Override
-                                    public Void run( final Session session,
-                                                     final Node systemNode ) throws Exception {
-                                        final Node node = systemNode.getNode( MODEL_TYPES ).addNode( type.name() );
-                                        node.setProperty( SEQUENCER_CLASS, sequencerClass.getName() );
-                                        node.setProperty( CATEGORY, category );
-                                        session.save();
-                                        return null;
-                                    }
-                                } );
-                            }
-                            iter.remove();
-                        } catch ( final NoClassDefFoundError | ClassNotFoundException ignored ) {
-                            // Class will be re-tested as a Sequencer when the next archive is installed
-                        }
                 }
-                archivePath.toFile().delete();
-                manager.run( this, new SystemTask< Void >() {
-                    
-                    @Override
-                    public Void run( final Session session,
-                                     final Node systemNode ) throws Exception {
-                        // Save that archive has been installed
-                        final Value[] vals =
-                            systemNode.hasProperty( ZIPS ) ? systemNode.getProperty( ZIPS ).getValues() : new Value[ 0 ];
-                        final Value[] newVals = new Value[ vals.length + 1 ];
-                        System.arraycopy( vals, 0, newVals, 0, vals.length );
-                        newVals[ vals.length ] = session.getValueFactory().createValue( archiveName );
-                        systemNode.setProperty( ZIPS, newVals );
-                        // Save potential class names
-                        final Node node = systemNode.getNode( POTENTIAL_SEQUENCER_CLASS_NAMES );
-                        for ( final Entry< String, String > entry : potentialSequencerClassNamesByCategory.entrySet() )
-                            if ( entry.getKey().indexOf( ':' ) < 0 ) node.setProperty( entry.getValue(), entry.getKey() );
-                        session.save();
-                        return null;
-                    }
-                } );
-                return Collections.unmodifiableCollection( potentialSequencerClassNamesByCategory.values() );
             }
+            return recordInstall( archiveName );
         } catch ( final IOException e ) {
             throw new ModelerException( e );
         }
-        throw new IllegalArgumentException( ModelerI18n.unableToFindModelTypeCategory.text( category ) );
+    }
+    
+    private Object jarLock( final String jarName ) {
+        final Object lock = new Object();
+        final Object existingLock = jarLocks.putIfAbsent( jarName, lock );
+        return existingLock == null ? lock : existingLock;
+    }
+    
+    private void installModelType( final String category,
+                                   final Class< ? > sequencerClass ) throws ModelerException {
+        String name = Modeler.class.getPackage().getName() + '.' + category + '.' + sequencerClass.getSimpleName();
+        name = name.endsWith( "Sequencer" ) ? name.substring( 0, name.length() - "Sequencer".length() ) : name;
+        final ModelTypeImpl type = new ModelTypeImpl( this, category, name, sequencerClass.getName(), null );
+        registerModelType( type );
+        // Persist accepted MIME types so later sessions can index this type without loading its sequencer
+        final Set< String > mimeTypes = type.mimeTypes();
+        manager.run( this, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                final Node node = systemNode.getNode( MODEL_TYPES ).addNode( type.name() );
+                node.setProperty( SEQUENCER_CLASS, sequencerClass.getName() );
+                node.setProperty( CATEGORY, category );
+                node.setProperty( MIME_TYPES, mimeTypes.toArray( new String[ mimeTypes.size() ] ) );
+                session.save();
+                return null;
+            }
+        } );
     }
     
     /**
@@ -401,20 +643,120 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
      */
     @Override
     public Set< String > installableModelTypeCategories() throws ModelerException {
-        final Set< String > categories = new HashSet<>();
-        for ( final URL repositoryUrl : modelTypeRepositories ) {
-            try {
-                final Document doc = Jsoup.connect( path( repositoryUrl.toString(), MODESHAPE_GROUP ) ).get();
-                final Elements elements = doc.getElementsMatchingOwnText( "sequencer-" );
-                for ( final Element element : elements ) {
-                    final String href = element.attr( "href" );
-                    categories.add( href.substring( href.indexOf( "sequencer-" ) + "sequencer-".length(), href.lastIndexOf( '/' ) ) );
+        final List< URL > repositoryUrls = new ArrayList<>( modelTypeRepositories );
+        final Set< String > categories;
+        try {
+            categories = localRepositories.categories( repositoryUrls, version() );
+        } catch ( final IOException e ) {
+            throw new ModelerException( e );
+        }
+        categories.addAll( categoryCache.categories( remoteModelTypeRepositories( repositoryUrls ) ) );
+        return categories;
+    }
+    
+    /**
+     * @param jarNode
+     *        a node containing an installed jar
+     * @return the path to the jar in the library, copied there from the supplied node only if the library doesn't already contain
+     *         the same content
+     * @throws Exception
+     *         if any problem occurs
+     */
+    Path libraryJar( final Node jarNode ) throws Exception {
+        final Path jarPath = libraryPath( jarNode );
+        final Binary binary = binary( jarNode );
+        // The library path is keyed by the jar's hash, so a jar left there is only reused if it still has that hash
+        if ( Files.isRegularFile( jarPath ) && sha1( jarPath ).equals( binary.getHexHash() ) ) {
+            LOGGER.debug( "Jar already in library: %s", jarPath );
+            return jarPath;
+        }
+        Files.createDirectories( jarPath.getParent() );
+        // Copy to a temporary file first so an interrupted copy never leaves a partial jar under its content's hash
+        final Path tempPath = Files.createTempFile( jarPath.getParent(), null, null );
+        try ( InputStream stream = binary.getStream() ) {
+            Files.copy( stream, tempPath, StandardCopyOption.REPLACE_EXISTING );
+            Files.move( tempPath, jarPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tempPath );
+        }
+        return jarPath;
+    }
+    
+    /**
+     * @param jarNode
+     *        a node containing an installed jar
+     * @return the path to the jar within a library folder named after the hash of the jar's content
+     * @throws Exception
+     *         if any problem occurs
+     */
+    Path libraryPath( final Node jarNode ) throws Exception {
+        return library.resolve( binary( jarNode ).getHexHash() ).resolve( jarNode.getName() );
+    }
+    
+    /**
+     * Copies the jars used by the supplied category to the library, if necessary, and creates a class loader for them. The first
+     * time any category is loaded, library folders no longer referenced by an installed jar are also pruned.
+     * 
+     * @param category
+     *        an installed category
+     * @return the supplied category's class loader
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    synchronized CategoryClassLoader loadCategory( final String category ) throws ModelerException {
+        final CategoryClassLoader classLoader = classLoadersByCategory.get( category );
+        if ( classLoader != null ) return classLoader;
+        if ( !libraryPruned ) {
+            pruneLibrary();
+            libraryPruned = true;
+        }
+        return manager.run( this, new SystemTask< CategoryClassLoader >() {
+            
+            @Override
+            public CategoryClassLoader run( final Session session,
+                                            final Node systemNode ) throws Exception {
+                final List< Path > jarPaths = new ArrayList<>();
+                for ( final NodeIterator iter = systemNode.getNode( JARS ).getNodes(); iter.hasNext(); ) {
+                    final Node node = iter.nextNode();
+                    if ( categories( node ).contains( category ) ) {
+                        final Path jarPath = libraryJar( node );
+                        jarPaths.add( jarPath );
+                        LOGGER.debug( "Loaded jar: %s", jarPath );
+                    }
                 }
-            } catch ( final IOException e ) {
-                throw new ModelerException( e );
+                return newClassLoader( category, jarPaths );
             }
+        } );
+    }
+    
+    /**
+     * Re-indexes the supplied model type, whose MIME types have just become known from its newly created sequencer, and persists
+     * them so later sessions can index it without creating its sequencer.
+     * 
+     * @param type
+     *        an installed model type
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    void mimeTypesResolved( final ModelTypeImpl type ) throws ModelerException {
+        synchronized ( modelTypeIndexLock ) {
+            if ( modelTypeIndex.modelType( type.name() ) != type ) return;
+            modelTypeIndex = new ModelTypeIndex( modelTypeIndex.modelTypes() );
         }
-        return categories;
+        final Set< String > mimeTypes = type.mimeTypes();
+        manager.run( this, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                final Node modelTypesNode = systemNode.getNode( MODEL_TYPES );
+                // A newly installed type's node is only created once its MIME types are known
+                if ( !modelTypesNode.hasNode( type.name() ) ) return null;
+                modelTypesNode.getNode( type.name() ).setProperty( MIME_TYPES, mimeTypes.toArray( new String[ mimeTypes.size() ] ) );
+                session.save();
+                return null;
+            }
+        } );
     }
     
     /**
@@ -425,9 +767,7 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public ModelType modelType( final String name ) {
         CheckArg.isNotEmpty( name, "name" );
-        for ( final ModelType type : modelTypes )
-            if ( name.equals( type.name() ) ) return type;
-        return null;
+        return modelTypeIndex.modelType( name );
     }
     
     /**
@@ -437,10 +777,7 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
      */
     @Override
     public Set< String > modelTypeCategories() {
-        final Set< String > categories = new HashSet<>();
-        for ( final ModelType type : modelTypes )
-            categories.add( type.category() );
-        return categories;
+        return modelTypeIndex.categories();
     }
     
     /**
@@ -453,6 +790,16 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
         return Collections.unmodifiableList( modelTypeRepositories );
     }
     
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#modelTypeRepositoryStatistics()
+     */
+    @Override
+    public List< ModelTypeRepositoryStatistics > modelTypeRepositoryStatistics() {
+        return repositorySelector.statistics( new ArrayList<>( modelTypeRepositories ) );
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -460,7 +807,8 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
      */
     @Override
     public Set< ModelType > modelTypes() {
-        return Collections.unmodifiableSet( modelTypes );
+        // Readers never block, since installs and uninstalls publish a new index rather than changing the current one
+        return modelTypeIndex.modelTypes();
     }
     
     /**
@@ -471,13 +819,8 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
      *         if any problem occurs
      */
     public Set< ModelType > modelTypes( final Node fileNode ) throws Exception {
-        final Set< ModelType > applicableModelTypes = new HashSet<>();
-        for ( final ModelType type : modelTypes() )
-            if ( ( ( ModelTypeImpl ) type ).sequencer()
-                                           .isAccepted( fileNode.getNode( JcrLexicon.CONTENT.getString() )
-                                                                .getProperty( JcrLexicon.MIMETYPE.getString() ).getString() ) )
-                applicableModelTypes.add( type );
-        return applicableModelTypes;
+        return modelTypeIndex.modelTypesForMimeType( fileNode.getNode( JcrLexicon.CONTENT.getString() )
+                                                             .getProperty( JcrLexicon.MIMETYPE.getString() ).getString() );
     }
     
     /**
@@ -505,10 +848,7 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public Set< ModelType > modelTypesForCategory( final String category ) {
         CheckArg.isNotEmpty( category, "category" );
-        final Set< ModelType > types = new HashSet<>();
-        for ( final ModelType type : modelTypes )
-            if ( category.equals( type.category() ) ) types.add( type );
-        return types;
+        return modelTypeIndex.modelTypesForCategory( category );
     }
     
     /**
@@ -519,11 +859,13 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public List< URL > moveModelTypeRepositoryDown( final URL repositoryUrl ) throws ModelerException {
         CheckArg.isNotNull( repositoryUrl, "repositoryUrl" );
-        final int ndx = modelTypeRepositories.indexOf( repositoryUrl );
-        if ( ndx < 0 ) throw new IllegalArgumentException( ModelerI18n.urlNotFound.text( repositoryUrl ) );
-        modelTypeRepositories.remove( ndx );
-        modelTypeRepositories.add( Math.min( ndx + 1, modelTypeRepositories.size() ), repositoryUrl );
-        saveModelTypeRepositories();
+        synchronized ( modelTypeRepositories ) {
+            final int ndx = modelTypeRepositories.indexOf( repositoryUrl );
+            if ( ndx < 0 ) throw new IllegalArgumentException( ModelerI18n.urlNotFound.text( repositoryUrl ) );
+            modelTypeRepositories.remove( ndx );
+            modelTypeRepositories.add( Math.min( ndx + 1, modelTypeRepositories.size() ), repositoryUrl );
+            saveModelTypeRepositories();
+        }
         return modelTypeRepositories();
     }
     
@@ -535,21 +877,135 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public List< URL > moveModelTypeRepositoryUp( final URL repositoryUrl ) throws ModelerException {
         CheckArg.isNotNull( repositoryUrl, "repositoryUrl" );
-        final int ndx = modelTypeRepositories.indexOf( repositoryUrl );
-        if ( ndx < 0 ) throw new IllegalArgumentException( ModelerI18n.urlNotFound.text( repositoryUrl ) );
-        modelTypeRepositories.remove( ndx );
-        modelTypeRepositories.add( Math.max( ndx - 1, 0 ), repositoryUrl );
-        saveModelTypeRepositories();
+        synchronized ( modelTypeRepositories ) {
+            final int ndx = modelTypeRepositories.indexOf( repositoryUrl );
+            if ( ndx < 0 ) throw new IllegalArgumentException( ModelerI18n.urlNotFound.text( repositoryUrl ) );
+            modelTypeRepositories.remove( ndx );
+            modelTypeRepositories.add( Math.max( ndx - 1, 0 ), repositoryUrl );
+            saveModelTypeRepositories();
+        }
         return modelTypeRepositories();
     }
     
-    private String path( final String prefix,
+    private synchronized CategoryClassLoader newClassLoader( final String category,
+                                                             final Collection< Path > jarPaths ) throws IOException {
+        final CategoryClassLoader classLoader = new CategoryClassLoader( this, category, jarPaths );
+        final CategoryClassLoader oldClassLoader = classLoadersByCategory.put( category, classLoader );
+        if ( oldClassLoader != null ) oldClassLoader.close();
+        return classLoader;
+    }
+    
+    private Collection< String > potentialSequencerClassNames() {
+        synchronized ( potentialSequencerCategoriesByClassName ) {
+            return Collections.unmodifiableCollection( new ArrayList<>( potentialSequencerCategoriesByClassName.keySet() ) );
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#offline()
+     */
+    @Override
+    public boolean offline() {
+        return offline;
+    }
+    
+    /**
+     * Deletes library folders, named by their jar's SHA-1 hash, no longer referenced by an installed jar. Any other files or
+     * folders within the library are left alone, and folders that can't be deleted are logged. Jars being installed concurrently
+     * are never pruned, since uploads hold the library's read lock until their jar nodes are saved.
+     * 
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    void pruneLibrary() throws ModelerException {
+        libraryLock.writeLock().lock();
+        try {
+            manager.run( this, new SystemTask< Void >() {
+                
+                @Override
+                public Void run( final Session session,
+                                 final Node systemNode ) throws Exception {
+                    final Set< Path > jarFolders = new HashSet<>();
+                    for ( final NodeIterator iter = systemNode.getNode( JARS ).getNodes(); iter.hasNext(); )
+                        jarFolders.add( libraryPath( iter.nextNode() ).getParent() );
+                    try ( DirectoryStream< Path > folders = Files.newDirectoryStream( library ) ) {
+                        for ( final Path folder : folders ) {
+                            if ( !Files.isDirectory( folder ) || jarFolders.contains( folder )
+                                 || !SHA1_PATTERN.matcher( folder.getFileName().toString() ).matches() ) continue;
+                            try {
+                                delete( folder );
+                                LOGGER.debug( "Pruned stale library folder: %s", folder );
+                            } catch ( final IOException e ) {
+                                LOGGER.warn( ModelerI18n.unableToPruneLibraryFolder, folder, e.getMessage() );
+                            }
+                        }
+                    }
+                    return null;
+                }
+            } );
+        } finally {
+            libraryLock.writeLock().unlock();
+        }
+    }
+    
+    static String path( final String prefix,
                          final String suffix ) {
         if ( prefix.charAt( prefix.length() - 1 ) == '/' )
             return suffix.charAt( 0 ) == '/' ? prefix + suffix.substring( 1 ) : prefix + suffix;
         return suffix.charAt( 0 ) == '/' ? prefix + suffix : prefix + '/' + suffix;
     }
     
+    private Collection< String > recordInstall( final String archiveName ) throws ModelerException {
+        synchronized ( potentialSequencerCategoriesByClassName ) {
+            manager.run( this, new SystemTask< Void >() {
+                
+                @Override
+                public Void run( final Session session,
+                                 final Node systemNode ) throws Exception {
+                    // Save that archive has been installed
+                    final Value[] vals =
+                        systemNode.hasProperty( ZIPS ) ? systemNode.getProperty( ZIPS ).getValues() : new Value[ 0 ];
+                    final Value[] newVals = new Value[ vals.length + 1 ];
+                    System.arraycopy( vals, 0, newVals, 0, vals.length );
+                    newVals[ vals.length ] = session.getValueFactory().createValue( archiveName );
+                    systemNode.setProperty( ZIPS, newVals );
+                    // Save potential class names
+                    final Node node = systemNode.getNode( POTENTIAL_SEQUENCER_CLASS_NAMES );
+                    for ( final PropertyIterator iter = node.getProperties(); iter.hasNext(); ) {
+                        final Property prop = iter.nextProperty();
+                        if ( prop.getName().indexOf( ':' ) < 0
+                             && !potentialSequencerCategoriesByClassName.containsKey( prop.getName() ) ) prop.remove();
+                    }
+                    for ( final Entry< String, String > entry : potentialSequencerCategoriesByClassName.entrySet() )
+                        node.setProperty( entry.getKey(), entry.getValue() );
+                    session.save();
+                    return null;
+                }
+            } );
+            return potentialSequencerClassNames();
+        }
+    }
+    
+    private void registerModelType( final ModelType type ) throws ModelerException {
+        synchronized ( modelTypeIndexLock ) {
+            final List< ModelType > modelTypes = new ArrayList<>( modelTypeIndex.modelTypes() );
+            modelTypes.add( type );
+            modelTypeIndex = new ModelTypeIndex( modelTypes );
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#readTimeout()
+     */
+    @Override
+    public int readTimeout() {
+        return repositorySelector.readTimeout;
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -558,22 +1014,32 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public List< URL > registerModelTypeRepository( final URL repositoryUrl ) throws ModelerException {
         CheckArg.isNotNull( repositoryUrl, "repositoryUrl" );
-        if ( !modelTypeRepositories.contains( repositoryUrl ) ) {
-            modelTypeRepositories.addFirst( repositoryUrl );
-            saveModelTypeRepositories();
+        synchronized ( modelTypeRepositories ) {
+            if ( !modelTypeRepositories.contains( repositoryUrl ) ) {
+                modelTypeRepositories.add( 0, repositoryUrl );
+                saveModelTypeRepositories();
+            }
         }
         return modelTypeRepositories();
     }
     
+    private List< URL > remoteModelTypeRepositories( final List< URL > repositoryUrls ) {
+        final List< URL > remoteRepositoryUrls = new ArrayList<>();
+        for ( final URL repositoryUrl : repositoryUrls )
+            if ( LocalModelTypeRepositories.folder( repositoryUrl ) == null ) remoteRepositoryUrls.add( repositoryUrl );
+        return remoteRepositoryUrls;
+    }
+    
     private void saveModelTypeRepositories() throws ModelerException {
         manager.run( this, new SystemTask< Void >() {
             
             @Override
             public Void run( final Session session,
                              final Node systemNode ) throws Exception {
-                final Value[] vals = new Value[ modelTypeRepositories.size() ];
+                final List< URL > repositoryUrls = new ArrayList<>( modelTypeRepositories );
+                final Value[] vals = new Value[ repositoryUrls.size() ];
                 int ndx = 0;
-                for ( final URL url : modelTypeRepositories )
+                for ( final URL url : repositoryUrls )
                     vals[ ndx++ ] = session.getValueFactory().createValue( url.toString() );
                 systemNode.setProperty( MODEL_TYPE_REPOSITORIES, vals );
                 session.save();
@@ -582,6 +1048,98 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
         } );
     }
     
+    private static Collection< String > result( final Future< Collection< String > > task ) throws ModelerException {
+        try {
+            return task.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ModelerException( e );
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof ModelerException ) throw ( ModelerException ) e.getCause();
+            if ( e.getCause() instanceof RuntimeException ) throw ( RuntimeException ) e.getCause();
+            if ( e.getCause() instanceof Error ) throw ( Error ) e.getCause();
+            throw new ModelerException( e.getCause() );
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#setConnectTimeout(int)
+     */
+    @Override
+    public void setConnectTimeout( final int connectTimeout ) {
+        CheckArg.isNonNegative( connectTimeout, "connectTimeout" );
+        repositorySelector.connectTimeout = connectTimeout;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#setHedgeDelay(long)
+     */
+    @Override
+    public void setHedgeDelay( final long hedgeDelay ) {
+        CheckArg.isNonNegative( hedgeDelay, "hedgeDelay" );
+        repositorySelector.hedgeDelay = hedgeDelay;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#setOffline(boolean)
+     */
+    @Override
+    public void setOffline( final boolean offline ) {
+        this.offline = offline;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.ModelTypeManager#setReadTimeout(int)
+     */
+    @Override
+    public void setReadTimeout( final int readTimeout ) {
+        CheckArg.isNonNegative( readTimeout, "readTimeout" );
+        repositorySelector.readTimeout = readTimeout;
+    }
+    
+    /**
+     * @param type
+     *        a model type
+     * @return the supplied type's sequencer class, loading the jars in the type's category first if necessary
+     * @throws ModelerException
+     *         if any problem occurs
+     */
+    Class< ? > sequencerClass( final ModelTypeImpl type ) throws ModelerException {
+        CategoryClassLoader classLoader = classLoadersByCategory.get( type.category() );
+        if ( classLoader == null ) classLoader = loadCategory( type.category() );
+        try {
+            return classLoader.loadClass( type.sequencerClassName );
+        } catch ( final ClassNotFoundException e ) {
+            throw new ModelerException( e );
+        }
+    }
+    
+    private static String sha1( final Path file ) throws IOException, NoSuchAlgorithmException {
+        final MessageDigest sha1 = MessageDigest.getInstance( "SHA-1" );
+        try ( InputStream stream = Files.newInputStream( file ) ) {
+            final byte[] buf = new byte[ 8192 ];
+            for ( int len = stream.read( buf ); len >= 0; len = stream.read( buf ) )
+                sha1.update( buf, 0, len );
+        }
+        return LibraryCopyStream.hex( sha1.digest() );
+    }
+    
+    Set< String > strings( final Property property ) throws Exception {
+        final Value[] vals = property.getValues();
+        final Set< String > strings = new HashSet<>( vals.length );
+        for ( final Value val : vals )
+            strings.add( val.getString() );
+        return strings;
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -590,8 +1148,50 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public void uninstall( final String category ) throws ModelerException {
         CheckArg.isNotEmpty( category, "category" );
-        for ( final Iterator< ModelType > iter = modelTypes.iterator(); iter.hasNext(); )
-            if ( category.equals( iter.next().category() ) ) iter.remove();
+        // Takes the category's place among installs, so it can't be torn down while an install is still publishing it
+        final Uninstall uninstall = new Uninstall( new Callable< Collection< String > >() {
+            
+            @Override
+            public Collection< String > call() throws ModelerException {
+                uninstallCategory( category );
+                return Collections.emptySet();
+            }
+        } );
+        while ( true ) {
+            final FutureTask< Collection< String > > existingTask = installsByCategory.putIfAbsent( category, uninstall );
+            if ( existingTask == null ) break;
+            LOGGER.debug( "Waiting for concurrent install or uninstall of category %s", category );
+            await( existingTask );
+            installsByCategory.remove( category, existingTask );
+        }
+        try {
+            uninstall.run();
+        } finally {
+            installsByCategory.remove( category, uninstall );
+        }
+        result( uninstall );
+    }
+    
+    private void uninstallCategory( final String category ) throws ModelerException {
+        for ( final ModelType type : unregisterModelTypes( category ) )
+            ( ( ModelTypeImpl ) type ).clearSequencer();
+        // Release the category's jars so its classes can be unloaded once its sequencers are no longer in use
+        final CategoryClassLoader classLoader = classLoadersByCategory.remove( category );
+        if ( classLoader != null ) classLoader.close();
+        categoriesByPackage = null;
+        synchronized ( potentialSequencerCategoriesByClassName ) {
+            potentialSequencerCategoriesByClassName.values().removeAll( Collections.singleton( category ) );
+        }
+        // Keep installs from sharing or uploading jars while this category's jars are removed
+        libraryLock.writeLock().lock();
+        try {
+            uninstallJars( category );
+        } finally {
+            libraryLock.writeLock().unlock();
+        }
+    }
+    
+    private void uninstallJars( final String category ) throws ModelerException {
         manager.run( this, new SystemTask< Void >() {
             
             @Override
@@ -611,9 +1211,16 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
                 prop.setValue( newVals );
                 for ( final NodeIterator iter = systemNode.getNode( JARS ).getNodes(); iter.hasNext(); ) {
                     final Node node = iter.nextNode();
-                    if ( !node.getProperty( CATEGORY ).equals( category ) ) continue;
-                    final Path jarPath = library.resolve( node.getName() );
-                    if ( jarPath.toFile().delete() ) LOGGER.debug( "Unable to delete jar: %s", jarPath );
+                    final Set< String > categories = categories( node );
+                    if ( !categories.remove( category ) ) continue;
+                    if ( !categories.isEmpty() ) {
+                        // Jar is still used by another installed category
+                        node.setProperty( CATEGORIES, categories.toArray( new String[ categories.size() ] ) );
+                        continue;
+                    }
+                    final Path jarPath = libraryPath( node );
+                    if ( !jarPath.toFile().delete() || !jarPath.getParent().toFile().delete() )
+                        LOGGER.debug( "Unable to delete jar: %s", jarPath );
                     node.remove();
                     LOGGER.debug( "Uninstalled jar: %s", jarPath );
                 }
@@ -638,23 +1245,163 @@ public final class ModelTypeManagerImpl implements ModelTypeManager {
     @Override
     public List< URL > unregisterModelTypeRepository( final URL repositoryUrl ) throws ModelerException {
         CheckArg.isNotNull( repositoryUrl, "repositoryUrl" );
-        if ( modelTypeRepositories.remove( repositoryUrl ) ) saveModelTypeRepositories();
+        synchronized ( modelTypeRepositories ) {
+            if ( modelTypeRepositories.remove( repositoryUrl ) ) saveModelTypeRepositories();
+        }
         return modelTypeRepositories();
     }
     
+    private Set< ModelType > unregisterModelTypes( final String category ) throws ModelerException {
+        synchronized ( modelTypeIndexLock ) {
+            final Set< ModelType > unregisteredTypes = modelTypeIndex.modelTypesForCategory( category );
+            if ( unregisteredTypes.isEmpty() ) return unregisteredTypes;
+            final Set< ModelType > modelTypes = new HashSet<>( modelTypeIndex.modelTypes() );
+            modelTypes.removeAll( unregisteredTypes );
+            modelTypeIndex = new ModelTypeIndex( modelTypes );
+            return unregisteredTypes;
+        }
+    }
+    
+    private Path uploadJar( final Session session,
+                            final Node jarsNode,
+                            final String jarName,
+                            final String category,
+                            final InputStream stream ) throws Exception {
+        final Path tempPath = Files.createTempFile( library, null, null );
+        try {
+            final Node node;
+            final LibraryCopyStream copyStream;
+            try ( OutputStream copy = Files.newOutputStream( tempPath ) ) {
+                copyStream = new LibraryCopyStream( stream, copy );
+                node = new JcrTools().uploadFile( session, jarsNode.getPath() + '/' + jarName, copyStream );
+                copyStream.drain();
+            }
+            node.addMixin( ModelerLexicon.UNSTRUCTURED_MIXIN );
+            node.setProperty( CATEGORY, category );
+            node.setProperty( CATEGORIES, new String[] { category } );
+            node.setProperty( SHA256, copyStream.sha256() );
+            Path jarPath = library.resolve( copyStream.sha1() ).resolve( jarName );
+            if ( copyStream.sha1().equals( binary( node ).getHexHash() ) ) {
+                Files.createDirectories( jarPath.getParent() );
+                Files.move( tempPath, jarPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            } else {
+                // Repository isn't keying binaries by SHA-1, so fall back to copying the jar from the repository
+                LOGGER.debug( "Jar hash doesn't match repository: %s", jarName );
+                jarPath = libraryJar( node );
+            }
+            final Set< String > packages = CategoryClassLoader.packages( jarPath );
+            node.setProperty( PACKAGES, packages.toArray( new String[ packages.size() ] ) );
+            session.save();
+            return jarPath;
+        } finally {
+            Files.deleteIfExists( tempPath );
+        }
+    }
+    
     private String version() {
         return manager.repository.getDescriptor( Repository.REP_VERSION_DESC );
     }
     
-    class LibraryClassLoader extends URLClassLoader {
+    /**
+     * Copies the bytes read from a jar's stream to a library file, computing the jar's SHA-1 and SHA-256 hashes along the way.
+     * Closing this stream only closes the library file, so the underlying archive stream may move on to its next entry.
+     */
+    private static final class LibraryCopyStream extends FilterInputStream {
         
-        LibraryClassLoader() {
-            super( EMPTY_URLS, LibraryClassLoader.class.getClassLoader() );
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+        
+        private static String hex( final byte[] bytes ) {
+            final char[] chars = new char[ bytes.length * 2 ];
+            for ( int ndx = 0; ndx < bytes.length; ndx++ ) {
+                chars[ ndx * 2 ] = HEX_DIGITS[ ( bytes[ ndx ] >> 4 ) & 0xF ];
+                chars[ ndx * 2 + 1 ] = HEX_DIGITS[ bytes[ ndx ] & 0xF ];
+            }
+            return new String( chars );
+        }
+        
+        private final OutputStream copy;
+        private final MessageDigest sha1;
+        private final MessageDigest sha256;
+        private String sha1Hex;
+        private String sha256Hex;
+        
+        LibraryCopyStream( final InputStream stream,
+                           final OutputStream copy ) throws NoSuchAlgorithmException {
+            super( stream );
+            this.copy = copy;
+            sha1 = MessageDigest.getInstance( "SHA-1" );
+            sha256 = MessageDigest.getInstance( "SHA-256" );
         }
         
         @Override
-        protected void addURL( final URL url ) {
-            super.addURL( url );
+        public void close() throws IOException {
+            copy.flush();
+        }
+        
+        /**
+         * Reads any bytes left unread by the repository
+         * 
+         * @throws IOException
+         *         if any problem occurs
+         */
+        void drain() throws IOException {
+            final byte[] buf = new byte[ 8192 ];
+            while ( read( buf ) >= 0 ) {
+                // Keep reading
+            }
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if ( b >= 0 ) {
+                copy.write( b );
+                sha1.update( ( byte ) b );
+                sha256.update( ( byte ) b );
+            }
+            return b;
+        }
+        
+        @Override
+        public int read( final byte[] buf,
+                         final int offset,
+                         final int length ) throws IOException {
+            final int len = super.read( buf, offset, length );
+            if ( len > 0 ) {
+                copy.write( buf, offset, len );
+                sha1.update( buf, offset, len );
+                sha256.update( buf, offset, len );
+            }
+            return len;
+        }
+        
+        String sha1() {
+            if ( sha1Hex == null ) sha1Hex = hex( sha1.digest() );
+            return sha1Hex;
+        }
+        
+        String sha256() {
+            if ( sha256Hex == null ) sha256Hex = hex( sha256.digest() );
+            return sha256Hex;
+        }
+        
+        @Override
+        public long skip( final long count ) throws IOException {
+            final byte[] buf = new byte[ ( int ) Math.min( count, 8192 ) ];
+            final int len = read( buf, 0, buf.length );
+            return Math.max( len, 0 );
+        }
+    }
+    
+    private static final class Uninstall extends FutureTask< Collection< String > > {
+        
+        Uninstall( final Callable< Collection< String > > uninstall ) {
+            super( uninstall );
         }
     }
 }
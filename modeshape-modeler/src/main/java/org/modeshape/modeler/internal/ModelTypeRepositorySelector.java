@@ -0,0 +1,277 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.modeshape.modeler.ModelTypeRepositoryStatistics;
+import org.modeshape.modeler.ModelerException;
+import org.polyglotter.common.Logger;
+
+/**
+ * Tracks the latency and failure rate of each model type repository, and opens archives from the fastest reliable repository
+ * first, hedging by also requesting the archive from the next repository whenever a repository takes longer than the hedge delay
+ * to respond.
+ */
+final class ModelTypeRepositorySelector {
+    
+    static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    static final int DEFAULT_READ_TIMEOUT = 30000;
+    static final long DEFAULT_HEDGE_DELAY = 2000;
+    
+    private static final Logger LOGGER = Logger.getLogger( ModelTypeRepositorySelector.class );
+    
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        
+        @Override
+        public Thread newThread( final Runnable runnable ) {
+            final Thread thread = new Thread( runnable, "modeler-repository-request" );
+            thread.setDaemon( true );
+            return thread;
+        }
+    };
+    
+    volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+    volatile long hedgeDelay = DEFAULT_HEDGE_DELAY;
+    private final ConcurrentMap< String, Statistics > statisticsByRepository = new ConcurrentHashMap<>();
+    
+    /**
+     * @param url
+     *        a URL within a model type repository
+     * @return a connection to the supplied URL using this selector's timeouts
+     * @throws IOException
+     *         if the connection could not be created
+     */
+    URLConnection connect( final URL url ) throws IOException {
+        final URLConnection connection = url.openConnection();
+        connection.setConnectTimeout( connectTimeout );
+        connection.setReadTimeout( readTimeout );
+        return connection;
+    }
+    
+    /**
+     * @param repositoryUrls
+     *        the model type repositories that may contain the archive
+     * @param path
+     *        the archive's path relative to a repository
+     * @return a stream over the archive from whichever repository responded first, or <code>null</code> if no repository
+     *         contains the archive
+     * @throws ModelerException
+     *         if interrupted while waiting for a repository to respond
+     */
+    InputStream open( final List< URL > repositoryUrls,
+                      final String path ) throws ModelerException {
+        final List< URL > rankedRepositoryUrls = rank( repositoryUrls );
+        if ( rankedRepositoryUrls.isEmpty() ) return null;
+        final ExecutorService executor = Executors.newCachedThreadPool( THREAD_FACTORY );
+        final CompletionService< InputStream > requests = new ExecutorCompletionService<>( executor );
+        // Only the first stream opened is returned, so streams from slower repositories are closed as soon as they're opened
+        final AtomicBoolean opened = new AtomicBoolean();
+        try {
+            int submitted = 0;
+            request( requests, rankedRepositoryUrls.get( submitted++ ), path, opened );
+            for ( int completed = 0; completed < submitted; ) {
+                final Future< InputStream > request =
+                    submitted < rankedRepositoryUrls.size() ? requests.poll( hedgeDelay, TimeUnit.MILLISECONDS ) : requests.take();
+                if ( request == null ) {
+                    LOGGER.debug( "Hedging request for %s with repository %s", path, rankedRepositoryUrls.get( submitted ) );
+                    request( requests, rankedRepositoryUrls.get( submitted++ ), path, opened );
+                    continue;
+                }
+                completed++;
+                final InputStream stream = request.get();
+                if ( stream != null ) return stream;
+                if ( submitted < rankedRepositoryUrls.size() ) request( requests, rankedRepositoryUrls.get( submitted++ ), path, opened );
+            }
+            return null;
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ModelerException( e );
+        } catch ( final ExecutionException e ) {
+            throw new ModelerException( e.getCause() );
+        } finally {
+            opened.set( true );
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * @param repositoryUrl
+     *        a model type repository
+     * @param path
+     *        a path relative to the repository
+     * @return a stream over the content at the supplied path
+     * @throws IOException
+     *         if the repository couldn't be reached or doesn't contain the supplied path
+     */
+    InputStream open( final URL repositoryUrl,
+                      final String path ) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            final InputStream stream = connect( new URL( ModelTypeManagerImpl.path( repositoryUrl.toString(), path ) ) ).getInputStream();
+            record( repositoryUrl, start, false );
+            return stream;
+        } catch ( final FileNotFoundException e ) {
+            // The repository responded, it just doesn't contain the path
+            record( repositoryUrl, start, false );
+            throw e;
+        } catch ( final IOException e ) {
+            record( repositoryUrl, start, true );
+            throw e;
+        }
+    }
+    
+    /**
+     * @param repositoryUrls
+     *        model type repositories
+     * @return the supplied repositories, ordered by their observed latency and failure rate. Repositories that have not yet been
+     *         tried are first, in their registered order.
+     */
+    List< URL > rank( final List< URL > repositoryUrls ) {
+        final List< URL > rankedRepositoryUrls = new ArrayList<>( repositoryUrls );
+        // Scores change as other threads record requests, so sort by a snapshot to keep the comparison consistent
+        final Map< String, Double > scoresByRepository = new HashMap<>();
+        for ( final URL repositoryUrl : rankedRepositoryUrls )
+            scoresByRepository.put( repositoryUrl.toString(), statistics( repositoryUrl ).score() );
+        Collections.sort( rankedRepositoryUrls, new Comparator< URL >() {
+            
+            @Override
+            public int compare( final URL url1,
+                                final URL url2 ) {
+                return Double.compare( scoresByRepository.get( url1.toString() ), scoresByRepository.get( url2.toString() ) );
+            }
+        } );
+        return rankedRepositoryUrls;
+    }
+    
+    /**
+     * @param repositoryUrl
+     *        the model type repository a request was made to
+     * @param start
+     *        the {@link System#nanoTime() time} the request was made
+     * @param failed
+     *        <code>true</code> if the repository couldn't be reached or returned an error
+     */
+    void record( final URL repositoryUrl,
+                 final long start,
+                 final boolean failed ) {
+        statistics( repositoryUrl ).record( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ), failed );
+    }
+    
+    private void request( final CompletionService< InputStream > requests,
+                          final URL repositoryUrl,
+                          final String path,
+                          final AtomicBoolean opened ) {
+        requests.submit( new Callable< InputStream >() {
+            
+            @Override
+            public InputStream call() throws IOException {
+                final InputStream stream;
+                try {
+                    stream = open( repositoryUrl, path );
+                } catch ( final IOException e ) {
+                    LOGGER.debug( "Unable to open %s from repository %s: %s", path, repositoryUrl, e );
+                    return null;
+                }
+                if ( opened.compareAndSet( false, true ) ) return stream;
+                stream.close();
+                return null;
+            }
+        } );
+    }
+    
+    private Statistics statistics( final URL repositoryUrl ) {
+        final String key = repositoryUrl.toString();
+        final Statistics statistics = statisticsByRepository.get( key );
+        if ( statistics != null ) return statistics;
+        final Statistics newStatistics = new Statistics();
+        final Statistics existingStatistics = statisticsByRepository.putIfAbsent( key, newStatistics );
+        return existingStatistics == null ? newStatistics : existingStatistics;
+    }
+    
+    /**
+     * @param repositoryUrls
+     *        model type repositories
+     * @return the statistics measured for the supplied repositories, in the order they'll be tried
+     */
+    List< ModelTypeRepositoryStatistics > statistics( final List< URL > repositoryUrls ) {
+        final List< ModelTypeRepositoryStatistics > statistics = new ArrayList<>();
+        for ( final URL repositoryUrl : rank( repositoryUrls ) )
+            statistics.add( statistics( repositoryUrl ).snapshot( repositoryUrl ) );
+        return statistics;
+    }
+    
+    private static final class Statistics {
+        
+        // Weight of the latest latency in the average, so the average follows changes in a repository's responsiveness
+        private static final double LATENCY_WEIGHT = 0.25;
+        
+        private long requests;
+        private long failures;
+        private double averageLatency = -1;
+        
+        synchronized void record( final long latency,
+                                  final boolean failed ) {
+            requests++;
+            if ( failed ) failures++;
+            else averageLatency = averageLatency < 0 ? latency : averageLatency + LATENCY_WEIGHT * ( latency - averageLatency );
+        }
+        
+        /**
+         * @return the expected cost of a request, as the average latency inflated by the failure rate
+         */
+        synchronized double score() {
+            if ( requests == 0 ) return 0;
+            if ( averageLatency < 0 ) return Double.MAX_VALUE;
+            return averageLatency / Math.max( 1 - ( double ) failures / requests, 0.01 );
+        }
+        
+        synchronized ModelTypeRepositoryStatistics snapshot( final URL repositoryUrl ) {
+            return new ModelTypeRepositoryStatistics( repositoryUrl, requests, failures, Math.round( averageLatency ) );
+        }
+    }
+}
@@ -68,6 +68,12 @@ public interface ModelerLexicon {
      */
     String SOURCE_REFERENCE_PROPERTY = NAMESPACE_PREFIX + "sourceReference";
     
+    /**
+     * The name of the property marking a model as stale, because a model upon which it depends has been regenerated or removed
+     * since it was generated.
+     */
+    String STALE = NAMESPACE_PREFIX + "stale";
+    
     /**
      * Temporary workspace folder
      */
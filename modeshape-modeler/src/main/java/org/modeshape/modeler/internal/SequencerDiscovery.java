@@ -0,0 +1,219 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.modeshape.jcr.api.sequencer.Sequencer;
+
+/**
+ * Finds the sequencer classes within a category's jars without loading any class that isn't a sequencer. Jars declaring their
+ * sequencers in a <code>META-INF/services</code> file for the {@link Sequencer} class are trusted. Otherwise, the headers of the
+ * classes in the category's sequencer jars are read to find concrete classes whose superclass chain, followed through class files
+ * visible to the category's class loader, reaches {@link Sequencer}.
+ */
+final class SequencerDiscovery {
+    
+    static final String SERVICES_ENTRY = "META-INF/services/" + Sequencer.class.getName();
+    
+    private static final String SEQUENCER_CLASS_FILE = Sequencer.class.getName().replace( '.', '/' );
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final String UNRESOLVABLE = "";
+    
+    private final ClassLoader classLoader;
+    private final Map< String, String > superclassNamesByClassName = new HashMap<>();
+    
+    /**
+     * @param classLoader
+     *        the class loader used to find the class files of superclasses
+     */
+    SequencerDiscovery( final ClassLoader classLoader ) {
+        this.classLoader = classLoader;
+    }
+    
+    /**
+     * @param jarPaths
+     *        the jars to search
+     * @return the names of the classes declared as sequencers by the supplied jars' service files, or, if none declare any, the
+     *         names of concrete classes in sequencer jars that either are sequencers or are named like sequencers but have a
+     *         superclass that can't yet be found, excluding those that extend another of these classes
+     * @throws IOException
+     *         if any of the jars cannot be read
+     */
+    Set< String > candidates( final Collection< Path > jarPaths ) throws IOException {
+        final Set< String > candidates = new LinkedHashSet<>();
+        for ( final Path jarPath : jarPaths )
+            try ( JarFile jar = new JarFile( jarPath.toFile() ) ) {
+                final JarEntry entry = jar.getJarEntry( SERVICES_ENTRY );
+                if ( entry != null ) try ( InputStream stream = jar.getInputStream( entry ) ) {
+                    candidates.addAll( services( stream ) );
+                }
+            }
+        if ( !candidates.isEmpty() ) return candidates;
+        for ( final Path jarPath : jarPaths ) {
+            if ( !jarPath.getFileName().toString().contains( "sequencer" ) ) continue;
+            try ( JarFile jar = new JarFile( jarPath.toFile() ) ) {
+                for ( final Enumeration< JarEntry > iter = jar.entries(); iter.hasMoreElements(); ) {
+                    final JarEntry entry = iter.nextElement();
+                    final String name = entry.getName();
+                    if ( entry.isDirectory() || !name.endsWith( ".class" ) ) continue;
+                    final String classFile = name.substring( 0, name.length() - ".class".length() );
+                    try ( InputStream stream = jar.getInputStream( entry ) ) {
+                        if ( !readHeader( classFile, stream ) ) continue;
+                    }
+                    final String className = classFile.replace( '/', '.' );
+                    final Boolean sequencer = isSequencer( className );
+                    if ( Boolean.TRUE.equals( sequencer ) || ( sequencer == null && className.endsWith( "Sequencer" ) ) )
+                        candidates.add( className );
+                }
+            }
+        }
+        // Variants of another candidate, which already accepts the same content, aren't model types of their own
+        for ( final Iterator< String > iter = candidates.iterator(); iter.hasNext(); )
+            if ( extendsCandidate( iter.next(), candidates ) ) iter.remove();
+        return candidates;
+    }
+    
+    private boolean extendsCandidate( final String className,
+                                      final Set< String > candidates ) {
+        String superclassName = superclassNamesByClassName.get( className.replace( '.', '/' ) );
+        while ( superclassName != null && superclassName != UNRESOLVABLE ) {
+            if ( candidates.contains( superclassName.replace( '/', '.' ) ) ) return true;
+            superclassName = superclassNamesByClassName.get( superclassName );
+        }
+        return false;
+    }
+    
+    /**
+     * @param className
+     *        the name of a class
+     * @return {@link Boolean#TRUE} if the supplied class's superclass chain reaches {@link Sequencer}, {@link Boolean#FALSE} if it
+     *         doesn't, or <code>null</code> if the class file of some class in the chain cannot be found
+     * @throws IOException
+     *         if a class file cannot be read
+     */
+    Boolean isSequencer( final String className ) throws IOException {
+        for ( String classFile = className.replace( '.', '/' ); classFile != null; ) {
+            if ( SEQUENCER_CLASS_FILE.equals( classFile ) ) return Boolean.TRUE;
+            if ( !superclassNamesByClassName.containsKey( classFile ) ) {
+                final InputStream stream = classLoader.getResourceAsStream( classFile + ".class" );
+                if ( stream == null ) superclassNamesByClassName.put( classFile, UNRESOLVABLE );
+                else try {
+                    readHeader( classFile, stream );
+                } finally {
+                    stream.close();
+                }
+            }
+            final String superclassName = superclassNamesByClassName.get( classFile );
+            if ( superclassName == UNRESOLVABLE ) return null;
+            classFile = superclassName;
+        }
+        return Boolean.FALSE;
+    }
+    
+    /**
+     * Reads the header of the supplied class file, recording its superclass.
+     * 
+     * @return <code>true</code> if the class is concrete
+     */
+    private boolean readHeader( final String classFile,
+                                final InputStream stream ) throws IOException {
+        final DataInputStream input = new DataInputStream( stream );
+        if ( input.readInt() != 0xCAFEBABE ) throw new IOException( "Not a class file: " + classFile );
+        input.readUnsignedShort(); // minor version
+        input.readUnsignedShort(); // major version
+        final int count = input.readUnsignedShort();
+        final String[] utf8s = new String[ count ];
+        final int[] classNameIndexes = new int[ count ];
+        for ( int ndx = 1; ndx < count; ndx++ ) {
+            final int tag = input.readUnsignedByte();
+            switch ( tag ) {
+                case 1: // Utf8
+                    utf8s[ ndx ] = input.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes[ ndx ] = input.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    input.skipBytes( 2 );
+                    break;
+                case 15: // MethodHandle
+                    input.skipBytes( 3 );
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    input.skipBytes( 4 );
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    input.skipBytes( 8 );
+                    ndx++; // Takes two constant pool entries
+                    break;
+                default:
+                    throw new IOException( "Invalid constant pool tag " + tag + " in class file: " + classFile );
+            }
+        }
+        final int access = input.readUnsignedShort();
+        input.readUnsignedShort(); // this class
+        final int superclass = input.readUnsignedShort();
+        superclassNamesByClassName.put( classFile, superclass == 0 ? null : utf8s[ classNameIndexes[ superclass ] ] );
+        return ( access & ( ACC_INTERFACE | ACC_ABSTRACT ) ) == 0;
+    }
+    
+    private Set< String > services( final InputStream stream ) throws IOException {
+        final Set< String > classNames = new LinkedHashSet<>();
+        final BufferedReader reader = new BufferedReader( new InputStreamReader( stream, StandardCharsets.UTF_8 ) );
+        for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+            final int ndx = line.indexOf( '#' );
+            final String className = ( ndx < 0 ? line : line.substring( 0, ndx ) ).trim();
+            if ( !className.isEmpty() ) classNames.add( className );
+        }
+        return classNames;
+    }
+}
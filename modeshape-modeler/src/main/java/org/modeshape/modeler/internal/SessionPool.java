@@ -0,0 +1,104 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.modeshape.jcr.JcrRepository;
+import org.polyglotter.common.Logger;
+
+/**
+ * A bounded pool of idle sessions for a single workspace. Sessions are only ever lent to one task at a time, and are refreshed,
+ * discarding any unsaved changes, before being made available to the next task.
+ */
+final class SessionPool {
+    
+    private static final Logger LOGGER = Logger.getLogger( SessionPool.class );
+    
+    private final JcrRepository repository;
+    private final String workspace;
+    private final int size;
+    private final BlockingDeque< Session > idleSessions;
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    
+    SessionPool( final JcrRepository repository,
+                 final String workspace,
+                 final int size ) {
+        this.repository = repository;
+        this.workspace = workspace;
+        this.size = size;
+        // A zero capacity is not allowed by the deque, so disabled pools simply never accept a returned session
+        idleSessions = new LinkedBlockingDeque<>( Math.max( size, 1 ) );
+    }
+    
+    /**
+     * @return an idle session if one is available, otherwise a new session
+     * @throws RepositoryException
+     *         if a new session could not be created
+     */
+    Session acquire() throws RepositoryException {
+        for ( Session session = idleSessions.pollFirst(); session != null; session = idleSessions.pollFirst() ) {
+            if ( session.isLive() ) {
+                hits.incrementAndGet();
+                return session;
+            }
+        }
+        misses.incrementAndGet();
+        return repository.login( workspace );
+    }
+    
+    /**
+     * Logs out of all idle sessions
+     */
+    void close() {
+        for ( Session session = idleSessions.pollFirst(); session != null; session = idleSessions.pollFirst() )
+            session.logout();
+    }
+    
+    /**
+     * @param session
+     *        a session previously {@link #acquire() acquired} from this pool
+     * @param reusable
+     *        <code>false</code> if the session should be discarded, e.g., because the task using it failed
+     */
+    void release( final Session session,
+                  final boolean reusable ) {
+        if ( reusable && size > 0 && session.isLive() ) {
+            try {
+                session.refresh( false );
+                // Most recently used sessions are handed out first, which keeps their caches warm
+                if ( idleSessions.offerFirst( session ) ) return;
+            } catch ( final RepositoryException e ) {
+                LOGGER.debug( e, "Discarding session for workspace %s that could not be refreshed", workspace );
+            }
+        }
+        session.logout();
+    }
+}
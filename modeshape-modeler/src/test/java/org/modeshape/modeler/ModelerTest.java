@@ -26,11 +26,17 @@ package org.modeshape.modeler;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.jcr.Node;
 import javax.jcr.Session;
@@ -38,6 +44,7 @@ import javax.jcr.Session;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.modeshape.jcr.JcrLexicon;
+import org.modeshape.modeler.internal.DeclaredDependencyProcessor;
 import org.modeshape.modeler.internal.ModelerLexicon;
 import org.modeshape.modeler.internal.Task;
 import org.modeshape.modeler.test.BaseTest;
@@ -48,6 +55,39 @@ public final class ModelerTest extends BaseTest {
     @Mock
     private ModelType modelType;
     
+    @Test
+    public void shouldCommitBatchOnce() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelType xmlModelType = modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        final Model model = modeler.batch( new ModelerTransaction.Work< Model >() {
+            
+            @Override
+            public Model run( final ModelerTransaction transaction ) throws Exception {
+                final String path = transaction.importArtifact( stream( XML_ARTIFACT ), ARTIFACT_NAME );
+                transaction.generateModel( path, MODEL_NAME + 1, xmlModelType );
+                final Model model = transaction.generateModel( path, MODEL_NAME, xmlModelType );
+                transaction.remove( MODEL_NAME + 1 );
+                return model;
+            }
+        } );
+        assertThat( model, notNullValue() );
+        assertThat( modeler.model( MODEL_NAME ), is( model ) );
+        verifyPathExistsWithContent( '/' + ARTIFACT_NAME );
+        assertThat( manager.run( new Task< Boolean >() {
+            
+            @Override
+            public Boolean run( final Session session ) throws Exception {
+                return session.nodeExists( '/' + MODEL_NAME + 1 );
+            }
+        } ), is( false ) );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToBatchIfWorkNull() throws Exception {
+        modeler.batch( null );
+    }
+    
     @Test( expected = IllegalArgumentException.class )
     public void shouldFailToGenerateDefaultModelIfArtifactPathEmpty() throws Exception {
         modeler.generateDefaultModel( " ", null );
@@ -290,6 +330,110 @@ public final class ModelerTest extends BaseTest {
         verifyPathExistsWithContent( path );
     }
     
+    @Test
+    public void shouldMarkDependentsStaleWhenModelRegeneratedOrRemoved() throws Exception {
+        DeclaredDependencyProcessor.register( modelTypeManager );
+        DeclaredDependencyProcessor.DEPENDENCIES_BY_MODEL_PATH.put( '/' + MODEL_NAME + 1, Collections.singleton( '/' + MODEL_NAME ) );
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelType xmlModelType = modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        final URL url = new URL( "file:src/test/resources/Books.xsd" );
+        final Model base = modeler.generateModel( url, null, MODEL_NAME, xmlModelType );
+        final Model dependent = modeler.generateModel( url, null, MODEL_NAME + 1, xmlModelType );
+        assertThat( modeler.dependents( base.absolutePath() ), is( Collections.singleton( dependent.absolutePath() ) ) );
+        assertThat( modeler.staleModels().isEmpty(), is( true ) );
+        modeler.generateModel( url, null, MODEL_NAME, xmlModelType );
+        assertThat( modeler.staleModels(), is( Collections.singleton( dependent.absolutePath() ) ) );
+        final List< Model > rebuilt = modeler.rebuildStaleModels().get();
+        assertThat( rebuilt.size(), is( 1 ) );
+        assertThat( rebuilt.get( 0 ).absolutePath(), is( dependent.absolutePath() ) );
+        assertThat( modeler.staleModels().isEmpty(), is( true ) );
+        assertThat( modeler.dependents( base.absolutePath() ), is( Collections.singleton( dependent.absolutePath() ) ) );
+        modeler.batch( new ModelerTransaction.Work< Void >() {
+            
+            @Override
+            public Void run( final ModelerTransaction transaction ) throws Exception {
+                transaction.remove( MODEL_NAME );
+                return null;
+            }
+        } );
+        assertThat( modeler.staleModels(), is( Collections.singleton( dependent.absolutePath() ) ) );
+    }
+    
+    @Test
+    public void shouldNotChangeDependencyIndexIfBatchFails() throws Exception {
+        DeclaredDependencyProcessor.register( modelTypeManager );
+        DeclaredDependencyProcessor.DEPENDENCIES_BY_MODEL_PATH.put( '/' + MODEL_NAME, Collections.singleton( "/dependency" ) );
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelType xmlModelType = modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        final String path = modeler.importArtifact( stream( XML_ARTIFACT ), ARTIFACT_NAME );
+        modeler.generateModel( path, MODEL_NAME, xmlModelType );
+        assertThat( modeler.dependents( "/dependency" ), is( Collections.singleton( '/' + MODEL_NAME ) ) );
+        DeclaredDependencyProcessor.DEPENDENCIES_BY_MODEL_PATH.remove( '/' + MODEL_NAME );
+        try {
+            modeler.batch( new ModelerTransaction.Work< Void >() {
+                
+                @Override
+                public Void run( final ModelerTransaction transaction ) throws Exception {
+                    // Regenerating the model replaces its indexed dependencies with none
+                    transaction.generateModel( path, MODEL_NAME, xmlModelType );
+                    throw new IllegalStateException();
+                }
+            } );
+            fail();
+        } catch ( final IllegalStateException expected ) {
+            assertThat( modeler.dependents( "/dependency" ), is( Collections.singleton( '/' + MODEL_NAME ) ) );
+        }
+        modeler.generateModel( path, MODEL_NAME, xmlModelType );
+        assertThat( modeler.dependents( "/dependency" ).isEmpty(), is( true ) );
+    }
+    
+    @Test
+    public void shouldNotCommitBatchIfWorkFails() throws Exception {
+        try {
+            modeler.batch( new ModelerTransaction.Work< Void >() {
+                
+                @Override
+                public Void run( final ModelerTransaction transaction ) throws Exception {
+                    transaction.importArtifact( stream( XML_ARTIFACT ), ARTIFACT_NAME );
+                    throw new IllegalStateException();
+                }
+            } );
+            fail();
+        } catch ( final IllegalStateException expected ) {
+            assertThat( manager.run( new Task< Boolean >() {
+                
+                @Override
+                public Boolean run( final Session session ) throws Exception {
+                    return session.nodeExists( '/' + ARTIFACT_NAME );
+                }
+            } ), is( false ) );
+        }
+    }
+    
+    @Test
+    public void shouldRebuildEveryStaleModelInALevel() throws Exception {
+        DeclaredDependencyProcessor.register( modelTypeManager );
+        DeclaredDependencyProcessor.DEPENDENCIES_BY_MODEL_PATH.put( '/' + MODEL_NAME + 1, Collections.singleton( '/' + MODEL_NAME ) );
+        DeclaredDependencyProcessor.DEPENDENCIES_BY_MODEL_PATH.put( '/' + MODEL_NAME + 2, Collections.singleton( '/' + MODEL_NAME ) );
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelType xmlModelType = modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        final URL url = new URL( "file:src/test/resources/Books.xsd" );
+        modeler.generateModel( url, null, MODEL_NAME, xmlModelType );
+        modeler.generateModel( url, null, MODEL_NAME + 1, xmlModelType );
+        modeler.generateModel( url, null, MODEL_NAME + 2, xmlModelType );
+        modeler.generateModel( url, null, MODEL_NAME, xmlModelType );
+        final Set< String > stalePaths = new HashSet<>( Arrays.asList( '/' + MODEL_NAME + 1, '/' + MODEL_NAME + 2 ) );
+        assertThat( modeler.staleModels(), is( stalePaths ) );
+        final Set< String > rebuiltPaths = new HashSet<>();
+        for ( final Model model : modeler.rebuildStaleModels().get() )
+            rebuiltPaths.add( model.absolutePath() );
+        assertThat( rebuiltPaths, is( stalePaths ) );
+        assertThat( modeler.staleModels().isEmpty(), is( true ) );
+    }
+    
     @Test
     public void shouldRecordExternalLocationIfImportArtifact() throws Exception {
         final URL url = new URL( "File:src/test/resources/Books.xsd" );
@@ -322,6 +466,20 @@ public final class ModelerTest extends BaseTest {
         } );
     }
     
+    @Test
+    public void shouldReplaceGeneratedContentButNotNestedModelsWhenModelRegenerated() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelType xmlModelType = modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        modeler.generateModel( stream( XML_ARTIFACT ), MODEL_NAME, xmlModelType );
+        modeler.generateModel( stream( XML_ARTIFACT ), MODEL_NAME + "/nested", xmlModelType );
+        final Model model = modeler.generateModel( stream( XML_DECLARATION + "<other/>" ), MODEL_NAME, xmlModelType );
+        assertThat( model.hasChild( XML_ROOT ), is( false ) );
+        assertThat( model.hasChild( "other" ), is( true ) );
+        assertThat( model.hasChild( "nested" ), is( true ) );
+        assertThat( modeler.model( MODEL_NAME + "/nested" ).hasChild( XML_ROOT ), is( true ) );
+    }
+    
     private void verifyPathExistsWithContent( final String path ) throws Exception {
         manager.run( new Task< Void >() {
             
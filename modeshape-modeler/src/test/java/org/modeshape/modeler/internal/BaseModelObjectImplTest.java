@@ -46,7 +46,7 @@ public abstract class BaseModelObjectImplTest extends BaseTest {
     @Override
     public void before() throws Exception {
         super.before();
-        failingModelObject = new ModelObjectImpl( manager, XML_ROOT, 0 );
+        failingModelObject = new ModelObjectImpl( manager, XML_ROOT, null, 0 );
     }
     
     protected ModelObject modelObject() throws Exception {
@@ -58,6 +58,11 @@ public abstract class BaseModelObjectImplTest extends BaseTest {
         return modelObject;
     }
     
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetBooleanArrayIfNonBooleanProperty() throws Exception {
+        modelObject().booleanArray( JcrLexicon.PRIMARY_TYPE.toString() );
+    }
+    
     @Test( expected = IllegalArgumentException.class )
     public void shouldFailToGetBooleanValueIfNonBooleanProperty() throws Exception {
         modelObject().booleanValue( JcrLexicon.PRIMARY_TYPE.toString() );
@@ -108,6 +113,21 @@ public abstract class BaseModelObjectImplTest extends BaseTest {
         failingModelObject.children( null );
     }
     
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetDoubleArrayIfNonDoubleProperty() throws Exception {
+        modelObject().doubleArray( JcrLexicon.PRIMARY_TYPE.toString() );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetLongArrayIfNonLongProperty() throws Exception {
+        modelObject().longArray( JcrLexicon.PRIMARY_TYPE.toString() );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetLongArrayIfPropertyEmpty() throws Exception {
+        failingModelObject.longArray( " " );
+    }
+    
     @Test( expected = IllegalArgumentException.class )
     public void shouldFailToGetLongValueIfNonLongProperty() throws Exception {
         modelObject().longValue( JcrLexicon.PRIMARY_TYPE.toString() );
@@ -138,6 +158,16 @@ public abstract class BaseModelObjectImplTest extends BaseTest {
         failingModelObject.longValues( null );
     }
     
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetPropertiesIfNameEmpty() throws Exception {
+        failingModelObject.properties( XML_ROOT_PROPERTY, " " );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetPropertiesIfNamesNull() throws Exception {
+        failingModelObject.properties( ( String[] ) null );
+    }
+    
     @Test( expected = IllegalArgumentException.class )
     public void shouldFailToGetStringValueIfPropertyEmpty() throws Exception {
         failingModelObject.stringValue( " " );
@@ -203,6 +233,16 @@ public abstract class BaseModelObjectImplTest extends BaseTest {
         assertThat( modelObject().booleanValue( "bogus" ), nullValue() );
     }
     
+    @Test
+    public void shouldGetNullValueIfArrayPropertyNotFound() throws Exception {
+        final ModelObject modelObject = modelObject();
+        assertThat( modelObject.booleanArray( "bogus" ), nullValue() );
+        assertThat( modelObject.dateArray( "bogus" ), nullValue() );
+        assertThat( modelObject.decimalArray( "bogus" ), nullValue() );
+        assertThat( modelObject.doubleArray( "bogus" ), nullValue() );
+        assertThat( modelObject.longArray( "bogus" ), nullValue() );
+    }
+    
     @Test
     public void shouldGetNullValueIfChildNotFound() throws Exception {
         assertThat( modelObject().child( "bogus" ), nullValue() );
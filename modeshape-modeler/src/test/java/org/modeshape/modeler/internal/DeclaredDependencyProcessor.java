@@ -0,0 +1,83 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.jcr.Node;
+
+import org.modeshape.modeler.ModelType;
+import org.modeshape.modeler.Modeler;
+import org.modeshape.modeler.ModelerException;
+
+/**
+ * A dependency processor for XML models that records whatever dependencies a test has declared for the model at each path.
+ */
+@SuppressWarnings( "javadoc" )
+public class DeclaredDependencyProcessor implements DependencyProcessor {
+    
+    public static final ConcurrentMap< String, Set< String > > DEPENDENCIES_BY_MODEL_PATH = new ConcurrentHashMap<>();
+    
+    public static void register( final ModelTypeManagerImpl modelTypeManager ) throws Exception {
+        DEPENDENCIES_BY_MODEL_PATH.clear();
+        modelTypeManager.dependencyProcessors = DependencyProcessorRegistryTest.registry( DeclaredDependencyProcessor.class.getName() );
+    }
+    
+    @Override
+    public Set< URL > dependencies( final URL artifactUrl ) {
+        return Collections.emptySet();
+    }
+    
+    @Override
+    public Set< String > modelTypeNames() {
+        return Collections.singleton( "org.modeshape.modeler.xml.Xml" );
+    }
+    
+    @Override
+    public String process( final Node modelNode,
+                           final ModelType modelType,
+                           final Modeler modeler ) throws ModelerException {
+        try {
+            if ( modelNode.hasNode( ModelerLexicon.DEPENDENCIES_NODE ) ) modelNode.getNode( ModelerLexicon.DEPENDENCIES_NODE ).remove();
+            final Set< String > dependencies = DEPENDENCIES_BY_MODEL_PATH.get( modelNode.getPath() );
+            if ( dependencies == null || dependencies.isEmpty() ) return null;
+            final Node dependenciesNode = modelNode.addNode( ModelerLexicon.DEPENDENCIES_NODE, ModelerLexicon.DEPENDENCIES_NODE );
+            for ( final String dependency : dependencies )
+                dependenciesNode.addNode( ModelerLexicon.DEPENDENCY_NODE, ModelerLexicon.DEPENDENCY_NODE )
+                                .setProperty( ModelerLexicon.PATH_PROPERTY, dependency );
+            return dependenciesNode.getPath();
+        } catch ( final Exception e ) {
+            throw new ModelerException( e );
+        }
+    }
+    
+    @Override
+    public boolean processable( final Node modelNode ) {
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.modeshape.modeler.ModelerException;
+import org.modeshape.modeler.test.BaseTest;
+
+@SuppressWarnings( "javadoc" )
+public class DependencyGraphTest extends BaseTest {
+    
+    @Test
+    public void shouldFailToOrderCyclicDependencies() throws Exception {
+        final DependencyGraph< String > graph = new DependencyGraph<>();
+        graph.addDependency( "a", "b" );
+        graph.addDependency( "b", "c" );
+        graph.addDependency( "c", "b" );
+        try {
+            graph.levels();
+            fail();
+        } catch ( final ModelerException e ) {
+            assertThat( e.getMessage().contains( "b -> c -> b" ) || e.getMessage().contains( "c -> b -> c" ), is( true ) );
+        }
+    }
+    
+    @Test( expected = ModelerException.class )
+    public void shouldFailToOrderItemThatDependsUponItself() throws Exception {
+        final DependencyGraph< String > graph = new DependencyGraph<>();
+        graph.addDependency( "a", "a" );
+        graph.levels();
+    }
+    
+    @Test
+    public void shouldOrderDependenciesIntoLevels() throws Exception {
+        final DependencyGraph< String > graph = new DependencyGraph<>();
+        graph.add( "standalone" );
+        graph.addDependency( "books", "bookDatatypes" );
+        graph.addDependency( "movies", "movieDatatypes" );
+        graph.addDependency( "library", "books" );
+        graph.addDependency( "library", "movies" );
+        graph.addDependency( "library", "bookDatatypes" );
+        final List< List< String > > levels = graph.levels();
+        assertThat( levels.size(), is( 3 ) );
+        assertThat( new HashSet<>( levels.get( 0 ) ), is( new HashSet<>( Arrays.asList( "standalone", "bookDatatypes", "movieDatatypes" ) ) ) );
+        assertThat( new HashSet<>( levels.get( 1 ) ), is( new HashSet<>( Arrays.asList( "books", "movies" ) ) ) );
+        assertThat( levels.get( 2 ), is( Collections.singletonList( "library" ) ) );
+    }
+    
+    @Test
+    public void shouldReturnNoLevelsForEmptyGraph() throws Exception {
+        assertThat( new DependencyGraph< String >().levels().isEmpty(), is( true ) );
+    }
+}
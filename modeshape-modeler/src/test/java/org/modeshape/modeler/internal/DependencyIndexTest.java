@@ -0,0 +1,128 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.junit.Test;
+import org.modeshape.modeler.test.BaseTest;
+
+@SuppressWarnings( "javadoc" )
+public class DependencyIndexTest extends BaseTest {
+    
+    @Test
+    public void shouldFindTransitiveClosureOfCyclicDependencies() throws Exception {
+        final DependencyIndex index = manager.dependencyIndex;
+        index.update( "/a", Arrays.asList( "/b" ) );
+        index.update( "/b", Arrays.asList( "/c" ) );
+        index.update( "/c", Arrays.asList( "/a", "/d" ) );
+        assertThat( index.closure( "/a" ), is( ( Set< String > ) new HashSet<>( Arrays.asList( "/a", "/b", "/c", "/d" ) ) ) );
+        assertThat( index.closure( "/d" ).isEmpty(), is( true ) );
+    }
+    
+    @Test
+    public void shouldFindTransitiveDependentsOfModelsWithinFolder() throws Exception {
+        final DependencyIndex index = manager.dependencyIndex;
+        index.update( "/folder/model", Arrays.asList( "/folder/common" ) );
+        index.update( "/books", Arrays.asList( "/folder/common" ) );
+        index.update( "/library", Arrays.asList( "/books" ) );
+        index.update( "/library2", Arrays.asList( "/library" ) );
+        index.update( "/movies", Arrays.asList( "/other" ) );
+        assertThat( index.transitiveDependents( "/folder" ),
+                    is( ( Set< String > ) new HashSet<>( Arrays.asList( "/books", "/library", "/library2" ) ) ) );
+        assertThat( index.transitiveDependents( "/library2" ).isEmpty(), is( true ) );
+    }
+    
+    @Test
+    public void shouldIndexDependentsOfUpdatedModels() throws Exception {
+        final DependencyIndex index = manager.dependencyIndex;
+        index.update( "/books", Arrays.asList( "/bookDatatypes", "/common" ) );
+        index.update( "/movies", Arrays.asList( "/common" ) );
+        assertThat( new HashSet<>( index.dependencies( "/books" ) ), is( new HashSet<>( Arrays.asList( "/bookDatatypes", "/common" ) ) ) );
+        assertThat( new HashSet<>( index.dependents( "/common" ) ), is( new HashSet<>( Arrays.asList( "/books", "/movies" ) ) ) );
+        index.update( "/books", Arrays.asList( "/bookDatatypes" ) );
+        assertThat( index.dependents( "/common" ), is( Collections.singleton( "/movies" ) ) );
+        assertThat( modeler.dependents( "bookDatatypes" ), is( Collections.singleton( "/books" ) ) );
+        assertThat( modeler.dependents( "/unknown" ).isEmpty(), is( true ) );
+    }
+    
+    @Test
+    public void shouldLoadDependenciesRecordedInWorkspace() throws Exception {
+        manager.run( new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) throws Exception {
+                final Node modelNode = session.getRootNode().addNode( MODEL_NAME );
+                modelNode.addMixin( ModelerLexicon.MODEL_MIXIN );
+                final Node dependencyNode = modelNode.addNode( ModelerLexicon.DEPENDENCIES_NODE, ModelerLexicon.DEPENDENCIES_NODE )
+                                                     .addNode( ModelerLexicon.DEPENDENCY_NODE, ModelerLexicon.DEPENDENCY_NODE );
+                dependencyNode.setProperty( ModelerLexicon.PATH_PROPERTY, "/dependency" );
+                session.save();
+                return null;
+            }
+        } );
+        final DependencyIndex index = new DependencyIndex( manager );
+        assertThat( index.dependents( "/dependency" ), is( Collections.singleton( '/' + MODEL_NAME ) ) );
+        assertThat( index.dependencies( '/' + MODEL_NAME ), is( Collections.singleton( "/dependency" ) ) );
+    }
+    
+    @Test
+    public void shouldMemoizeClosureUntilModelWithinItIsRegenerated() throws Exception {
+        final DependencyIndex index = manager.dependencyIndex;
+        index.update( "/books", Arrays.asList( "/bookDatatypes" ) );
+        index.update( "/bookDatatypes", Arrays.asList( "/common" ) );
+        index.update( "/movies", Arrays.asList( "/common" ) );
+        final Set< String > closure = index.closure( "/books" );
+        assertThat( closure, is( ( Set< String > ) new HashSet<>( Arrays.asList( "/bookDatatypes", "/common" ) ) ) );
+        assertThat( index.closure( "/books" ), sameInstance( closure ) );
+        index.update( "/movies", Collections.< String >emptySet() );
+        assertThat( index.closure( "/books" ), sameInstance( closure ) );
+        index.update( "/bookDatatypes", Arrays.asList( "/types" ) );
+        assertThat( index.closure( "/books" ), is( ( Set< String > ) new HashSet<>( Arrays.asList( "/bookDatatypes", "/types" ) ) ) );
+        index.remove( "/bookDatatypes" );
+        assertThat( index.closure( "/books" ), is( Collections.singleton( "/bookDatatypes" ) ) );
+    }
+    
+    @Test
+    public void shouldRemoveDependenciesOfModelsWithinRemovedFolder() throws Exception {
+        final DependencyIndex index = manager.dependencyIndex;
+        index.update( "/folder", Arrays.asList( "/common" ) );
+        index.update( "/folder/model", Arrays.asList( "/common" ) );
+        index.update( "/folder/sub/model", Arrays.asList( "/common" ) );
+        index.update( "/folder2/model", Arrays.asList( "/common" ) );
+        index.remove( "/folder" );
+        assertThat( index.dependents( "/common" ), is( Collections.singleton( "/folder2/model" ) ) );
+        assertThat( index.dependencies( "/folder/model" ).isEmpty(), is( true ) );
+    }
+}
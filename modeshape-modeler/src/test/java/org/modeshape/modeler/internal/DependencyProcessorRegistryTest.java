@@ -0,0 +1,124 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.junit.Test;
+import org.modeshape.modeler.ModelType;
+import org.modeshape.modeler.Modeler;
+import org.modeshape.modeler.test.BaseTest;
+
+@SuppressWarnings( "javadoc" )
+public class DependencyProcessorRegistryTest extends BaseTest {
+    
+    private static final String TEST_MODEL_TYPE_NAME = "org.modeshape.modeler.test.Test";
+    
+    static DependencyProcessorRegistry registry( final String... processorClassNames ) throws Exception {
+        final Path jarPath = Files.createTempFile( null, ".jar" );
+        jarPath.toFile().deleteOnExit();
+        try ( JarOutputStream jar = new JarOutputStream( Files.newOutputStream( jarPath ) ) ) {
+            jar.putNextEntry( new JarEntry( "META-INF/services/" + DependencyProcessor.class.getName() ) );
+            for ( final String processorClassName : processorClassNames )
+                jar.write( ( processorClassName + '\n' ).getBytes( StandardCharsets.UTF_8 ) );
+            jar.closeEntry();
+        }
+        return new DependencyProcessorRegistry( new URLClassLoader( new URL[] { jarPath.toUri().toURL() },
+                                                                  DependencyProcessorRegistryTest.class.getClassLoader() ) );
+    }
+    
+    @Test
+    public void shouldDiscoverDependencyProcessorsDeclaredAsServices() throws Exception {
+        final DependencyProcessorRegistry registry = registry( TestDependencyProcessor.class.getName() );
+        assertThat( registry.processor( TEST_MODEL_TYPE_NAME ) instanceof TestDependencyProcessor, is( true ) );
+        assertThat( registry.processor( XML_MODEL_TYPE_NAME ), nullValue() );
+        assertThat( registry.modelTypeNames(), is( Collections.singleton( TEST_MODEL_TYPE_NAME ) ) );
+    }
+    
+    @Test
+    public void shouldDispatchToDependencyProcessorByModelTypeOfModelNode() throws Exception {
+        modelTypeManager.dependencyProcessors = registry( TestDependencyProcessor.class.getName() );
+        manager.run( new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) throws Exception {
+                final Node modelNode = session.getRootNode().addNode( MODEL_NAME );
+                modelNode.addMixin( ModelerLexicon.MODEL_MIXIN );
+                assertThat( modelTypeManager.dependencyProcessor( modelNode ), nullValue() );
+                modelNode.setProperty( ModelerLexicon.MODEL_TYPE, XML_MODEL_TYPE_NAME );
+                assertThat( modelTypeManager.dependencyProcessor( modelNode ), nullValue() );
+                modelNode.setProperty( ModelerLexicon.MODEL_TYPE, TEST_MODEL_TYPE_NAME );
+                assertThat( modelTypeManager.dependencyProcessor( modelNode ) instanceof TestDependencyProcessor, is( true ) );
+                return null;
+            }
+        } );
+    }
+    
+    @Test
+    public void shouldIgnoreDependencyProcessorsThatCannotBeLoaded() throws Exception {
+        final DependencyProcessorRegistry registry = registry( "org.modeshape.modeler.test.BogusDependencyProcessor",
+                                                               TestDependencyProcessor.class.getName() );
+        assertThat( registry.processor( TEST_MODEL_TYPE_NAME ) instanceof TestDependencyProcessor, is( true ) );
+    }
+    
+    public static class TestDependencyProcessor implements DependencyProcessor {
+        
+        @Override
+        public Set< URL > dependencies( final URL artifactUrl ) {
+            return Collections.emptySet();
+        }
+        
+        @Override
+        public Set< String > modelTypeNames() {
+            return Collections.singleton( TEST_MODEL_TYPE_NAME );
+        }
+        
+        @Override
+        public String process( final Node modelNode,
+                               final ModelType modelType,
+                               final Modeler modeler ) {
+            return null;
+        }
+        
+        @Override
+        public boolean processable( final Node modelNode ) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.modeshape.modeler.ModelTypeManager;
+import org.modeshape.modeler.test.BaseTest;
+
+@SuppressWarnings( "javadoc" )
+public class LocalModelTypeRepositoriesTest extends BaseTest {
+    
+    private static final String VERSION = "3.5.0.Final";
+    
+    private static final String XML_ARCHIVE_PATH =
+        "org/modeshape/modeshape-sequencer-xml/3.5.0.Final/modeshape-sequencer-xml-3.5.0.Final-module-with-dependencies.zip";
+    
+    private LocalModelTypeRepositories repositories( final Path... folders ) {
+        return new LocalModelTypeRepositories( Arrays.asList( folders ) );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToInstallOfflineIfNotInLocalRepository() throws Exception {
+        modelTypeManager.setOffline( true );
+        modelTypeManager.install( "bogus" );
+    }
+    
+    @Test
+    public void shouldGetCategoriesFromLocalRepositories() throws Exception {
+        final List< URL > repositoryUrls = Arrays.asList( new URL( ModelTypeManager.MAVEN_MODEL_TYPE_REPOSITORY ), MODEL_TYPE_REPOSITORY );
+        assertThat( repositories().categories( repositoryUrls, VERSION ).containsAll( Arrays.asList( XML_MODEL_TYPE_CATEGORY, "xsd" ) ),
+                    is( true ) );
+    }
+    
+    @Test
+    public void shouldGetInstallableCategoriesFromLocalRepositoryWhenOffline() throws Exception {
+        modelTypeManager.setOffline( true );
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        assertThat( modelTypeManager.installableModelTypeCategories().contains( XML_MODEL_TYPE_CATEGORY ), is( true ) );
+    }
+    
+    @Test
+    public void shouldInstallFromLocalRepositoryWhenOffline() throws Exception {
+        modelTypeManager.setOffline( true );
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        assertThat( modelTypeManager.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).size(), is( 1 ) );
+        assertThat( modelTypeManager.modelTypeRepositoryStatistics().get( 0 ).requests(), is( 0L ) );
+    }
+    
+    @Test
+    public void shouldNotGetCategoriesWithoutArchiveForVersion() throws Exception {
+        final Path folder = Files.createTempDirectory( null );
+        Files.createDirectories( folder.resolve( ModelTypeManagerImpl.MODESHAPE_GROUP + "/modeshape-sequencer-bogus/" + VERSION ) );
+        final Path archive = folder.resolve( ModelTypeManagerImpl.archivePath( "old", "1.0" ) );
+        Files.createFile( Files.createDirectories( archive.getParent() ).resolve( archive.getFileName() ) );
+        assertThat( repositories( folder ).categories( Collections.< URL > emptyList(), VERSION ).isEmpty(), is( true ) );
+        assertThat( repositories( folder ).categories( Collections.< URL > emptyList(), "1.0" ),
+                    is( Collections.singleton( "old" ) ) );
+    }
+    
+    @Test
+    public void shouldNotResolveArchiveMissingFromLocalRepositories() throws Exception {
+        assertThat( repositories( Files.createTempDirectory( null ) ).resolve( Collections.singletonList( MODEL_TYPE_REPOSITORY ),
+                                                                                XML_ARCHIVE_PATH.replace( "xml", "bogus" ) ),
+                    nullValue() );
+    }
+    
+    @Test
+    public void shouldReadMappedArchive() throws Exception {
+        final Path archive = repositories().resolve( Collections.singletonList( MODEL_TYPE_REPOSITORY ), XML_ARCHIVE_PATH );
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( InputStream stream = LocalModelTypeRepositories.open( archive ) ) {
+            final byte[] buf = new byte[ 1000 ];
+            for ( int count = stream.read( buf ); count >= 0; count = stream.read( buf ) )
+                bytes.write( buf, 0, count );
+        }
+        assertThat( Arrays.equals( bytes.toByteArray(), Files.readAllBytes( archive ) ), is( true ) );
+    }
+    
+    @Test
+    public void shouldResolveArchiveFromConfiguredFolder() throws Exception {
+        final Path folder = LocalModelTypeRepositories.folder( MODEL_TYPE_REPOSITORY );
+        final Path archive = repositories( folder ).resolve( Collections.< URL > emptyList(), XML_ARCHIVE_PATH );
+        assertThat( archive, is( folder.resolve( XML_ARCHIVE_PATH ) ) );
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.junit.Test;
+import org.modeshape.modeler.test.BaseTest;
+
+@SuppressWarnings( "javadoc" )
+public class ManagerTest extends BaseTest {
+    
+    @Test
+    public void shouldCountSessionPoolHitsAndMisses() throws Exception {
+        final long hits = manager.sessionPoolHits();
+        final long misses = manager.sessionPoolMisses();
+        final Task< Void > task = new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) {
+                return null;
+            }
+        };
+        manager.run( task );
+        manager.run( task );
+        assertThat( manager.sessionPoolHits() + manager.sessionPoolMisses(), is( hits + misses + 2 ) );
+        assertThat( manager.sessionPoolHits() > hits, is( true ) );
+    }
+    
+    @Test
+    public void shouldDiscardPendingChangesWhenSessionReturnedToPool() throws Exception {
+        manager.run( new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) throws Exception {
+                session.getRootNode().addNode( "unsaved" );
+                return null;
+            }
+        } );
+        assertThat( manager.run( new Task< Boolean >() {
+            
+            @Override
+            public Boolean run( final Session session ) throws Exception {
+                return session.nodeExists( "/unsaved" );
+            }
+        } ), is( false ) );
+    }
+    
+    @Test
+    public void shouldDiscardSessionIfTaskFails() throws Exception {
+        final Session[] failedSession = new Session[ 1 ];
+        try {
+            manager.run( new Task< Void >() {
+                
+                @Override
+                public Void run( final Session session ) {
+                    failedSession[ 0 ] = session;
+                    throw new IllegalStateException();
+                }
+            } );
+            fail();
+        } catch ( final IllegalStateException expected ) {
+            assertThat( failedSession[ 0 ].isLive(), is( false ) );
+        }
+    }
+    
+    @Test
+    public void shouldPoolSystemSessionsSeparately() throws Exception {
+        final Session systemSession = manager.run( this, new SystemTask< Session >() {
+            
+            @Override
+            public Session run( final Session session,
+                                final Node systemNode ) {
+                return session;
+            }
+        } );
+        assertThat( systemSession.getWorkspace().getName(), is( Manager.SYSTEM_WORKSPACE ) );
+        final Session session = manager.run( new Task< Session >() {
+            
+            @Override
+            public Session run( final Session session ) {
+                return session;
+            }
+        } );
+        assertThat( session.getWorkspace().getName(), is( Manager.DEFAULT_WORKSPACE ) );
+    }
+    
+    @Test
+    public void shouldReuseSessions() throws Exception {
+        final Task< Session > task = new Task< Session >() {
+            
+            @Override
+            public Session run( final Session session ) {
+                return session;
+            }
+        };
+        final Session session = manager.run( task );
+        assertThat( manager.run( task ), sameInstance( session ) );
+        assertThat( session.isLive(), is( true ) );
+    }
+}
@@ -29,21 +29,57 @@ import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.modeler.Model;
 import org.modeshape.modeler.ModelObject;
+import org.modeshape.modeler.ModelObjectSnapshot;
 import org.modeshape.modeler.ModelType;
+import org.modeshape.modeler.ModelVisitor;
+import org.modeshape.modeler.TraversalOptions;
+import org.modeshape.modeler.TraversalOptions.Order;
 
 @SuppressWarnings( "javadoc" )
 public class ModelImplTest extends BaseModelObjectImplTest {
     
+    private static final String NESTED_XML_ARTIFACT = XML_DECLARATION + "<a><b><c/></b><d/></a>";
+    
+    private Model nestedModel() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        return modeler.generateModel( stream( NESTED_XML_ARTIFACT ), MODEL_NAME, modelTypeManager.modelType( XML_MODEL_TYPE_NAME ) );
+    }
+    
+    private List< String > walk( final Model model,
+                                 final TraversalOptions options,
+                                 final String prunedName ) throws Exception {
+        final List< String > visited = new ArrayList<>();
+        model.walk( new ModelVisitor() {
+            
+            @Override
+            public boolean visit( final ModelObject modelObject,
+                                  final int depth ) throws Exception {
+                visited.add( modelObject.name() + depth );
+                return !modelObject.name().equals( prunedName );
+            }
+        }, options );
+        return visited;
+    }
+    
     @Test( expected = IllegalArgumentException.class )
     public void shouldFailToGetStringValueIfMultiValuedProperty() throws Exception {
         modelObject().stringValue( JcrLexicon.MIXIN_TYPES.toString() );
     }
     
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToWalkIfVisitorNull() throws Exception {
+        ( ( Model ) modelObject() ).walk( null, TraversalOptions.DEFAULT );
+    }
+    
     @Test
     public void shouldGetAbsolutePath() throws Exception {
         assertThat( modelObject().absolutePath(), is( '/' + MODEL_NAME ) );
@@ -127,6 +163,15 @@ public class ModelImplTest extends BaseModelObjectImplTest {
         assertThat( modelObject().primaryType(), is( "modexml:document" ) );
     }
     
+    @Test
+    public void shouldGetProperties() throws Exception {
+        final ModelObject modelObject = modelObject();
+        assertThat( modelObject.properties().isEmpty(), is( true ) );
+        final Object mixins = modelObject.properties( JcrLexicon.MIXIN_TYPES.toString() ).get( JcrLexicon.MIXIN_TYPES.toString() );
+        assertThat( mixins instanceof Object[], is( true ) );
+        assertThat( ( ( Object[] ) mixins )[ 0 ], is( ( Object ) ModelerLexicon.MODEL_MIXIN ) );
+    }
+    
     @Test
     public void shouldGetPropertyNames() throws Exception {
         final ModelObject modelObject = modelObject();
@@ -177,4 +222,45 @@ public class ModelImplTest extends BaseModelObjectImplTest {
         assertThat( modelObject.propertyHasMultipleValues( JcrLexicon.MIXIN_TYPES.toString() ), is( true ) );
         assertThat( modelObject.propertyHasMultipleValues( "bogus" ), is( false ) );
     }
+    
+    @Test
+    public void shouldNotVisitBeyondMaxDepth() throws Exception {
+        assertThat( walk( nestedModel(), new TraversalOptions( Order.DEPTH_FIRST, 1, false ), null ),
+                    is( Arrays.asList( MODEL_NAME + 0, "a1" ) ) );
+    }
+    
+    @Test
+    public void shouldNotVisitDescendantsOfPrunedObjects() throws Exception {
+        assertThat( walk( nestedModel(), TraversalOptions.DEFAULT, "b" ), is( Arrays.asList( MODEL_NAME + 0, "a1", "b2", "d2" ) ) );
+    }
+    
+    @Test
+    public void shouldPrefetchPropertiesOfVisitedObjects() throws Exception {
+        final List< ModelObject > visited = new ArrayList<>();
+        nestedModel().walk( new ModelVisitor() {
+            
+            @Override
+            public boolean visit( final ModelObject modelObject,
+                                  final int depth ) {
+                visited.add( modelObject );
+                return true;
+            }
+        }, new TraversalOptions( Order.DEPTH_FIRST, -1, true ) );
+        assertThat( visited.size(), is( 5 ) );
+        for ( final ModelObject modelObject : visited )
+            assertThat( modelObject instanceof ModelObjectSnapshot, is( true ) );
+        assertThat( visited.get( 4 ).name(), is( "d" ) );
+        assertThat( visited.get( 4 ).modelRelativePath(), is( "a/d" ) );
+    }
+    
+    @Test
+    public void shouldWalkBreadthFirst() throws Exception {
+        assertThat( walk( nestedModel(), new TraversalOptions( Order.BREADTH_FIRST, -1, false ), null ),
+                    is( Arrays.asList( MODEL_NAME + 0, "a1", "b2", "d2", "c3" ) ) );
+    }
+    
+    @Test
+    public void shouldWalkDepthFirst() throws Exception {
+        assertThat( walk( nestedModel(), TraversalOptions.DEFAULT, null ), is( Arrays.asList( MODEL_NAME + 0, "a1", "b2", "c3", "d2" ) ) );
+    }
 }
@@ -27,6 +27,13 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Map;
+
+import javax.jcr.Session;
+
 import org.junit.Test;
 import org.modeshape.jcr.JcrLexicon;
 import org.modeshape.modeler.ModelObject;
@@ -34,6 +41,10 @@ import org.modeshape.modeler.ModelObject;
 @SuppressWarnings( "javadoc" )
 public class ModelObjectImplTest extends BaseModelObjectImplTest {
     
+    private static final String TYPED_DATE = "2013-01-02T03:04:05.000Z";
+    private static final String TYPED_XML_ARTIFACT = XML_DECLARATION + "<typed long='12' double='1.5' boolean='true' date='"
+                                                     + TYPED_DATE + "'/>";
+    
     /**
      * {@inheritDoc}
      * 
@@ -44,11 +55,49 @@ public class ModelObjectImplTest extends BaseModelObjectImplTest {
         return super.modelObject().child( XML_ROOT );
     }
     
+    protected ModelObject typedModelObject() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        return modeler.generateModel( stream( TYPED_XML_ARTIFACT ), MODEL_NAME, modelTypeManager.modelType( XML_MODEL_TYPE_NAME ) )
+                      .child( "typed" );
+    }
+    
+    @Test( expected = UnsupportedOperationException.class )
+    public void shouldFailToModifyProperties() throws Exception {
+        modelObject().properties().put( XML_ROOT_PROPERTY, "bogus" );
+    }
+    
+    @Test
+    public void shouldFollowObjectAcrossMoves() throws Exception {
+        final ModelObject modelObject = super.modelObject().child( XML_ROOT );
+        manager.run( new Task< Void >() {
+            
+            @Override
+            public Void run( final Session session ) throws Exception {
+                session.move( '/' + MODEL_NAME + '/' + XML_ROOT, '/' + MODEL_NAME + "/moved" );
+                session.save();
+                return null;
+            }
+        } );
+        assertThat( modelObject.name(), is( "moved" ) );
+        assertThat( modelObject.absolutePath(), is( '/' + MODEL_NAME + "/moved" ) );
+        assertThat( modelObject.toString(), is( '/' + MODEL_NAME + "/moved" ) );
+        assertThat( modelObject.modelRelativePath(), is( "moved" ) );
+        assertThat( modelObject.stringValue( XML_ROOT_PROPERTY ), is( XML_STRING_VALUE ) );
+    }
+    
     @Test
     public void shouldGetAbsolutePath() throws Exception {
         assertThat( modelObject().absolutePath(), is( '/' + MODEL_NAME + '/' + XML_ROOT ) );
     }
     
+    @Test
+    public void shouldGetBooleanArray() throws Exception {
+        final boolean[] vals = typedModelObject().booleanArray( "boolean" );
+        assertThat( vals.length, is( 1 ) );
+        assertThat( vals[ 0 ], is( true ) );
+    }
+    
     @Test
     public void shouldGetChild() throws Exception {
         final ModelObject child = modelObject().child( XML_LEAF );
@@ -75,6 +124,28 @@ public class ModelObjectImplTest extends BaseModelObjectImplTest {
         assertThat( children[ 1 ].name(), is( XML_SAME_NAME_SIBLING ) );
     }
     
+    @Test
+    public void shouldGetDateArray() throws Exception {
+        final Calendar[] vals = typedModelObject().dateArray( "date" );
+        assertThat( vals.length, is( 1 ) );
+        assertThat( vals[ 0 ].getTimeInMillis(),
+                    is( new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ss.SSSXXX" ).parse( TYPED_DATE ).getTime() ) );
+    }
+    
+    @Test
+    public void shouldGetDecimalArray() throws Exception {
+        final BigDecimal[] vals = typedModelObject().decimalArray( "double" );
+        assertThat( vals.length, is( 1 ) );
+        assertThat( vals[ 0 ], is( new BigDecimal( "1.5" ) ) );
+    }
+    
+    @Test
+    public void shouldGetDoubleArray() throws Exception {
+        final double[] vals = typedModelObject().doubleArray( "double" );
+        assertThat( vals.length, is( 1 ) );
+        assertThat( vals[ 0 ], is( 1.5 ) );
+    }
+    
     @Test
     public void shouldGetIndex() throws Exception {
         assertThat( modelObject().index(), is( 0 ) );
@@ -83,6 +154,13 @@ public class ModelObjectImplTest extends BaseModelObjectImplTest {
         assertThat( objs[ 1 ].index(), is( 1 ) );
     }
     
+    @Test
+    public void shouldGetLongArray() throws Exception {
+        final long[] vals = typedModelObject().longArray( "long" );
+        assertThat( vals.length, is( 1 ) );
+        assertThat( vals[ 0 ], is( 12L ) );
+    }
+    
     @Test
     public void shouldGetMixinTypes() throws Exception {
         final String[] types = modelObject().mixinTypes();
@@ -105,11 +183,33 @@ public class ModelObjectImplTest extends BaseModelObjectImplTest {
         assertThat( modelObject().name(), is( XML_ROOT ) );
     }
     
+    @Test
+    public void shouldGetPathAsString() throws Exception {
+        assertThat( modelObject().toString(), is( '/' + MODEL_NAME + '/' + XML_ROOT ) );
+    }
+    
     @Test
     public void shouldGetPrimaryType() throws Exception {
         assertThat( modelObject().primaryType(), is( "modexml:element" ) );
     }
     
+    @Test
+    public void shouldGetNamedProperties() throws Exception {
+        final Map< String, Object > props =
+            modelObject().properties( XML_ROOT_PROPERTY, JcrLexicon.PRIMARY_TYPE.toString(), JcrLexicon.MIXIN_TYPES.toString(), "bogus" );
+        assertThat( props.size(), is( 2 ) );
+        assertThat( props.get( XML_ROOT_PROPERTY ), is( ( Object ) XML_STRING_VALUE ) );
+        assertThat( props.get( JcrLexicon.PRIMARY_TYPE.toString() ), is( ( Object ) "modexml:element" ) );
+    }
+    
+    @Test
+    public void shouldGetProperties() throws Exception {
+        final Map< String, Object > props = modelObject().properties();
+        assertThat( props.size(), is( 1 ) );
+        assertThat( props.get( XML_ROOT_PROPERTY ), is( ( Object ) XML_STRING_VALUE ) );
+        assertThat( modelObject().child( XML_LEAF ).properties().isEmpty(), is( true ) );
+    }
+    
     @Test
     public void shouldGetPropertyNames() throws Exception {
         assertThat( modelObject().propertyNames().length, is( 1 ) );
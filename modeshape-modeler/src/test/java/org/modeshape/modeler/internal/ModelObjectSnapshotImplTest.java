@@ -0,0 +1,104 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.modeshape.jcr.JcrLexicon;
+import org.modeshape.modeler.ModelObject;
+import org.modeshape.modeler.ModelObjectSnapshot;
+import org.modeshape.modeler.ModelerTransaction;
+
+@SuppressWarnings( "javadoc" )
+public class ModelObjectSnapshotImplTest extends ModelObjectImplTest {
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.internal.ModelObjectImplTest#modelObject()
+     */
+    @Override
+    protected ModelObject modelObject() throws Exception {
+        return super.modelObject().snapshot( -1 );
+    }
+    
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.modeshape.modeler.internal.ModelObjectImplTest#typedModelObject()
+     */
+    @Override
+    protected ModelObject typedModelObject() throws Exception {
+        return super.typedModelObject().snapshot( 0 );
+    }
+    
+    @Test
+    public void shouldEstimateSizeOfLoadedDescendants() throws Exception {
+        final ModelObject modelObject = super.modelObject();
+        final long shallowSize = modelObject.snapshot( 0 ).estimatedSize();
+        assertThat( shallowSize > 0, is( true ) );
+        assertThat( modelObject.snapshot( -1 ).estimatedSize() > shallowSize, is( true ) );
+    }
+    
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailToGetLongValueIfMultiValuedProperty() throws Exception {
+        modelObject().model().snapshot( 0 ).longValue( JcrLexicon.MIXIN_TYPES.toString() );
+    }
+    
+    @Test
+    public void shouldGetChildrenBeyondSnapshotDepthFromRepository() throws Exception {
+        final ModelObjectSnapshot snapshot = super.modelObject().snapshot( 0 );
+        assertThat( snapshot.children().length, is( 3 ) );
+        assertThat( snapshot.hasChild( XML_LEAF ), is( true ) );
+    }
+    
+    @Test
+    public void shouldReadSnapshotAfterModelRemoved() throws Exception {
+        final ModelObject snapshot = modelObject();
+        modeler.batch( new ModelerTransaction.Work< Void >() {
+            
+            @Override
+            public Void run( final ModelerTransaction transaction ) throws Exception {
+                transaction.remove( MODEL_NAME );
+                return null;
+            }
+        } );
+        assertThat( snapshot.stringValue( XML_ROOT_PROPERTY ), is( XML_STRING_VALUE ) );
+        assertThat( snapshot.children().length, is( 3 ) );
+        assertThat( snapshot.child( XML_LEAF ).name(), is( XML_LEAF ) );
+        assertThat( snapshot.children( XML_SAME_NAME_SIBLING )[ 1 ].index(), is( 1 ) );
+    }
+    
+    @Test
+    public void shouldReuseSnapshotIfRequestedDepthAlreadyLoaded() throws Exception {
+        final ModelObjectSnapshot snapshot = super.modelObject().snapshot( 1 );
+        assertThat( snapshot.snapshot( 0 ), sameInstance( snapshot ) );
+        assertThat( snapshot.snapshot( 1 ), sameInstance( snapshot ) );
+        assertThat( snapshot.snapshot( -1 ), not( sameInstance( snapshot ) ) );
+    }
+}
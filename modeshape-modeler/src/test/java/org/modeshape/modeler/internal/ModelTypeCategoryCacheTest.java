@@ -0,0 +1,170 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.modeler.ModelerException;
+import org.modeshape.modeler.test.BaseTest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+@SuppressWarnings( "javadoc" )
+public class ModelTypeCategoryCacheTest extends BaseTest {
+    
+    private static final Set< String > CATEGORIES = new HashSet<>( Arrays.asList( "xml", "xsd" ) );
+    private static final String ETAG = "\"listing\"";
+    private static final String LISTING = "<html><body>"
+                                          + "<a href='modeshape-sequencer-xml/'>modeshape-sequencer-xml/</a>"
+                                          + "<a href='modeshape-sequencer-xsd/'>modeshape-sequencer-xsd/</a>"
+                                          + "<a href='modeshape-web/'>modeshape-web/</a>"
+                                          + "</body></html>";
+    
+    private HttpServer server;
+    private URL repositoryUrl;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final AtomicInteger revalidations = new AtomicInteger();
+    private ModelTypeCategoryCache cache;
+    
+    @Override
+    @After
+    public void after() throws Exception {
+        if ( server != null ) server.stop( 0 );
+        super.after();
+    }
+    
+    @Override
+    @Before
+    public void before() throws Exception {
+        super.before();
+        server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        server.createContext( "/", new HttpHandler() {
+            
+            @Override
+            public void handle( final HttpExchange exchange ) throws IOException {
+                if ( ETAG.equals( exchange.getRequestHeaders().getFirst( "If-None-Match" ) ) ) {
+                    revalidations.incrementAndGet();
+                    exchange.sendResponseHeaders( 304, -1 );
+                } else {
+                    fetches.incrementAndGet();
+                    final byte[] bytes = LISTING.getBytes( "UTF-8" );
+                    exchange.getResponseHeaders().set( "Content-Type", "text/html; charset=UTF-8" );
+                    exchange.getResponseHeaders().set( "ETag", ETAG );
+                    exchange.sendResponseHeaders( 200, bytes.length );
+                    try ( OutputStream stream = exchange.getResponseBody() ) {
+                        stream.write( bytes );
+                    }
+                }
+                exchange.close();
+            }
+        } );
+        server.start();
+        repositoryUrl = new URL( "http://localhost:" + server.getAddress().getPort() + "/repository" );
+        cache = modelTypeManager.categoryCache;
+    }
+    
+    private void stopServer() {
+        server.stop( 0 );
+        server = null;
+    }
+    
+    @Test( expected = ModelerException.class )
+    public void shouldFailIfRepositoryUnreachableAndNotCached() throws Exception {
+        stopServer();
+        cache.categories( Collections.singletonList( repositoryUrl ) );
+    }
+    
+    @Test
+    public void shouldFetchRepositoriesInParallel() throws Exception {
+        final URL otherRepositoryUrl = new URL( "http://127.0.0.1:" + server.getAddress().getPort() + "/repository" );
+        assertThat( cache.categories( Arrays.asList( repositoryUrl, otherRepositoryUrl ) ).equals( CATEGORIES ), is( true ) );
+        assertThat( fetches.get(), is( 2 ) );
+        assertThat( cache.listingsByRepository.size(), is( 2 ) );
+    }
+    
+    @Test
+    public void shouldGetCachedCategoriesUntilExpired() throws Exception {
+        assertThat( cache.categories( Collections.singletonList( repositoryUrl ) ).equals( CATEGORIES ), is( true ) );
+        cache.categories( Collections.singletonList( repositoryUrl ) );
+        assertThat( fetches.get(), is( 1 ) );
+        assertThat( revalidations.get(), is( 0 ) );
+    }
+    
+    @Test
+    public void shouldGetCategoriesFromSystemWorkspaceAfterRestart() throws Exception {
+        cache.categories( Collections.singletonList( repositoryUrl ) );
+        cache.listingsByRepository.clear();
+        modelTypeManager.setOffline( true );
+        assertThat( cache.categories( Collections.singletonList( repositoryUrl ) ).contains( "xml" ), is( true ) );
+        assertThat( fetches.get(), is( 1 ) );
+    }
+    
+    @Test
+    public void shouldGetCategoriesThroughModelTypeManager() throws Exception {
+        for ( final URL url : modelTypeManager.modelTypeRepositories() )
+            modelTypeManager.unregisterModelTypeRepository( url );
+        modelTypeManager.registerModelTypeRepository( repositoryUrl );
+        assertThat( modelTypeManager.installableModelTypeCategories().contains( "xsd" ), is( true ) );
+    }
+    
+    @Test
+    public void shouldGetEmptyCategoriesIfOfflineAndNotCached() throws Exception {
+        modelTypeManager.setOffline( true );
+        assertThat( cache.categories( Collections.singletonList( repositoryUrl ) ).isEmpty(), is( true ) );
+        assertThat( fetches.get(), is( 0 ) );
+    }
+    
+    @Test
+    public void shouldGetStaleCategoriesIfRepositoryUnreachable() throws Exception {
+        cache.categories( Collections.singletonList( repositoryUrl ) );
+        cache.ttl = 0;
+        stopServer();
+        assertThat( cache.categories( Collections.singletonList( repositoryUrl ) ).contains( "xml" ), is( true ) );
+    }
+    
+    @Test
+    public void shouldRevalidateExpiredCategories() throws Exception {
+        cache.categories( Collections.singletonList( repositoryUrl ) );
+        cache.ttl = 0;
+        assertThat( cache.categories( Collections.singletonList( repositoryUrl ) ).contains( "xsd" ), is( true ) );
+        assertThat( fetches.get(), is( 1 ) );
+        assertThat( revalidations.get(), is( 1 ) );
+    }
+}
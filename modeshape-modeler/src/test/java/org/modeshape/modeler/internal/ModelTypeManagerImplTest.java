@@ -27,14 +27,34 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
+import java.math.BigInteger;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.Repository;
 import javax.jcr.Session;
 import javax.jcr.Value;
@@ -49,6 +69,29 @@ import org.modeshape.modeler.test.BaseTest;
 @SuppressWarnings( "javadoc" )
 public class ModelTypeManagerImplTest extends BaseTest {
     
+    private List< Future< Collection< String > > > installConcurrently( final String... categories ) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool( categories.length );
+        try {
+            final CountDownLatch start = new CountDownLatch( 1 );
+            final List< Future< Collection< String > > > installs = new ArrayList<>();
+            for ( final String category : categories )
+                installs.add( executor.submit( new Callable< Collection< String > >() {
+                    
+                    @Override
+                    public Collection< String > call() throws Exception {
+                        start.await();
+                        return modelTypeManager.install( category );
+                    }
+                } ) );
+            start.countDown();
+            for ( final Future< Collection< String > > install : installs )
+                install.get( 1, TimeUnit.MINUTES );
+            return installs;
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
     @Test( expected = IllegalArgumentException.class )
     public void shouldFailToGetApplicableModelTypesIfPathIsEmpty() throws Exception {
         modelTypeManager.modelTypesForArtifact( " " );
@@ -144,6 +187,63 @@ public class ModelTypeManagerImplTest extends BaseTest {
         modelTypeManager.unregisterModelTypeRepository( null );
     }
     
+    @Test
+    public void shouldCoalesceConcurrentInstallsOfSameCategory() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        final List< Future< Collection< String > > > installs = installConcurrently( XML_MODEL_TYPE_CATEGORY,
+                                                                                       XML_MODEL_TYPE_CATEGORY,
+                                                                                       XML_MODEL_TYPE_CATEGORY,
+                                                                                       XML_MODEL_TYPE_CATEGORY );
+        for ( final Future< Collection< String > > install : installs )
+            install.get();
+        assertThat( modelTypeManager.installsByCategory.isEmpty(), is( true ) );
+        assertThat( modelTypeManager.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).size(), is( 1 ) );
+        manager.run( modelTypeManager, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                assertThat( systemNode.getProperty( ModelTypeManagerImpl.ZIPS ).getValues().length, is( 1 ) );
+                final Set< String > jarNames = new HashSet<>();
+                for ( final NodeIterator iter = systemNode.getNode( ModelTypeManagerImpl.JARS ).getNodes(); iter.hasNext(); )
+                    assertThat( jarNames.add( iter.nextNode().getName() ), is( true ) );
+                return null;
+            }
+        } );
+    }
+    
+    @Test
+    public void shouldDeferLoadingCategoryUntilModelTypeUsed() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        modeler.close();
+        try ( Modeler modeler = new Modeler( TEST_REPOSITORY_STORE_PARENT_PATH ) ) {
+            final ModelTypeManagerImpl modelTypeManager = ( ModelTypeManagerImpl ) modeler.modelTypeManager();
+            final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+            assertThat( type.mimeTypes().isEmpty(), is( false ) );
+            final String mimeType = type.mimeTypes().iterator().next();
+            assertThat( modelTypeManager.modelTypeIndex.modelTypesForMimeType( mimeType ).contains( type ), is( true ) );
+            assertThat( modelTypeManager.classLoadersByCategory.isEmpty(), is( true ) );
+            assertThat( type.sequencer(), notNullValue() );
+            final CategoryClassLoader classLoader = modelTypeManager.classLoadersByCategory.get( XML_MODEL_TYPE_CATEGORY );
+            assertThat( classLoader, notNullValue() );
+            assertThat( classLoader.jarPaths().isEmpty(), is( false ) );
+            assertThat( type.sequencer().getClass().getClassLoader(), sameInstance( ( ClassLoader ) classLoader ) );
+        }
+    }
+    
+    @Test
+    public void shouldFindResourcesInDependencyCategories() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        modelTypeManager.install( "xsd" );
+        final String name = "org/eclipse/xsd/XSDSchema.class";
+        final CategoryClassLoader classLoader = modelTypeManager.loadCategory( XML_MODEL_TYPE_CATEGORY );
+        final URL url = classLoader.getResource( name );
+        assertThat( url, notNullValue() );
+        assertThat( Collections.list( classLoader.getResources( name ) ).contains( url ), is( true ) );
+    }
+    
     @Test
     public void shouldGetDefaultRegisteredModelTypeRepositories() {
         final List< URL > repos = modelTypeManager.modelTypeRepositories();
@@ -194,6 +294,85 @@ public class ModelTypeManagerImplTest extends BaseTest {
         assertThat( modelTypeManager.defaultModelType( importArtifact( "stuff" ) ), nullValue() );
     }
     
+    @Test
+    public void shouldIndexModelTypeWithUnknownMimeTypesForAnyMimeTypeUntilSequencerCreated() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        // Simulate a model type persisted before its MIME types were
+        manager.run( modelTypeManager, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                systemNode.getNode( ModelTypeManagerImpl.MODEL_TYPES ).getNode( XML_MODEL_TYPE_NAME )
+                          .getProperty( ModelTypeManagerImpl.MIME_TYPES ).remove();
+                session.save();
+                return null;
+            }
+        } );
+        modeler.close();
+        try ( Modeler modeler = new Modeler( TEST_REPOSITORY_STORE_PARENT_PATH ) ) {
+            final ModelTypeManagerImpl modelTypeManager = ( ModelTypeManagerImpl ) modeler.modelTypeManager();
+            final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+            assertThat( type.knownMimeTypes(), nullValue() );
+            assertThat( modelTypeManager.modelTypeIndex.modelTypesForMimeType( "bogus/bogus" ).contains( type ), is( true ) );
+            assertThat( type.sequencer, nullValue() );
+            type.sequencer();
+            assertThat( type.knownMimeTypes().isEmpty(), is( false ) );
+            assertThat( modelTypeManager.modelTypeIndex.modelTypesForMimeType( "bogus/bogus" ).contains( type ), is( false ) );
+        }
+    }
+    
+    @Test
+    public void shouldIndexModelTypesByMimeType() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        final ModelTypeIndex index = modelTypeManager.modelTypeIndex;
+        final Set< String > mimeTypes = type.sequencer().getAcceptedMimeTypes();
+        assertThat( mimeTypes.isEmpty(), is( false ) );
+        for ( final String mimeType : mimeTypes )
+            assertThat( index.modelTypesForMimeType( mimeType ).contains( type ), is( true ) );
+        assertThat( index.modelTypesForMimeType( "bogus/bogus" ).contains( type ), is( false ) );
+        modelTypeManager.uninstall( XML_MODEL_TYPE_CATEGORY );
+        assertThat( modelTypeManager.modelTypeIndex.modelTypesForMimeType( null ).isEmpty(), is( true ) );
+    }
+    
+    @Test
+    public void shouldIndexModelTypesByNameAndCategory() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelTypeIndex index = modelTypeManager.modelTypeIndex;
+        final ModelType type = index.modelType( XML_MODEL_TYPE_NAME );
+        assertThat( modelTypeManager.modelType( XML_MODEL_TYPE_NAME ), sameInstance( type ) );
+        assertThat( index.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).contains( type ), is( true ) );
+        assertThat( index.categories().contains( XML_MODEL_TYPE_CATEGORY ), is( true ) );
+        modelTypeManager.uninstall( XML_MODEL_TYPE_CATEGORY );
+        assertThat( modelTypeManager.modelType( XML_MODEL_TYPE_NAME ), nullValue() );
+        assertThat( modelTypeManager.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).isEmpty(), is( true ) );
+        assertThat( modelTypeManager.modelTypeCategories().isEmpty(), is( true ) );
+        // Earlier snapshots are unaffected
+        assertThat( index.modelType( XML_MODEL_TYPE_NAME ), sameInstance( type ) );
+    }
+    
+    @Test
+    public void shouldInstallDifferentCategoriesConcurrently() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        for ( final Future< Collection< String > > install : installConcurrently( XML_MODEL_TYPE_CATEGORY, "xsd" ) )
+            install.get();
+        assertThat( modelTypeManager.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).size(), is( 1 ) );
+        assertThat( modelTypeManager.potentialSequencerCategoriesByClassName.containsValue( "xsd" ), is( true ) );
+        manager.run( modelTypeManager, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                assertThat( systemNode.getProperty( ModelTypeManagerImpl.ZIPS ).getValues().length, is( 2 ) );
+                return null;
+            }
+        } );
+    }
+    
     @Test
     public void shouldInstallModelTypes() throws Exception {
         modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
@@ -202,7 +381,20 @@ public class ModelTypeManagerImplTest extends BaseTest {
         assertThat( modelTypeManager.modelTypes().isEmpty(), is( false ) );
         final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelTypes().iterator().next();
         assertThat( type.category(), is( "java" ) );
-        assertThat( type.sequencerClass, notNullValue() );
+        assertThat( type.sequencerClass(), notNullValue() );
+    }
+    
+    @Test
+    public void shouldKeepModelTypesSnapshotUnchangedByInstallAndUninstall() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        final Set< ModelType > emptySnapshot = modelTypeManager.modelTypes();
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final Set< ModelType > snapshot = modelTypeManager.modelTypes();
+        assertThat( emptySnapshot.isEmpty(), is( true ) );
+        assertThat( snapshot.size(), is( 1 ) );
+        modelTypeManager.uninstall( XML_MODEL_TYPE_CATEGORY );
+        assertThat( snapshot.size(), is( 1 ) );
+        assertThat( modelTypeManager.modelTypes().isEmpty(), is( true ) );
     }
     
     @Test
@@ -220,8 +412,10 @@ public class ModelTypeManagerImplTest extends BaseTest {
             final ModelTypeManagerImpl modelTypeManager = ( ModelTypeManagerImpl ) modeler.modelTypeManager();
             assertThat( modelTypeManager.modelTypeRepositories().size(), not( repos ) );
             assertThat( modelTypeManager.modelTypes().isEmpty(), is( false ) );
-            assertThat( modelTypeManager.libraryClassLoader.getURLs().length > 0, is( true ) );
-            assertThat( modelTypeManager.potentialSequencerClassNamesByCategory.isEmpty(), is( false ) );
+            final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelTypes().iterator().next();
+            type.sequencerClass();
+            assertThat( modelTypeManager.classLoadersByCategory.get( type.category() ).jarPaths().isEmpty(), is( false ) );
+            assertThat( modelTypeManager.potentialSequencerCategoriesByClassName.isEmpty(), is( false ) );
             TestUtil.manager( modeler ).run( modelTypeManager, new SystemTask< Void >() {
                 
                 @Override
@@ -312,6 +506,67 @@ public class ModelTypeManagerImplTest extends BaseTest {
         assertThat( repos.contains( MODEL_TYPE_REPOSITORY ), is( true ) );
     }
     
+    @Test
+    public void shouldReuseLibraryJarsAndPruneStaleOnes() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final Path jarPath =
+            modelTypeManager.classLoadersByCategory.get( XML_MODEL_TYPE_CATEGORY ).jarPaths().iterator().next();
+        assertThat( jarPath.startsWith( modelTypeManager.library ), is( true ) );
+        // Mark the jar so a fresh copy would be detected
+        final FileTime marker = FileTime.fromMillis( 0 );
+        Files.setLastModifiedTime( jarPath, marker );
+        final Path staleFolder = Files.createDirectories( modelTypeManager.library.resolve( "0123456789abcdef0123456789abcdef01234567" ) );
+        Files.createFile( staleFolder.resolve( "stale.jar" ) );
+        Files.createFile( Files.createDirectories( staleFolder.resolve( "nested" ) ).resolve( "stale.jar" ) );
+        final Path unrelatedFolder = Files.createDirectories( modelTypeManager.library.resolve( "unrelated" ) );
+        modeler.close();
+        try ( Modeler modeler = new Modeler( TEST_REPOSITORY_STORE_PARENT_PATH ) ) {
+            final ModelTypeManagerImpl modelTypeManager = ( ModelTypeManagerImpl ) modeler.modelTypeManager();
+            assertThat( modelTypeManager.loadCategory( XML_MODEL_TYPE_CATEGORY ).jarPaths().contains( jarPath ), is( true ) );
+            assertThat( Files.getLastModifiedTime( jarPath ), is( marker ) );
+            assertThat( Files.exists( staleFolder ), is( false ) );
+            assertThat( Files.exists( unrelatedFolder ), is( true ) );
+        }
+    }
+    
+    @Test
+    public void shouldReuseSequencer() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        assertThat( type.sequencer(), sameInstance( type.sequencer() ) );
+    }
+    
+    @Test
+    public void shouldStreamJarsIntoRepositoryAndLibrary() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        manager.run( modelTypeManager, new SystemTask< Void >() {
+            
+            @Override
+            public Void run( final Session session,
+                             final Node systemNode ) throws Exception {
+                final NodeIterator iter = systemNode.getNode( ModelTypeManagerImpl.JARS ).getNodes();
+                assertThat( iter.hasNext(), is( true ) );
+                while ( iter.hasNext() ) {
+                    final Node node = iter.nextNode();
+                    final Path jarPath = modelTypeManager.libraryPath( node );
+                    assertThat( Files.isRegularFile( jarPath ), is( true ) );
+                    final MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+                    digest.update( Files.readAllBytes( jarPath ) );
+                    assertThat( node.getProperty( ModelTypeManagerImpl.SHA256 ).getString(),
+                                is( String.format( "%064x", new BigInteger( 1, digest.digest() ) ) ) );
+                }
+                return null;
+            }
+        } );
+        // No copy of the archive is left behind
+        try ( DirectoryStream< Path > paths = Files.newDirectoryStream( modelTypeManager.library, "*.zip" ) ) {
+            assertThat( paths.iterator().hasNext(), is( false ) );
+        }
+    }
+    
     @Test
     public void shouldUninstall() throws Exception {
         modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
@@ -330,6 +585,32 @@ public class ModelTypeManagerImplTest extends BaseTest {
         } );
     }
     
+    @Test
+    public void shouldUninstallCachedSequencer() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final ModelTypeImpl type = ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME );
+        assertThat( type.sequencer(), notNullValue() );
+        modelTypeManager.uninstall( XML_MODEL_TYPE_CATEGORY );
+        assertThat( type.sequencer, nullValue() );
+    }
+    
+    @Test
+    public void shouldUnloadCategoryClassesOnUninstall() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final Class< ? > sequencerClass = ( ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME ) ).sequencerClass();
+        final CategoryClassLoader classLoader = modelTypeManager.classLoadersByCategory.get( XML_MODEL_TYPE_CATEGORY );
+        assertThat( sequencerClass.getClassLoader(), sameInstance( ( ClassLoader ) classLoader ) );
+        modelTypeManager.uninstall( XML_MODEL_TYPE_CATEGORY );
+        assertThat( modelTypeManager.classLoadersByCategory.containsKey( XML_MODEL_TYPE_CATEGORY ), is( false ) );
+        assertThat( classLoader.getResource( sequencerClass.getName().replace( '.', '/' ) + ".class" ), nullValue() );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        final Class< ? > reloadedClass = ( ( ModelTypeImpl ) modelTypeManager.modelType( XML_MODEL_TYPE_NAME ) ).sequencerClass();
+        assertThat( reloadedClass.getName(), is( sequencerClass.getName() ) );
+        assertThat( reloadedClass, not( sameInstance( ( Object ) sequencerClass ) ) );
+    }
+    
     @Test
     public void shouldUnregisterModelTypeRepository() throws Exception {
         final int size = modelTypeManager.modelTypeRepositories().size();
@@ -339,4 +620,44 @@ public class ModelTypeManagerImplTest extends BaseTest {
         assertThat( repos, notNullValue() );
         assertThat( repos.size(), is( size ) );
     }
+    
+    @Test
+    public void shouldWaitForPendingInstallBeforeUninstalling() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        final FutureTask< Collection< String > > install = new FutureTask<>( new Callable< Collection< String > >() {
+            
+            @Override
+            public Collection< String > call() throws Exception {
+                return modelTypeManager.installCategory( XML_MODEL_TYPE_CATEGORY );
+            }
+        } );
+        modelTypeManager.installsByCategory.put( XML_MODEL_TYPE_CATEGORY, install );
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future< Void > uninstall = executor.submit( new Callable< Void >() {
+                
+                @Override
+                public Void call() throws Exception {
+                    modelTypeManager.uninstall( XML_MODEL_TYPE_CATEGORY );
+                    return null;
+                }
+            } );
+            try {
+                uninstall.get( 500, TimeUnit.MILLISECONDS );
+                fail();
+            } catch ( final TimeoutException expected ) {
+                // The uninstall must wait for the install to finish publishing the category
+            }
+            install.run();
+            modelTypeManager.installsByCategory.remove( XML_MODEL_TYPE_CATEGORY, install );
+            uninstall.get( 1, TimeUnit.MINUTES );
+        } finally {
+            executor.shutdown();
+        }
+        assertThat( modelTypeManager.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).isEmpty(), is( true ) );
+        assertThat( modelTypeManager.classLoadersByCategory.containsKey( XML_MODEL_TYPE_CATEGORY ), is( false ) );
+        assertThat( modelTypeManager.installsByCategory.isEmpty(), is( true ) );
+        modelTypeManager.install( XML_MODEL_TYPE_CATEGORY );
+        assertThat( modelTypeManager.modelType( XML_MODEL_TYPE_NAME ), notNullValue() );
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modeshape.modeler.ModelTypeRepositoryStatistics;
+import org.modeshape.modeler.test.BaseTest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+@SuppressWarnings( "javadoc" )
+public class ModelTypeRepositorySelectorTest extends BaseTest {
+    
+    private static final String ARCHIVE = "archive";
+    private static final long SLOW_LATENCY = 5000;
+    
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private URL slowRepositoryUrl;
+    private URL fastRepositoryUrl;
+    private URL emptyRepositoryUrl;
+    private ModelTypeRepositorySelector selector;
+    
+    @Override
+    @After
+    public void after() throws Exception {
+        server.stop( 0 );
+        serverExecutor.shutdownNow();
+        super.after();
+    }
+    
+    @Override
+    @Before
+    public void before() throws Exception {
+        super.before();
+        server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor( serverExecutor );
+        server.createContext( "/slow/", repository( "slow", SLOW_LATENCY ) );
+        server.createContext( "/fast/", repository( "fast", 0 ) );
+        server.createContext( "/empty/", new HttpHandler() {
+            
+            @Override
+            public void handle( final HttpExchange exchange ) throws IOException {
+                exchange.sendResponseHeaders( 404, -1 );
+                exchange.close();
+            }
+        } );
+        server.start();
+        final String serverUrl = "http://localhost:" + server.getAddress().getPort();
+        slowRepositoryUrl = new URL( serverUrl + "/slow" );
+        fastRepositoryUrl = new URL( serverUrl + "/fast" );
+        emptyRepositoryUrl = new URL( serverUrl + "/empty" );
+        selector = modelTypeManager.repositorySelector;
+    }
+    
+    private String read( final InputStream stream ) throws IOException {
+        try {
+            final StringBuilder builder = new StringBuilder();
+            for ( int chr = stream.read(); chr >= 0; chr = stream.read() )
+                builder.append( ( char ) chr );
+            return builder.toString();
+        } finally {
+            stream.close();
+        }
+    }
+    
+    private HttpHandler repository( final String content,
+                                    final long latency ) {
+        return new HttpHandler() {
+            
+            @Override
+            public void handle( final HttpExchange exchange ) throws IOException {
+                try {
+                    Thread.sleep( latency );
+                    final byte[] bytes = content.getBytes( "UTF-8" );
+                    exchange.sendResponseHeaders( 200, bytes.length );
+                    try ( OutputStream stream = exchange.getResponseBody() ) {
+                        stream.write( bytes );
+                    }
+                } catch ( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        };
+    }
+    
+    @Test
+    public void shouldHedgeSlowRepository() throws Exception {
+        selector.hedgeDelay = 100;
+        final long start = System.nanoTime();
+        final String content = read( selector.open( Arrays.asList( slowRepositoryUrl, fastRepositoryUrl ), ARCHIVE ) );
+        assertThat( content, is( "fast" ) );
+        assertThat( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) < SLOW_LATENCY, is( true ) );
+    }
+    
+    @Test
+    public void shouldNotFindArchiveMissingFromAllRepositories() throws Exception {
+        assertThat( selector.open( Arrays.asList( emptyRepositoryUrl ), ARCHIVE ), nullValue() );
+        final ModelTypeRepositoryStatistics statistics = selector.statistics( Arrays.asList( emptyRepositoryUrl ) ).get( 0 );
+        assertThat( statistics.requests(), is( 1L ) );
+        assertThat( statistics.failures(), is( 0L ) );
+    }
+    
+    @Test
+    public void shouldRankRepositoriesByLatencyAndFailureRate() throws Exception {
+        final long now = System.nanoTime();
+        selector.record( slowRepositoryUrl, now - TimeUnit.MILLISECONDS.toNanos( SLOW_LATENCY ), false );
+        selector.record( fastRepositoryUrl, now - TimeUnit.MILLISECONDS.toNanos( 10 ), false );
+        selector.record( emptyRepositoryUrl, now, true );
+        final List< URL > rankedRepositoryUrls =
+            selector.rank( Arrays.asList( emptyRepositoryUrl, slowRepositoryUrl, fastRepositoryUrl ) );
+        assertThat( rankedRepositoryUrls, is( Arrays.asList( fastRepositoryUrl, slowRepositoryUrl, emptyRepositoryUrl ) ) );
+        final List< ModelTypeRepositoryStatistics > statistics =
+            selector.statistics( Arrays.asList( emptyRepositoryUrl, slowRepositoryUrl, fastRepositoryUrl ) );
+        assertThat( statistics.get( 0 ).url(), is( fastRepositoryUrl ) );
+        assertThat( statistics.get( 2 ).failureRate(), is( 1.0 ) );
+        assertThat( statistics.get( 2 ).averageLatency(), is( -1L ) );
+    }
+    
+    @Test
+    public void shouldTryUntriedRepositoriesInRegisteredOrder() throws Exception {
+        assertThat( selector.rank( Arrays.asList( slowRepositoryUrl, fastRepositoryUrl ) ),
+                    is( Arrays.asList( slowRepositoryUrl, fastRepositoryUrl ) ) );
+    }
+    
+    @Test
+    public void shouldUseFastestRepositoryOnceMeasured() throws Exception {
+        assertThat( read( selector.open( Arrays.asList( fastRepositoryUrl, slowRepositoryUrl ), ARCHIVE ) ), is( "fast" ) );
+        selector.record( slowRepositoryUrl, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos( SLOW_LATENCY ), false );
+        assertThat( selector.rank( Arrays.asList( slowRepositoryUrl, fastRepositoryUrl ) ).get( 0 ), is( fastRepositoryUrl ) );
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Polyglotter (http://polyglotter.org)
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * See the AUTHORS.txt file in the distribution for a full listing of 
+ * individual contributors.
+ *
+ * Polyglotter is free software. Unless otherwise indicated, all code in Polyglotter
+ * is licensed to you under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * Polyglotter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.modeshape.modeler.internal;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Test;
+import org.modeshape.modeler.test.BaseTest;
+
+@SuppressWarnings( "javadoc" )
+public class SequencerDiscoveryTest extends BaseTest {
+    
+    private static final String XML_SEQUENCER = "org.modeshape.sequencer.xml.XmlSequencer";
+    private static final String XSD_SEQUENCER = "org.modeshape.sequencer.xsd.XsdSequencer";
+    
+    private CategoryClassLoader install( final String category ) throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        modelTypeManager.install( category );
+        return modelTypeManager.classLoadersByCategory.get( category );
+    }
+    
+    @Test
+    public void shouldDiscoverSequencersDeclaredAsServices() throws Exception {
+        final Path jarPath = Files.createTempFile( null, ".jar" );
+        jarPath.toFile().deleteOnExit();
+        try ( JarOutputStream jar = new JarOutputStream( Files.newOutputStream( jarPath ) ) ) {
+            jar.putNextEntry( new JarEntry( SequencerDiscovery.SERVICES_ENTRY ) );
+            jar.write( ( "# Sequencers\n\n" + XML_SEQUENCER + " # XML\n" ).getBytes( StandardCharsets.UTF_8 ) );
+            jar.closeEntry();
+        }
+        final Set< String > candidates =
+            new SequencerDiscovery( getClass().getClassLoader() ).candidates( Collections.singleton( jarPath ) );
+        assertThat( candidates, is( Collections.singleton( XML_SEQUENCER ) ) );
+    }
+    
+    @Test
+    public void shouldDiscoverSequencersFromClassHeaders() throws Exception {
+        final CategoryClassLoader classLoader = install( XML_MODEL_TYPE_CATEGORY );
+        final Collection< Path > jarPaths = classLoader.jarPaths();
+        // InheritingXmlSequencer is a variant of XmlSequencer, and so isn't reported
+        assertThat( new SequencerDiscovery( classLoader ).candidates( jarPaths ), is( Collections.singleton( XML_SEQUENCER ) ) );
+        assertThat( modelTypeManager.modelTypesForCategory( XML_MODEL_TYPE_CATEGORY ).size(), is( 1 ) );
+    }
+    
+    @Test
+    public void shouldIdentifySequencersFromClassHeaders() throws Exception {
+        final SequencerDiscovery discovery = new SequencerDiscovery( install( XML_MODEL_TYPE_CATEGORY ) );
+        assertThat( discovery.isSequencer( XML_SEQUENCER ), is( true ) );
+        assertThat( discovery.isSequencer( "org.modeshape.sequencer.xml.InheritingXmlSequencer" ), is( true ) );
+        assertThat( discovery.isSequencer( "org.modeshape.sequencer.xml.XmlSequencerHandler" ), is( false ) );
+    }
+    
+    @Test
+    public void shouldLeaveSequencerWithMissingSuperclassUnresolved() throws Exception {
+        modelTypeManager.registerModelTypeRepository( MODEL_TYPE_REPOSITORY );
+        final Collection< String > potentialSequencerClassNames = modelTypeManager.install( "xsd" );
+        assertThat( potentialSequencerClassNames.contains( XSD_SEQUENCER ), is( true ) );
+        final SequencerDiscovery discovery = new SequencerDiscovery( modelTypeManager.classLoadersByCategory.get( "xsd" ) );
+        assertThat( discovery.isSequencer( XSD_SEQUENCER ), nullValue() );
+        assertThat( modelTypeManager.modelTypesForCategory( "xsd" ).isEmpty(), is( true ) );
+    }
+}
@@ -89,6 +89,7 @@ public abstract class BaseTest {
     public void after() throws Exception {
         modeler.close();
         deleteFolder( TEST_REPOSITORY_STORE_PARENT_PATH + "/modelerRepository" );
+        deleteFolder( TEST_REPOSITORY_STORE_PARENT_PATH + '/' + Manager.DEFAULT_LIBRARY_FOLDER );
         deleteFolder( System.getProperty( "java.io.tmpdir" ) + "/modeshape-binary-store" );
     }
     